@@ -0,0 +1,99 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sending already serialized documents, in documents per second, with a {@link BulkRequest} through the
+ * high-level client and with a pooled {@link BulkBody} through the low-level client, against an in-process
+ * {@link FakeEsServer} with a canned response. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(BulkBodyBenchmark.DOCUMENTS)
+public class BulkBodyBenchmark {
+
+    static final int DOCUMENTS = 1000;
+
+    /**
+     * Approximate size of each document source, in bytes.
+     */
+    @Param({"100", "1000"})
+    public int documentSize;
+
+    private FakeEsServer server;
+    private RestHighLevelClient client;
+    private BulkBufferPool pool;
+    private byte[] source;
+    private String[] ids;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new FakeEsServer().respond("/_bulk", "{\"took\":1,\"errors\":false,\"items\":[]}");
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getAddress())));
+        pool = new BulkBufferPool(64 * 1024, 256);
+        StringBuilder json = new StringBuilder("{\"message\":\"");
+        while (json.length() < documentSize - 2) {
+            json.append('x');
+        }
+        source = json.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+        ids = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            ids[i] = Integer.toString(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public BulkResponse bulkRequest() throws IOException {
+        final BulkRequest request = new BulkRequest();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            request.add(new IndexRequest("benchmark", "doc", ids[i]).source(source, XContentType.JSON));
+        }
+        return client.bulk(request);
+    }
+
+    @Benchmark
+    public Response bulkBody() throws IOException {
+        try (BulkBody body = new BulkBody(pool)) {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                body.index("benchmark", "doc", ids[i], source);
+            }
+            return client.getLowLevelClient().performRequest("POST", "/_bulk", Collections.emptyMap(), body.toEntity());
+        }
+    }
+}
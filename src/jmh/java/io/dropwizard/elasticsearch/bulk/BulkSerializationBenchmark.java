@@ -0,0 +1,79 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures bulk throughput, in documents per second, through the high-level client against an in-process
+ * {@link FakeEsServer}. The server is given a canned response which acknowledges each bulk without per-item results, so this is dominated by building
+ * and serializing the bulk body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(BulkSerializationBenchmark.DOCUMENTS)
+public class BulkSerializationBenchmark {
+
+    static final int DOCUMENTS = 1000;
+
+    /**
+     * Approximate size of each document source, in bytes.
+     */
+    @Param({"100", "1000"})
+    public int documentSize;
+
+    private FakeEsServer server;
+    private RestHighLevelClient client;
+    private String source;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new FakeEsServer().respond("/_bulk", "{\"took\":1,\"errors\":false,\"items\":[]}");
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getAddress())));
+        StringBuilder json = new StringBuilder("{\"message\":\"");
+        while (json.length() < documentSize - 2) {
+            json.append('x');
+        }
+        source = json.append("\"}").toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public BulkResponse bulk() throws IOException {
+        final BulkRequest request = new BulkRequest();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            request.add(new IndexRequest("benchmark", "doc", Integer.toString(i)).source(source, XContentType.JSON));
+        }
+        return client.bulk(request);
+    }
+}
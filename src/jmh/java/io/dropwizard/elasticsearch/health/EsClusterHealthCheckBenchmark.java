@@ -0,0 +1,84 @@
+package io.dropwizard.elasticsearch.health;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the status from a {@code _cluster/health} response by streaming against the previous
+ * approach of reading the whole body into a {@link Map} with a new {@link ObjectMapper}. Run with
+ * {@code -prof gc} to compare allocation per check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EsClusterHealthCheckBenchmark {
+
+    /**
+     * Number of indices in the response; {@code 0} is the plain cluster-level response.
+     */
+    @Param({"0", "200"})
+    public int indices;
+
+    private HttpEntity entity;
+
+    @Setup
+    public void setup() {
+        entity = new ByteArrayEntity(healthResponse(indices).getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public Object objectMapperPerCall() throws IOException {
+        String body = EntityUtils.toString(entity);
+        Map jsonMap = new ObjectMapper().readValue(body, Map.class);
+        return jsonMap.get("status");
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        return EsClusterHealthCheck.readStatus(entity);
+    }
+
+    static String healthResponse(int indices) {
+        StringBuilder json = new StringBuilder("{\"cluster_name\":\"benchmark\",\"status\":\"green\",\"timed_out\":false,")
+                .append("\"number_of_nodes\":5,\"number_of_data_nodes\":3,\"active_primary_shards\":").append(indices * 5)
+                .append(",\"active_shards\":").append(indices * 10)
+                .append(",\"relocating_shards\":0,\"initializing_shards\":0,\"unassigned_shards\":0,")
+                .append("\"delayed_unassigned_shards\":0,\"number_of_pending_tasks\":0,\"number_of_in_flight_fetch\":0,")
+                .append("\"task_max_waiting_in_queue_millis\":0,\"active_shards_percent_as_number\":100.0");
+        if (indices > 0) {
+            json.append(",\"indices\":{");
+            for (int i = 0; i < indices; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("\"logs-").append(i).append("\":{\"status\":\"green\",\"number_of_shards\":5,")
+                        .append("\"number_of_replicas\":1,\"active_primary_shards\":5,\"active_shards\":10,")
+                        .append("\"relocating_shards\":0,\"initializing_shards\":0,\"unassigned_shards\":0}");
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+}
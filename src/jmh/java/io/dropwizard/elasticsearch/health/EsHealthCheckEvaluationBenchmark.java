@@ -0,0 +1,86 @@
+package io.dropwizard.elasticsearch.health;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.elasticsearch.config.EsHealthCheckConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of evaluating the REST health checks end to end against an in-process
+ * {@link FakeEsServer}, and of reading a cached result from {@link EsHealthCheckRefresher}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EsHealthCheckEvaluationBenchmark {
+
+    private FakeEsServer server;
+    private RestHighLevelClient client;
+    private EsHealthCheckRefresher refresher;
+    private HealthCheck clusterHealth;
+    private HealthCheck indexExists;
+    private HealthCheck indexDocs;
+    private HealthCheck cachedClusterHealth;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new FakeEsServer()
+                .respond("/logs-1,logs-2/_stats",
+                        "{\"indices\":{\"logs-1\":{\"primaries\":{\"docs\":{\"count\":100}}},"
+                                + "\"logs-2\":{\"primaries\":{\"docs\":{\"count\":100}}}}}");
+        client = new RestHighLevelClient(RestClient.builder(HttpHost.create(server.getAddress())));
+        clusterHealth = new EsClusterHealthCheck(client, false);
+        indexExists = new EsIndexExistsHealthCheck(client, Arrays.asList("logs-1", "logs-2"));
+        indexDocs = new EsIndexDocsHealthCheck(client, Arrays.asList("logs-1", "logs-2"));
+        refresher = new EsHealthCheckRefresher(new EsHealthCheckConfiguration(), new MetricRegistry(), "benchmark");
+        cachedClusterHealth = refresher.cache(new EsClusterHealthCheck(client, false));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        refresher.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public HealthCheck.Result clusterHealth() {
+        return clusterHealth.execute();
+    }
+
+    @Benchmark
+    public HealthCheck.Result indexExists() {
+        return indexExists.execute();
+    }
+
+    @Benchmark
+    public HealthCheck.Result indexDocs() {
+        return indexDocs.execute();
+    }
+
+    @Benchmark
+    public HealthCheck.Result cachedClusterHealth() {
+        return cachedClusterHealth.execute();
+    }
+}
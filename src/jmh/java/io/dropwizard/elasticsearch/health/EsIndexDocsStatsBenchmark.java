@@ -0,0 +1,151 @@
+package io.dropwizard.elasticsearch.health;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading primary document counts from a full {@code _stats} response against the
+ * {@code _stats/docs} response filtered to {@code indices.*.primaries.docs.count}, as requested by
+ * {@link EsIndexDocsHealthCheck}. The {@code bytes} counter reports the payload size per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EsIndexDocsStatsBenchmark {
+
+    private static final String[][] STATS_SECTIONS = {
+            {"docs", "count", "deleted"},
+            {"store", "size_in_bytes"},
+            {"indexing", "index_total", "index_time_in_millis", "index_current", "index_failed", "delete_total",
+                    "delete_time_in_millis", "delete_current", "noop_update_total", "is_throttled", "throttle_time_in_millis"},
+            {"get", "total", "time_in_millis", "exists_total", "exists_time_in_millis", "missing_total",
+                    "missing_time_in_millis", "current"},
+            {"search", "open_contexts", "query_total", "query_time_in_millis", "query_current", "fetch_total",
+                    "fetch_time_in_millis", "fetch_current", "scroll_total", "scroll_time_in_millis", "scroll_current",
+                    "suggest_total", "suggest_time_in_millis", "suggest_current"},
+            {"merges", "current", "current_docs", "current_size_in_bytes", "total", "total_time_in_millis", "total_docs",
+                    "total_size_in_bytes", "total_stopped_time_in_millis", "total_throttled_time_in_millis",
+                    "total_auto_throttle_in_bytes"},
+            {"refresh", "total", "total_time_in_millis", "listeners"},
+            {"flush", "total", "total_time_in_millis"},
+            {"warmer", "current", "total", "total_time_in_millis"},
+            {"query_cache", "memory_size_in_bytes", "total_count", "hit_count", "miss_count", "cache_size", "cache_count",
+                    "evictions"},
+            {"fielddata", "memory_size_in_bytes", "evictions"},
+            {"completion", "size_in_bytes"},
+            {"segments", "count", "memory_in_bytes", "terms_memory_in_bytes", "stored_fields_memory_in_bytes",
+                    "term_vectors_memory_in_bytes", "norms_memory_in_bytes", "points_memory_in_bytes",
+                    "doc_values_memory_in_bytes", "index_writer_memory_in_bytes", "version_map_memory_in_bytes",
+                    "fixed_bit_set_memory_in_bytes", "max_unsafe_auto_id_timestamp"},
+            {"translog", "operations", "size_in_bytes", "uncommitted_operations", "uncommitted_size_in_bytes"},
+            {"request_cache", "memory_size_in_bytes", "evictions", "hit_count", "miss_count"},
+            {"recovery", "current_as_source", "current_as_target", "throttle_time_in_millis"}
+    };
+
+    @Param({"200"})
+    public int indices;
+
+    private byte[] fullStats;
+    private byte[] filteredStats;
+
+    /**
+     * Counts the bytes of response read per operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transfer {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        fullStats = statsResponse(indices, false).getBytes(StandardCharsets.UTF_8);
+        filteredStats = statsResponse(indices, true).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, Long> fullStats(Transfer transfer) throws IOException {
+        transfer.bytes += fullStats.length;
+        return EsIndexDocsHealthCheck.readDocumentCounts(new ByteArrayInputStream(fullStats));
+    }
+
+    @Benchmark
+    public Map<String, Long> filteredDocsStats(Transfer transfer) throws IOException {
+        transfer.bytes += filteredStats.length;
+        return EsIndexDocsHealthCheck.readDocumentCounts(new ByteArrayInputStream(filteredStats));
+    }
+
+    static String statsResponse(int indices, boolean filtered) {
+        final StringBuilder json = new StringBuilder("{");
+        if (!filtered) {
+            json.append("\"_shards\":{\"total\":").append(indices * 10).append(",\"successful\":").append(indices * 10)
+                    .append(",\"failed\":0},\"_all\":{");
+            appendStats(json, 10);
+            json.append("},");
+        }
+        json.append("\"indices\":{");
+        for (int i = 0; i < indices; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"logs-").append(i).append("\":{");
+            if (filtered) {
+                json.append("\"primaries\":{\"docs\":{\"count\":").append(1000L * i).append("}}");
+            } else {
+                appendStats(json, i);
+            }
+            json.append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendStats(StringBuilder json, long seed) {
+        json.append("\"primaries\":{");
+        appendSections(json, seed);
+        json.append("},\"total\":{");
+        appendSections(json, seed * 2);
+        json.append('}');
+    }
+
+    private static void appendSections(StringBuilder json, long seed) {
+        for (int s = 0; s < STATS_SECTIONS.length; s++) {
+            if (s > 0) {
+                json.append(',');
+            }
+            final String[] section = STATS_SECTIONS[s];
+            json.append('"').append(section[0]).append("\":{");
+            for (int f = 1; f < section.length; f++) {
+                if (f > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(section[f]).append("\":").append(seed * 1000 + s * 31 + f);
+            }
+            json.append('}');
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.dropwizard.elasticsearch.managed;
+
+import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.client.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures request dispatch overhead through {@link ManagedEsClient} against an in-process
+ * {@link FakeEsServer}, and the cost of building a client from configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagedEsClientBenchmark {
+
+    /**
+     * Whether request metrics are enabled, to show the cost of the request listeners.
+     */
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private FakeEsServer server;
+    private String configJson;
+    private ManagedEsClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new FakeEsServer();
+        configJson = "{ \"servers\": [ \"" + server.getAddress() + "\" ], \"metrics\": { \"enabled\": " + metrics + " } }";
+        client = newClient();
+        client.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.stop();
+        server.close();
+    }
+
+    @Benchmark
+    public Response lowLevelClient() throws IOException {
+        return client.getRestClient().performRequest(HttpMethod.GET, "/");
+    }
+
+    @Benchmark
+    public Response managedPerformRequest() throws IOException {
+        return client.performRequest(HttpMethod.GET, "/", Collections.emptyMap(), null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    public ManagedEsClient configToClient() throws Exception {
+        final ManagedEsClient built = newClient();
+        built.stop();
+        return built;
+    }
+
+    private ManagedEsClient newClient() throws IOException {
+        return new ManagedEsClient(Jackson.newObjectMapper().readValue(configJson, EsConfiguration.class));
+    }
+}
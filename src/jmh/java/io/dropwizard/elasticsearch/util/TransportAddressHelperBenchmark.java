@@ -0,0 +1,49 @@
+package io.dropwizard.elasticsearch.util;
+
+import org.elasticsearch.common.transport.TransportAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of configured server addresses into {@link TransportAddress} instances. Addresses are
+ * IP literals so name resolution does not affect the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportAddressHelperBenchmark {
+
+    @Param({"1", "10"})
+    public int servers;
+
+    private List<String> addresses;
+
+    @Setup
+    public void setup() {
+        addresses = new ArrayList<>(servers);
+        for (int i = 0; i < servers; i++) {
+            addresses.add("10.0.0." + (i + 1) + (i % 2 == 0 ? ":9300" : ""));
+        }
+    }
+
+    @Benchmark
+    public TransportAddress[] fromStrings() {
+        return TransportAddressHelper.fromStrings(addresses);
+    }
+}
@@ -0,0 +1,196 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsBulkConfiguration;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.BiConsumer;
+
+/**
+ * Limits the number of bulk requests in flight, adjusting the limit with an additive increase,
+ * multiplicative decrease (AIMD) rule.
+ * <p>
+ * Much of a bulk's round-trip time is a fixed cost, so round-trip times are only compared between bulks of a
+ * similar size: each power of two of the number of actions has its own baseline. Each bulk which completes
+ * without rejections and within {@code latencyTolerance} times the baseline for its size raises the limit by
+ * {@code 1 / limit}, so the limit grows by about one per round of requests. A bulk with any item rejected with
+ * {@code 429 Too Many Requests}, or which is slower than the tolerance allows, multiplies the limit by
+ * {@code decreaseFactor}. The limit is cut at most once per round trip: bulks which were sent before the last
+ * cut do not cut it again, since they only report the overload that has already been acted on. Bulk requests
+ * which fail as a whole are not used as latency samples. The limit stays between
+ * {@code minConcurrentRequests} and {@code maxConcurrentRequests}. Each baseline is the lowest round-trip time
+ * seen for its size, drifting slowly upwards so it follows changes in the cluster.
+ * <p>
+ * Bulks beyond the limit are queued and sent, in order, as others complete, so the limiter never blocks the
+ * bulk processor's scheduler thread. The bulk processor itself allows {@code maxConcurrentRequests} bulks
+ * at once, which bounds the queue. Rejected items are re-queued by {@link ManagedBulkProcessor}, which only
+ * resends the rejected items.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.bulk}:
+ * <ul>
+ * <li>{@code concurrency-limit} - the current limit</li>
+ * <li>{@code queued-bulks} - bulks waiting for the limit</li>
+ * <li>{@code limit-decreases} - times the limit was decreased</li>
+ * </ul>
+ */
+class AdaptiveBulkLimiter implements BiConsumer<BulkRequest, ActionListener<BulkResponse>> {
+
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> delegate;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double decreaseFactor;
+    private final Meter limitDecreases;
+
+    private final Queue<PendingBulk> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private final long[] baselineNanos = new long[Integer.SIZE];
+    private long sentBulks;
+    private long sentBeforeDecrease;
+
+    AdaptiveBulkLimiter(BiConsumer<BulkRequest, ActionListener<BulkResponse>> delegate, EsBulkConfiguration config,
+                        MetricRegistry metrics, String metricPrefix) {
+        this.delegate = delegate;
+        this.minLimit = config.getMinConcurrentRequests();
+        this.maxLimit = Math.max(minLimit, config.getMaxConcurrentRequests());
+        this.latencyTolerance = config.getLatencyTolerance();
+        this.decreaseFactor = config.getDecreaseFactor();
+        Arrays.fill(baselineNanos, Long.MAX_VALUE);
+        this.limit = Math.min(maxLimit, Math.max(minLimit, config.getConcurrentRequests()));
+
+        this.limitDecreases = metrics.meter(MetricRegistry.name(metricPrefix, "bulk", "limit-decreases"));
+        metrics.gauge(MetricRegistry.name(metricPrefix, "bulk", "concurrency-limit"), () -> (Gauge<Integer>) this::getLimit);
+        metrics.gauge(MetricRegistry.name(metricPrefix, "bulk", "queued-bulks"), () -> (Gauge<Integer>) this::getQueued);
+    }
+
+    @Override
+    public void accept(BulkRequest request, ActionListener<BulkResponse> listener) {
+        final PendingBulk bulk = new PendingBulk(request, listener);
+        synchronized (this) {
+            if (inFlight >= getLimit()) {
+                queue.add(bulk);
+                return;
+            }
+            inFlight++;
+            bulk.sequence = sentBulks++;
+        }
+        send(bulk);
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getQueued() {
+        return queue.size();
+    }
+
+    private void send(PendingBulk bulk) {
+        final long startNanos = System.nanoTime();
+        try {
+            delegate.accept(bulk.request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    complete(bulk, startNanos, hasRejections(response), true);
+                    bulk.listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    complete(bulk, startNanos, isRejection(e), false);
+                    bulk.listener.onFailure(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            complete(bulk, startNanos, false, false);
+            bulk.listener.onFailure(e);
+        }
+    }
+
+    /**
+     * @param rejected whether the cluster rejected the bulk or any of its items.
+     * @param measured whether the bulk's round-trip time is a latency sample; {@code false} if the whole
+     *                 request failed.
+     */
+    private void complete(PendingBulk bulk, long startNanos, boolean rejected, boolean measured) {
+        final long rttNanos = System.nanoTime() - startNanos;
+        final int size = sizeClass(bulk.request.numberOfActions());
+        final List<PendingBulk> ready = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            boolean slow = false;
+            if (measured) {
+                if (rttNanos < baselineNanos[size]) {
+                    baselineNanos[size] = rttNanos;
+                } else {
+                    baselineNanos[size] += (long) ((rttNanos - baselineNanos[size]) * BASELINE_DRIFT);
+                }
+                slow = rttNanos > baselineNanos[size] * latencyTolerance;
+            }
+
+            if (rejected || slow) {
+                // Only the first bulk sent since the last cut may cut the limit again
+                if (bulk.sequence >= sentBeforeDecrease) {
+                    limit = Math.max(minLimit, limit * decreaseFactor);
+                    sentBeforeDecrease = sentBulks;
+                    limitDecreases.mark();
+                }
+            } else if (measured) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            while (!queue.isEmpty() && inFlight < getLimit()) {
+                final PendingBulk next = queue.remove();
+                inFlight++;
+                next.sequence = sentBulks++;
+                ready.add(next);
+            }
+        }
+        ready.forEach(this::send);
+    }
+
+    private static int sizeClass(int actions) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(Math.max(1, actions));
+    }
+
+    private static boolean hasRejections(BulkResponse response) {
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed() && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRejection(Exception e) {
+        return e instanceof ElasticsearchException && ((ElasticsearchException) e).status() == RestStatus.TOO_MANY_REQUESTS;
+    }
+
+    private static class PendingBulk {
+        private final BulkRequest request;
+        private final ActionListener<BulkResponse> listener;
+        private long sequence;
+
+        PendingBulk(BulkRequest request, ActionListener<BulkResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * The body of a {@code _bulk} request for the low-level REST client, written directly into buffers from a
+ * {@link BulkBufferPool}.
+ * <p>
+ * Action lines are written straight into the buffers, and document sources are copied in once from the caller's
+ * already serialized bytes. This avoids the intermediate copies made by {@code BulkRequest}, which builds each
+ * source into its own buffer and then concatenates them into the request body. The body is sent without further
+ * copies by {@link #toEntity()}:
+ * <pre>
+ * try (BulkBody body = managedClient.newBulkBody()) {
+ *     body.index("logs", "doc", id, sourceBytes);
+ *     managedClient.performRequest("POST", "/_bulk", Collections.emptyMap(), body.toEntity());
+ * }
+ * </pre>
+ * Document sources must be a single line of JSON. The buffers are reference counted: closing the body gives up
+ * the caller's reference, and an entity holds another while it is being sent. The buffers go back to the pool
+ * once both are released, so a request which is still streaming the body when the caller gives up on it, for
+ * example after a timeout, never sends buffers which have been reused. An entity which has not started sending
+ * when the body is closed fails instead. Apart from closing, a body is not thread-safe.
+ */
+public class BulkBody implements Closeable {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final BulkBufferPool pool;
+    private final List<byte[]> buffers = new ArrayList<>();
+    private final AtomicInteger references = new AtomicInteger(1);
+    private byte[] buffer;
+    private int position;
+    private long size;
+    private int actions;
+    private boolean closed;
+
+    /**
+     * @param pool the pool to take buffers from, and return them to when closed.
+     */
+    public BulkBody(BulkBufferPool pool) {
+        this.pool = checkNotNull(pool, "BulkBufferPool must not be null");
+    }
+
+    /**
+     * Add an index action.
+     *
+     * @param index  the index name.
+     * @param type   the document type, or {@code null} to use the endpoint's default.
+     * @param id     the document ID, or {@code null} to have one generated.
+     * @param source the serialized document source, as a single line of JSON.
+     * @return this body.
+     */
+    public BulkBody index(String index, String type, String id, byte[] source) {
+        return index(index, type, id, source, 0, source.length);
+    }
+
+    /**
+     * Add an index action with a source taken from part of an array.
+     *
+     * @param index  the index name.
+     * @param type   the document type, or {@code null} to use the endpoint's default.
+     * @param id     the document ID, or {@code null} to have one generated.
+     * @param source an array holding the serialized document source, as a single line of JSON.
+     * @param offset the offset of the source in the array.
+     * @param length the length of the source.
+     * @return this body.
+     */
+    public BulkBody index(String index, String type, String id, byte[] source, int offset, int length) {
+        action("index", index, type, id);
+        line(source, offset, length);
+        return this;
+    }
+
+    /**
+     * Add a create action, which fails if the document already exists.
+     *
+     * @param index  the index name.
+     * @param type   the document type, or {@code null} to use the endpoint's default.
+     * @param id     the document ID, or {@code null} to have one generated.
+     * @param source the serialized document source, as a single line of JSON.
+     * @return this body.
+     */
+    public BulkBody create(String index, String type, String id, byte[] source) {
+        action("create", index, type, id);
+        line(source, 0, source.length);
+        return this;
+    }
+
+    /**
+     * Add an update action.
+     *
+     * @param index the index name.
+     * @param type  the document type, or {@code null} to use the endpoint's default.
+     * @param id    the document ID.
+     * @param body  the serialized update, such as {@code {"doc":{...}}}, as a single line of JSON.
+     * @return this body.
+     */
+    public BulkBody update(String index, String type, String id, byte[] body) {
+        checkNotNull(id, "id must not be null");
+        action("update", index, type, id);
+        line(body, 0, body.length);
+        return this;
+    }
+
+    /**
+     * Add a delete action.
+     *
+     * @param index the index name.
+     * @param type  the document type, or {@code null} to use the endpoint's default.
+     * @param id    the document ID.
+     * @return this body.
+     */
+    public BulkBody delete(String index, String type, String id) {
+        checkNotNull(id, "id must not be null");
+        action("delete", index, type, id);
+        return this;
+    }
+
+    /**
+     * @return the number of actions added.
+     */
+    public int getActionCount() {
+        return actions;
+    }
+
+    /**
+     * @return the size of the body, in bytes.
+     */
+    public long getSizeInBytes() {
+        return size;
+    }
+
+    /**
+     * Create an entity which sends the body from its buffers. The entity can be sent again, for example when a
+     * request is retried on another host, but not by two requests at once. The entity cannot be sent once the
+     * body has been closed.
+     *
+     * @return the request entity.
+     */
+    public HttpEntity toEntity() {
+        checkState(!closed, "BulkBody has been closed");
+        return new Entity(this, filledBuffers(), size);
+    }
+
+    /**
+     * Give up the caller's use of the buffers. They are returned to the pool now if no entity is being sent,
+     * and otherwise once it has been sent. The body must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        release();
+    }
+
+    /**
+     * Take a reference to the buffers, unless they have already been returned to the pool.
+     *
+     * @return {@code true} if a reference was taken.
+     */
+    private boolean retain() {
+        while (true) {
+            final int count = references.get();
+            if (count == 0) {
+                return false;
+            } else if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        if (references.decrementAndGet() == 0) {
+            buffers.forEach(pool::release);
+            buffers.clear();
+            buffer = null;
+        }
+    }
+
+    private void action(String action, String index, String type, String id) {
+        checkState(!closed, "BulkBody has been closed");
+        checkNotNull(index, "index must not be null");
+        ascii("{\"");
+        ascii(action);
+        ascii("\":{\"_index\":");
+        string(index);
+        if (type != null) {
+            ascii(",\"_type\":");
+            string(type);
+        }
+        if (id != null) {
+            ascii(",\"_id\":");
+            string(id);
+        }
+        ascii("}}\n");
+        actions++;
+    }
+
+    private void line(byte[] bytes, int offset, int length) {
+        int written = 0;
+        while (written < length) {
+            final int count = Math.min(length - written, room());
+            System.arraycopy(bytes, offset + written, buffer, position, count);
+            position += count;
+            written += count;
+        }
+        size += length;
+        write('\n');
+    }
+
+    private void ascii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void string(String value) {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                ascii("\\u00");
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xf]);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xc0 | (c >> 6));
+                write(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xf0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3f));
+                write(0x80 | ((codePoint >> 6) & 0x3f));
+                write(0x80 | (codePoint & 0x3f));
+            } else {
+                write(0xe0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3f));
+                write(0x80 | (c & 0x3f));
+            }
+        }
+        write('"');
+    }
+
+    private void write(int b) {
+        room();
+        buffer[position++] = (byte) b;
+        size++;
+    }
+
+    private int room() {
+        if (buffer == null || position == buffer.length) {
+            buffer = pool.acquire();
+            buffers.add(buffer);
+            position = 0;
+        }
+        return buffer.length - position;
+    }
+
+    private List<ByteBuffer> filledBuffers() {
+        final List<ByteBuffer> filled = new ArrayList<>(buffers.size());
+        for (byte[] b : buffers) {
+            filled.add(ByteBuffer.wrap(b, 0, b == buffer ? position : b.length));
+        }
+        return Collections.unmodifiableList(filled);
+    }
+
+    /**
+     * Sends the filled buffers, writing them straight to the connection when sent by the asynchronous client.
+     * The entity holds a reference to the buffers from when it starts sending them until the request producer
+     * closes it.
+     */
+    private static class Entity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+        private final BulkBody body;
+        private final List<ByteBuffer> buffers;
+        private final long length;
+        private int current;
+        private ByteBuffer remaining;
+        private boolean sending;
+
+        private Entity(BulkBody body, List<ByteBuffer> buffers, long length) {
+            this.body = body;
+            this.buffers = buffers;
+            this.length = length;
+            setContentType(NDJSON.toString());
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            retain();
+            final List<InputStream> streams = new ArrayList<>(buffers.size());
+            for (ByteBuffer b : buffers) {
+                streams.add(new ByteArrayInputStream(b.array(), b.arrayOffset(), b.limit()));
+            }
+            return new FilterInputStream(new SequenceInputStream(Collections.enumeration(streams))) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        body.release();
+                    }
+                    super.close();
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            retain();
+            try {
+                for (ByteBuffer b : buffers) {
+                    out.write(b.array(), b.arrayOffset(), b.limit());
+                }
+            } finally {
+                body.release();
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            if (!sending) {
+                retain();
+                sending = true;
+            }
+            while (true) {
+                if (remaining == null || !remaining.hasRemaining()) {
+                    if (current == buffers.size()) {
+                        encoder.complete();
+                        return;
+                    }
+                    remaining = buffers.get(current++).duplicate();
+                }
+                if (encoder.write(remaining) == 0 && remaining.hasRemaining()) {
+                    // The connection is full; continue when it is writable again
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            current = 0;
+            remaining = null;
+            if (sending) {
+                sending = false;
+                body.release();
+            }
+        }
+
+        private void retain() throws IOException {
+            if (!body.retain()) {
+                throw new IOException("BulkBody was closed before the request was sent");
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A pool of fixed-size byte buffers which {@link BulkBody bulk bodies} are written into, so that a steady
+ * ingest path reuses the same buffers rather than allocating a new body for every bulk request.
+ * <p>
+ * At most {@code maxPooledBuffers} released buffers are kept; others are left to the garbage collector.
+ */
+public class BulkBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize       the size of each buffer, in bytes.
+     * @param maxPooledBuffers the maximum number of released buffers to keep for reuse.
+     */
+    public BulkBufferPool(int bufferSize, int maxPooledBuffers) {
+        checkArgument(bufferSize > 0, "bufferSize must be positive");
+        checkArgument(maxPooledBuffers >= 0, "maxPooledBuffers must not be negative");
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * @return a buffer from the pool, or a new buffer if the pool is empty.
+     */
+    public byte[] acquire() {
+        final byte[] buffer = buffers.poll();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer a buffer acquired from this pool.
+     */
+    public void release(byte[] buffer) {
+        if (buffer.length != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooledBuffers) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the size of each buffer, in bytes.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of buffers currently held by the pool.
+     */
+    public int getPooledCount() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,135 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk request as read by {@link BulkResponseParser}: only the items which failed, with their
+ * positions in the request.
+ */
+public class BulkFailures {
+
+    private final long tookMillis;
+    private final boolean errors;
+    private final int itemCount;
+    private final List<Item> failures;
+
+    BulkFailures(long tookMillis, boolean errors, int itemCount, List<Item> failures) {
+        this.tookMillis = tookMillis;
+        this.errors = errors;
+        this.itemCount = itemCount;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return the time the cluster took to process the request, in milliseconds.
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    /**
+     * @return {@code true} if any item failed.
+     */
+    public boolean hasErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of items in the response, or {@code -1} if the items were not read because none failed.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return the failed items, in request order.
+     */
+    public List<Item> getFailures() {
+        return failures;
+    }
+
+    /**
+     * A failed bulk item.
+     */
+    public static class Item {
+
+        private final int position;
+        private final String opType;
+        private final String index;
+        private final String type;
+        private final String id;
+        private final int status;
+        private final String errorType;
+        private final String errorReason;
+
+        Item(int position, String opType, String index, String type, String id, int status, String errorType,
+             String errorReason) {
+            this.position = position;
+            this.opType = opType;
+            this.index = index;
+            this.type = type;
+            this.id = id;
+            this.status = status;
+            this.errorType = errorType;
+            this.errorReason = errorReason;
+        }
+
+        /**
+         * @return the zero-based position of the item in the request.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the action, such as {@code index} or {@code delete}.
+         */
+        public String getOpType() {
+            return opType;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the HTTP status of the item.
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the type of the error, such as {@code es_rejected_execution_exception}.
+         */
+        public String getErrorType() {
+            return errorType;
+        }
+
+        public String getErrorReason() {
+            return errorReason;
+        }
+
+        /**
+         * @return {@code true} if the item was rejected because the cluster was busy, and may succeed if retried.
+         */
+        public boolean isRetryable() {
+            return status == 429;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{position=" + position + ", opType=" + opType + ", index=" + index + ", id=" + id
+                    + ", status=" + status + ", errorType=" + errorType + ", errorReason=" + errorReason + "}";
+        }
+    }
+}
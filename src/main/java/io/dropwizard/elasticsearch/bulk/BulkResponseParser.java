@@ -0,0 +1,165 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.HttpEntity;
+import org.elasticsearch.client.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the response to a {@code _bulk} request sent with the low-level REST client, keeping only the items which
+ * failed.
+ * <p>
+ * The response is read as a stream. When the response reports {@code "errors": false} before its items, as
+ * Elasticsearch does, the items are not read at all. Otherwise successful items are skipped without being
+ * materialised, so even very large responses produce only a compact list of failures for retrying.
+ *
+ * @see <a href="https://www.elastic.co/guide/en/elasticsearch/reference/6.2/docs-bulk.html">Bulk API</a>
+ */
+public class BulkResponseParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Read the failures from a bulk response. The response entity is consumed.
+     *
+     * @param response the response to a {@code _bulk} request.
+     * @return the failures.
+     * @throws IOException if the response cannot be read or is not a bulk response.
+     */
+    public static BulkFailures parse(Response response) throws IOException {
+        return parse(response.getEntity());
+    }
+
+    /**
+     * Read the failures from a bulk response entity. The entity is consumed.
+     *
+     * @param entity the body of the response to a {@code _bulk} request.
+     * @return the failures.
+     * @throws IOException if the entity cannot be read or is not a bulk response.
+     */
+    public static BulkFailures parse(HttpEntity entity) throws IOException {
+        try (InputStream in = entity.getContent()) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * Read the failures from a bulk response body.
+     *
+     * @param in the body of the response to a {@code _bulk} request.
+     * @return the failures.
+     * @throws IOException if the body cannot be read or is not a bulk response.
+     */
+    public static BulkFailures parse(InputStream in) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            long took = 0;
+            Boolean errors = null;
+            int itemCount = -1;
+            final List<BulkFailures.Item> failures = new ArrayList<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if ("took".equals(field)) {
+                    took = parser.getValueAsLong();
+                } else if ("errors".equals(field)) {
+                    errors = parser.getValueAsBoolean();
+                    if (!errors) {
+                        // Nothing failed, so there is no need to read the items
+                        return new BulkFailures(took, false, itemCount, failures);
+                    }
+                } else if ("items".equals(field)) {
+                    expect(value, JsonToken.START_ARRAY, parser);
+                    itemCount = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        final BulkFailures.Item failure = readItem(parser, itemCount++);
+                        if (failure != null) {
+                            failures.add(failure);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new BulkFailures(took, errors == null ? !failures.isEmpty() : errors, itemCount, failures);
+        }
+    }
+
+    /**
+     * Read one item, such as {@code {"index":{"_index":...,"status":201}}}, positioned at its start.
+     *
+     * @return the failure, or {@code null} if the item succeeded.
+     */
+    private static BulkFailures.Item readItem(JsonParser parser, int position) throws IOException {
+        expect(parser.nextToken(), JsonToken.FIELD_NAME, parser);
+        final String opType = parser.getCurrentName();
+        expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+
+        String index = null;
+        String type = null;
+        String id = null;
+        int status = 0;
+        boolean failed = false;
+        String errorType = null;
+        String errorReason = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            switch (field) {
+                case "_index":
+                    index = parser.getText();
+                    break;
+                case "_type":
+                    type = parser.getText();
+                    break;
+                case "_id":
+                    id = parser.getText();
+                    break;
+                case "status":
+                    status = parser.getIntValue();
+                    break;
+                case "error":
+                    failed = true;
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            final String errorField = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("type".equals(errorField)) {
+                                errorType = parser.getText();
+                            } else if ("reason".equals(errorField)) {
+                                errorReason = parser.getText();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        errorReason = parser.getText();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        expect(parser.nextToken(), JsonToken.END_OBJECT, parser);
+
+        // Items such as deletes of missing documents have a 404 status but are not failures
+        if (failed) {
+            return new BulkFailures.Item(position, opType, index, type, id, status, errorType, errorReason);
+        }
+        return null;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected bulk response: expected " + expected + " but found " + actual
+                    + " at " + parser.getCurrentLocation());
+        }
+    }
+}
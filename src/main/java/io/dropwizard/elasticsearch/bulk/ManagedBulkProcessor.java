@@ -0,0 +1,269 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.elasticsearch.config.EsBulkConfiguration;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link BulkProcessor} bound to the lifecycle of a {@link io.dropwizard.elasticsearch.managed.ManagedEsClient}.
+ * <p>
+ * Actions are flushed when the configured number of actions or bytes has been reached, or when the flush
+ * interval elapses. Closing the processor flushes and waits for any outstanding bulk requests, so documents
+ * are not lost when the service shuts down. If adaptive concurrency is enabled, the number of bulk requests
+ * in flight is adjusted by an {@link AdaptiveBulkLimiter}.
+ * <p>
+ * Items rejected with {@code 429 Too Many Requests} are added to the processor again after a delay from the
+ * configured backoff policy, so only the rejected items are resent. The {@link BulkProcessor}'s own backoff is
+ * not used: in this version it only retries items failed with an {@code EsRejectedExecutionException}, and
+ * items parsed from a REST response carry a generic {@code ElasticsearchException} instead. Retries still
+ * waiting for their delay when the processor is closed are dropped, and counted as rejected.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.bulk}:
+ * <ul>
+ * <li>{@code queued-actions} - actions added but not yet sent</li>
+ * <li>{@code in-flight-bulks} - bulk requests sent but not yet answered</li>
+ * <li>{@code flush-latency} - time taken by each bulk request, including retries</li>
+ * <li>{@code rejected-items} - items rejected by the cluster after all retries</li>
+ * <li>{@code failed-items} - items which failed for any other reason</li>
+ * </ul>
+ */
+public class ManagedBulkProcessor implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManagedBulkProcessor.class);
+
+    private final ThreadPool threadPool;
+    private final BulkProcessor bulkProcessor;
+    private final long closeTimeoutMillis;
+    private final BackoffPolicy backoffPolicy;
+    private final Map<DocWriteRequest<?>, Integer> retries = Collections.synchronizedMap(new IdentityHashMap<>());
+    private volatile boolean closed;
+
+    private final Counter queuedActions;
+    private final Counter inFlightBulks;
+    private final Timer flushLatency;
+    private final Meter rejectedItems;
+    private final Meter failedItems;
+    private final Map<Long, Timer.Context> flushTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new bulk processor sending requests through the given high-level REST client.
+     *
+     * @param client       the high-level REST client to send bulk requests with
+     * @param config       the bulk configuration
+     * @param metrics      the registry the bulk metrics will be added to
+     * @param metricPrefix the prefix for the bulk metric names
+     */
+    public ManagedBulkProcessor(RestHighLevelClient client, EsBulkConfiguration config,
+                                MetricRegistry metrics, String metricPrefix) {
+        this(checkNotNull(client, "RestHighLevelClient must not be null")::bulkAsync, config, metrics, metricPrefix);
+    }
+
+    /**
+     * Create a new bulk processor sending requests with the given consumer, such as a high-level REST
+     * client's {@code bulkAsync} wrapped by a circuit breaker.
+     *
+     * @param consumer     sends each bulk request, notifying the listener it is given
+     * @param config       the bulk configuration
+     * @param metrics      the registry the bulk metrics will be added to
+     * @param metricPrefix the prefix for the bulk metric names
+     */
+    public ManagedBulkProcessor(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, EsBulkConfiguration config,
+                                MetricRegistry metrics, String metricPrefix) {
+        checkNotNull(config, "EsBulkConfiguration must not be null");
+        checkNotNull(metrics, "MetricRegistry must not be null");
+
+        this.queuedActions = metrics.counter(MetricRegistry.name(metricPrefix, "bulk", "queued-actions"));
+        this.inFlightBulks = metrics.counter(MetricRegistry.name(metricPrefix, "bulk", "in-flight-bulks"));
+        this.flushLatency = metrics.timer(MetricRegistry.name(metricPrefix, "bulk", "flush-latency"));
+        this.rejectedItems = metrics.meter(MetricRegistry.name(metricPrefix, "bulk", "rejected-items"));
+        this.failedItems = metrics.meter(MetricRegistry.name(metricPrefix, "bulk", "failed-items"));
+        this.closeTimeoutMillis = config.getCloseTimeoutMillis();
+        this.backoffPolicy = buildBackoffPolicy(config);
+
+        // The ThreadPool is only used to schedule flushes and retries
+        this.threadPool = new ThreadPool(Settings.builder()
+                .put(Node.NODE_NAME_SETTING.getKey(), "dropwizard-bulk-processor")
+                .build());
+
+        // With adaptive concurrency, the processor allows the maximum and the limiter enforces the current limit
+        final BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer = config.isAdaptiveConcurrency()
+                ? new AdaptiveBulkLimiter(consumer, config, metrics, metricPrefix)
+                : consumer;
+        final int concurrentRequests = config.isAdaptiveConcurrency()
+                ? Math.max(config.getMinConcurrentRequests(), config.getMaxConcurrentRequests())
+                : config.getConcurrentRequests();
+
+        final BulkProcessor.Builder builder = new BulkProcessor.Builder(bulkConsumer, new MetricsListener(), threadPool)
+                .setBulkActions(config.getMaxActions())
+                .setBulkSize(new ByteSizeValue(config.getMaxSizeBytes()))
+                .setConcurrentRequests(concurrentRequests)
+                // Rejected items are retried by the MetricsListener instead
+                .setBackoffPolicy(BackoffPolicy.noBackoff());
+        if (config.getFlushIntervalMillis() > 0) {
+            builder.setFlushInterval(TimeValue.timeValueMillis(config.getFlushIntervalMillis()));
+        }
+        this.bulkProcessor = builder.build();
+    }
+
+    /**
+     * Add an index, update or delete request to the next bulk.
+     *
+     * @param request the request to add.
+     * @return this processor.
+     */
+    public ManagedBulkProcessor add(DocWriteRequest<?> request) {
+        queuedActions.inc();
+        bulkProcessor.add(request);
+        return this;
+    }
+
+    /**
+     * Send all queued actions immediately.
+     */
+    public void flush() {
+        bulkProcessor.flush();
+    }
+
+    /**
+     * Flush all queued actions and wait for outstanding bulk requests to complete, up to the
+     * configured close timeout.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (!bulkProcessor.awaitClose(closeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Timed out waiting for {} in-flight bulk requests to complete", inFlightBulks.getCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ThreadPool.terminate(threadPool, closeTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Add a rejected item to the processor again after the backoff delay for its next attempt.
+     *
+     * @return {@code false} if the item has used up its retries, or the processor is closed.
+     */
+    private boolean retry(DocWriteRequest<?> action, int attempts) {
+        final Iterator<TimeValue> delays = backoffPolicy.iterator();
+        for (int i = 0; i < attempts && delays.hasNext(); i++) {
+            delays.next();
+        }
+        if (closed || !delays.hasNext()) {
+            return false;
+        }
+
+        retries.put(action, attempts + 1);
+        queuedActions.inc();
+        try {
+            threadPool.schedule(delays.next(), ThreadPool.Names.SAME, () -> {
+                try {
+                    bulkProcessor.add(action);
+                } catch (IllegalStateException e) {
+                    dropRetry(action);
+                }
+            });
+        } catch (RuntimeException e) {
+            dropRetry(action);
+        }
+        return true;
+    }
+
+    private void dropRetry(DocWriteRequest<?> action) {
+        retries.remove(action);
+        queuedActions.dec();
+        rejectedItems.mark();
+        LOGGER.warn("Dropped a rejected bulk item waiting to be retried because the bulk processor is closed");
+    }
+
+    private static BackoffPolicy buildBackoffPolicy(EsBulkConfiguration config) {
+        final TimeValue initialDelay = TimeValue.timeValueMillis(config.getBackoffInitialDelayMillis());
+        switch (config.getBackoffPolicy()) {
+            case EXPONENTIAL:
+                return BackoffPolicy.exponentialBackoff(initialDelay, config.getBackoffMaxRetries());
+            case CONSTANT:
+                return BackoffPolicy.constantBackoff(initialDelay, config.getBackoffMaxRetries());
+            default:
+                return BackoffPolicy.noBackoff();
+        }
+    }
+
+    private class MetricsListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            queuedActions.dec(request.numberOfActions());
+            inFlightBulks.inc();
+            flushTimers.put(executionId, flushLatency.time());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            completeBulk(executionId);
+            if (!response.hasFailures() && retries.isEmpty()) {
+                return;
+            }
+            for (BulkItemResponse item : response.getItems()) {
+                final DocWriteRequest<?> action = request.requests().get(item.getItemId());
+                final Integer attempts = retries.remove(action);
+                if (item.isFailed()) {
+                    if (item.getFailure().getStatus() != RestStatus.TOO_MANY_REQUESTS) {
+                        failedItems.mark();
+                    } else if (!retry(action, attempts == null ? 0 : attempts)) {
+                        rejectedItems.mark();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            completeBulk(executionId);
+            if (!retries.isEmpty()) {
+                request.requests().forEach(retries::remove);
+            }
+            failedItems.mark(request.numberOfActions());
+            LOGGER.error("Bulk request of {} actions failed", request.numberOfActions(), failure);
+        }
+
+        private void completeBulk(long executionId) {
+            inFlightBulks.dec();
+            final Timer.Context context = flushTimers.remove(executionId);
+            if (context != null) {
+                context.stop();
+            }
+        }
+    }
+}
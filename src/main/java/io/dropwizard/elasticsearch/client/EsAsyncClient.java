@@ -0,0 +1,213 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsAsyncConfiguration;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A non-blocking client which returns {@link CompletableFuture}s, so that request threads need not wait for the
+ * cluster to respond.
+ * <p>
+ * Requests are sent with the REST clients' asynchronous methods. Their futures are completed on a callback executor
+ * rather than on the HTTP client's I/O threads, so dependent stages which block or do heavy work cannot stall other
+ * requests. With {@link EsAsyncConfiguration.ExecutorType#VIRTUAL} each completion runs on its own virtual thread,
+ * which allows very many requests in flight without growing a platform thread pool.
+ * <p>
+ * Requests go through the same circuit breaker as {@code ManagedEsClient}'s blocking methods, and are compressed
+ * by the HTTP client like any other request.
+ */
+public class EsAsyncClient implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EsAsyncClient.class);
+
+    private final RestHighLevelClient client;
+    private final EsCircuitBreaker circuitBreaker;
+    private final ExecutorService callbackExecutor;
+
+    /**
+     * Construct the client.
+     *
+     * @param client           the high-level REST client.
+     * @param circuitBreaker   the circuit breaker to send requests through, or {@code null} for none.
+     * @param callbackExecutor the executor to complete futures on, which is shut down when this client is closed.
+     */
+    public EsAsyncClient(RestHighLevelClient client, EsCircuitBreaker circuitBreaker, ExecutorService callbackExecutor) {
+        this.client = checkNotNull(client, "RestHighLevelClient must not be null");
+        this.circuitBreaker = circuitBreaker;
+        this.callbackExecutor = checkNotNull(callbackExecutor, "ExecutorService must not be null");
+    }
+
+    /**
+     * Create the callback executor described by the configuration. A virtual thread executor is created by
+     * reflection, so that this library still runs on Java 8; if the runtime has no virtual threads, a fixed
+     * pool is created instead.
+     *
+     * @param config the async client configuration.
+     * @return the callback executor.
+     */
+    public static ExecutorService newCallbackExecutor(EsAsyncConfiguration config) {
+        if (config.getExecutor() == EsAsyncConfiguration.ExecutorType.VIRTUAL) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("Virtual threads are not supported by this runtime; using {} platform threads",
+                        config.getThreads());
+            }
+        }
+        return Executors.newFixedThreadPool(config.getThreads(), new ThreadFactoryBuilder()
+                .setNameFormat("elasticsearch-async-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Perform a request with the low-level REST client.
+     *
+     * @param method   the HTTP method.
+     * @param endpoint the endpoint.
+     * @param params   the request parameters.
+     * @param entity   the request body, or {@code null}.
+     * @return a future completed with the response, with any compressed body already decompressed, or with the
+     * failure; responses with error statuses fail with a {@code ResponseException}.
+     */
+    public CompletableFuture<Response> performRequest(String method, String endpoint, Map<String, String> params,
+                                                      HttpEntity entity) {
+        return execute(RequestCategory.of(method, endpoint),
+                listener -> client.getLowLevelClient().performRequestAsync(method, endpoint, params, entity,
+                        new ResponseListener() {
+                            @Override
+                            public void onSuccess(Response response) {
+                                listener.onResponse(response);
+                            }
+
+                            @Override
+                            public void onFailure(Exception e) {
+                                listener.onFailure(e);
+                            }
+                        }));
+    }
+
+    /**
+     * Perform a search.
+     *
+     * @param request the search.
+     * @param headers any extra request headers.
+     * @return a future completed with the response, or with the failure.
+     */
+    public CompletableFuture<SearchResponse> search(SearchRequest request, Header... headers) {
+        return execute(RequestCategory.SEARCH, listener -> client.searchAsync(request, listener, headers));
+    }
+
+    /**
+     * Get a document.
+     *
+     * @param request the get.
+     * @param headers any extra request headers.
+     * @return a future completed with the response, or with the failure.
+     */
+    public CompletableFuture<GetResponse> get(GetRequest request, Header... headers) {
+        return execute(RequestCategory.GET, listener -> client.getAsync(request, listener, headers));
+    }
+
+    /**
+     * Index a document.
+     *
+     * @param request the index request.
+     * @param headers any extra request headers.
+     * @return a future completed with the response, or with the failure.
+     */
+    public CompletableFuture<IndexResponse> index(IndexRequest request, Header... headers) {
+        return execute(RequestCategory.INDEX, listener -> client.indexAsync(request, listener, headers));
+    }
+
+    /**
+     * Perform a bulk request.
+     *
+     * @param request the bulk request.
+     * @param headers any extra request headers.
+     * @return a future completed with the response, which may include failed items, or with the failure.
+     */
+    public CompletableFuture<BulkResponse> bulk(BulkRequest request, Header... headers) {
+        return execute(RequestCategory.BULK, listener -> client.bulkAsync(request, listener, headers));
+    }
+
+    /**
+     * Perform any asynchronous request, such as another method of the high-level REST client:
+     * <pre>
+     * asyncClient.execute(RequestCategory.GET, listener -&gt; client.existsAsync(getRequest, listener));
+     * </pre>
+     *
+     * @param category the category of the request, for the circuit breaker.
+     * @param call     sends the request, notifying the given listener when it completes.
+     * @param <T>      the type of the response.
+     * @return a future completed with the response, or with the failure.
+     */
+    public <T> CompletableFuture<T> execute(RequestCategory category, Consumer<ActionListener<T>> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final ActionListener<T> listener = new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                complete(() -> future.complete(response), future);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                complete(() -> future.completeExceptionally(e), future);
+            }
+        };
+        try {
+            if (circuitBreaker == null) {
+                call.accept(listener);
+            } else {
+                circuitBreaker.executeAsync(category, call, listener);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void complete(Runnable completion, CompletableFuture<?> future) {
+        try {
+            callbackExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // The client is closing, so complete on the calling thread rather than leaving the caller waiting
+            if (!future.isDone()) {
+                completion.run();
+            }
+        }
+    }
+
+    /**
+     * Shut down the callback executor. Futures of requests still in flight are completed on the I/O threads.
+     */
+    @Override
+    public void close() {
+        callbackExecutor.shutdown();
+    }
+}
@@ -0,0 +1,397 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsCircuitBreakerConfiguration;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A circuit breaker and bulkhead for each {@link RequestCategory}, so that a struggling cluster fails requests
+ * quickly instead of tying up the caller's threads until they time out.
+ * <p>
+ * Each category keeps the outcome of its last {@code windowSize} requests. Once at least
+ * {@code minimumRequests} have completed and the proportion of failures reaches
+ * {@code failureRateThreshold}, the breaker opens and requests are rejected with an
+ * {@link EsRequestRejectedException} without being sent. After {@code openDurationMillis} the breaker is
+ * half-open and lets {@code halfOpenProbes} requests through: if they all succeed the breaker closes,
+ * and if any fails it opens again. Independently, if {@code maxConcurrentRequests} is set, requests
+ * beyond that number in flight are rejected.
+ * <p>
+ * Each request only counts towards the state it was admitted in: a request admitted while the breaker
+ * was closed which completes after it has opened, or while it is half-open, is not counted as a probe.
+ * A probe which completes without an outcome, for example because the request threw an {@link Error},
+ * gives its place back to another probe.
+ * <p>
+ * Connection failures, timeouts, {@code 429} and {@code 5xx} responses count as failures; other error
+ * responses, such as {@code 404}, do not.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.breaker.<category>}:
+ * <ul>
+ * <li>{@code state} - the current state of the breaker</li>
+ * <li>{@code in-flight} - requests currently in flight</li>
+ * <li>{@code transitions.open}, {@code transitions.half-open} and {@code transitions.closed} - state changes</li>
+ * <li>{@code rejected.open} and {@code rejected.bulkhead} - requests rejected by the breaker or bulkhead</li>
+ * </ul>
+ */
+public class EsCircuitBreaker {
+
+    /**
+     * The state of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * A request which may throw an {@link IOException}.
+     *
+     * @param <T> the type of the result.
+     */
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    private final Map<RequestCategory, CategoryBreaker> breakers = new EnumMap<>(RequestCategory.class);
+
+    /**
+     * Construct the breakers, one for every request category.
+     *
+     * @param config       the circuit breaker configuration.
+     * @param metrics      the registry to add the breaker metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsCircuitBreaker(EsCircuitBreakerConfiguration config, MetricRegistry metrics, String metricPrefix) {
+        checkNotNull(config, "EsCircuitBreakerConfiguration must not be null");
+        for (RequestCategory category : RequestCategory.values()) {
+            final EsCircuitBreakerConfiguration.Category categoryConfig = config.getCategories().getOrDefault(category, config.getDefaults());
+            breakers.put(category, new CategoryBreaker(category, categoryConfig, metrics,
+                    MetricRegistry.name(metricPrefix, "breaker", category.name().toLowerCase(Locale.ROOT))));
+        }
+    }
+
+    /**
+     * Perform a request if the breaker and bulkhead for its category allow it.
+     *
+     * @param category the category of the request.
+     * @param call     the request.
+     * @param <T>      the type of the result.
+     * @return the result of the request.
+     * @throws EsRequestRejectedException if the request was not permitted.
+     * @throws IOException                if the request failed.
+     */
+    public <T> T execute(RequestCategory category, IOCallable<T> call) throws IOException {
+        final CategoryBreaker breaker = breakers.get(category);
+        final Permit permit = breaker.acquire();
+        try {
+            final T result = call.call();
+            breaker.onSuccess(permit);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            breaker.onError(permit, e);
+            throw e;
+        } finally {
+            breaker.release(permit);
+        }
+    }
+
+    /**
+     * Send an asynchronous request if the breaker and bulkhead for its category allow it. If not, the
+     * listener is failed with an {@link EsRequestRejectedException}.
+     *
+     * @param category the category of the request.
+     * @param call     sends the request, notifying the listener it is given.
+     * @param listener the listener to notify with the result.
+     * @param <T>      the type of the result.
+     */
+    public <T> void executeAsync(RequestCategory category, Consumer<ActionListener<T>> call, ActionListener<T> listener) {
+        final CategoryBreaker breaker = breakers.get(category);
+        final Permit permit;
+        try {
+            permit = breaker.acquire();
+        } catch (EsRequestRejectedException e) {
+            listener.onFailure(e);
+            return;
+        }
+
+        try {
+            call.accept(new ActionListener<T>() {
+                @Override
+                public void onResponse(T response) {
+                    breaker.onSuccess(permit);
+                    breaker.release(permit);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    breaker.onError(permit, e);
+                    breaker.release(permit);
+                    listener.onFailure(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            breaker.onError(permit, e);
+            breaker.release(permit);
+            listener.onFailure(e);
+        } catch (Error e) {
+            breaker.release(permit);
+            throw e;
+        }
+    }
+
+    /**
+     * @param category a request category.
+     * @return the current state of the breaker for the category.
+     */
+    public State getState(RequestCategory category) {
+        return breakers.get(category).currentState();
+    }
+
+    /**
+     * @return the current state of every breaker.
+     */
+    public Map<RequestCategory, State> getStates() {
+        final Map<RequestCategory, State> states = new EnumMap<>(RequestCategory.class);
+        breakers.forEach((category, breaker) -> states.put(category, breaker.currentState()));
+        return states;
+    }
+
+    static boolean isFailure(Throwable t) {
+        if (t instanceof EsRequestRejectedException) {
+            return false;
+        } else if (t instanceof ResponseException) {
+            return isFailureStatus(((ResponseException) t).getResponse().getStatusLine().getStatusCode());
+        } else if (t instanceof ElasticsearchException) {
+            return isFailureStatus(((ElasticsearchException) t).status().getStatus());
+        }
+        return t instanceof IOException;
+    }
+
+    private static boolean isFailureStatus(int status) {
+        return status >= 500 || status == RestStatus.TOO_MANY_REQUESTS.getStatus();
+    }
+
+    /**
+     * The admission of a single request, tagged with the breaker generation it was admitted in.
+     */
+    private static final class Permit {
+        private final long generation;
+        private final boolean probe;
+        private boolean completed;
+        private boolean released;
+
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+    }
+
+    private static class CategoryBreaker {
+        private final RequestCategory category;
+        private final Semaphore bulkhead;
+        private final double failureRateThreshold;
+        private final int minimumRequests;
+        private final long openDurationNanos;
+        private final int halfOpenProbes;
+
+        private final boolean[] outcomes;
+        private int outcomeIndex;
+        private int outcomeCount;
+        private int failureCount;
+
+        private volatile State state = State.CLOSED;
+        private long generation;
+        private long openedAtNanos;
+        private int probesAdmitted;
+        private int probesSucceeded;
+
+        private final Meter toOpen;
+        private final Meter toHalfOpen;
+        private final Meter toClosed;
+        private final Meter rejectedOpen;
+        private final Meter rejectedBulkhead;
+
+        CategoryBreaker(RequestCategory category, EsCircuitBreakerConfiguration.Category config, MetricRegistry metrics, String prefix) {
+            this.category = category;
+            final int maxConcurrent = config.getMaxConcurrentRequests();
+            this.bulkhead = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+            this.failureRateThreshold = config.getFailureRateThreshold();
+            this.minimumRequests = config.getMinimumRequests();
+            this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMillis());
+            this.halfOpenProbes = config.getHalfOpenProbes();
+            this.outcomes = new boolean[config.getWindowSize()];
+
+            this.toOpen = metrics.meter(MetricRegistry.name(prefix, "transitions", "open"));
+            this.toHalfOpen = metrics.meter(MetricRegistry.name(prefix, "transitions", "half-open"));
+            this.toClosed = metrics.meter(MetricRegistry.name(prefix, "transitions", "closed"));
+            this.rejectedOpen = metrics.meter(MetricRegistry.name(prefix, "rejected", "open"));
+            this.rejectedBulkhead = metrics.meter(MetricRegistry.name(prefix, "rejected", "bulkhead"));
+            metrics.gauge(MetricRegistry.name(prefix, "state"), () -> (Gauge<String>) () -> currentState().name());
+            if (bulkhead != null) {
+                metrics.gauge(MetricRegistry.name(prefix, "in-flight"),
+                        () -> (Gauge<Integer>) () -> maxConcurrent - bulkhead.availablePermits());
+            }
+        }
+
+        Permit acquire() throws EsRequestRejectedException {
+            final Permit permit = acquirePermission();
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                returnProbe(permit);
+                rejectedBulkhead.mark();
+                throw new EsRequestRejectedException(category,
+                        "Too many concurrent " + category + " requests to Elasticsearch");
+            }
+            return permit;
+        }
+
+        /**
+         * Release the bulkhead permit of a request, and its probe if it completed without an outcome.
+         * Releasing a permit more than once has no effect.
+         */
+        void release(Permit permit) {
+            synchronized (this) {
+                if (permit.released) {
+                    return;
+                }
+                permit.released = true;
+                if (!permit.completed) {
+                    returnProbe(permit);
+                }
+            }
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+
+        private synchronized Permit acquirePermission() throws EsRequestRejectedException {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                return new Permit(generation, false);
+            } else if (state == State.HALF_OPEN && probesAdmitted < halfOpenProbes) {
+                probesAdmitted++;
+                return new Permit(generation, true);
+            }
+            rejectedOpen.mark();
+            throw new EsRequestRejectedException(category, "Circuit breaker for " + category + " requests is open");
+        }
+
+        private synchronized void returnProbe(Permit permit) {
+            if (permit.probe && permit.generation == generation) {
+                probesAdmitted--;
+            }
+        }
+
+        /**
+         * Mark a request as completed.
+         *
+         * @return {@code true} if its outcome should be counted in the current state.
+         */
+        private boolean complete(Permit permit) {
+            if (permit.completed) {
+                return false;
+            }
+            permit.completed = true;
+            return permit.generation == generation;
+        }
+
+        State currentState() {
+            final State current = state;
+            if (current == State.OPEN) {
+                synchronized (this) {
+                    if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                        return State.HALF_OPEN;
+                    }
+                }
+            }
+            return current;
+        }
+
+        void onError(Permit permit, Exception e) {
+            if (isFailure(e)) {
+                onFailure(permit);
+            } else {
+                onSuccess(permit);
+            }
+        }
+
+        synchronized void onSuccess(Permit permit) {
+            if (!complete(permit)) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                if (++probesSucceeded >= halfOpenProbes) {
+                    transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        }
+
+        synchronized void onFailure(Permit permit) {
+            if (!complete(permit)) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                transition(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (outcomeCount >= minimumRequests && failureCount >= failureRateThreshold * outcomeCount) {
+                    transition(State.OPEN);
+                }
+            }
+        }
+
+        private void record(boolean failure) {
+            if (outcomeCount == outcomes.length) {
+                if (outcomes[outcomeIndex]) {
+                    failureCount--;
+                }
+            } else {
+                outcomeCount++;
+            }
+            outcomes[outcomeIndex] = failure;
+            if (failure) {
+                failureCount++;
+            }
+            outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+        }
+
+        private void transition(State newState) {
+            state = newState;
+            generation++;
+            switch (newState) {
+                case OPEN:
+                    openedAtNanos = System.nanoTime();
+                    toOpen.mark();
+                    break;
+                case HALF_OPEN:
+                    probesAdmitted = 0;
+                    probesSucceeded = 0;
+                    toHalfOpen.mark();
+                    break;
+                default:
+                    outcomeIndex = 0;
+                    outcomeCount = 0;
+                    failureCount = 0;
+                    toClosed.mark();
+            }
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.io.ByteStreams;
+import io.dropwizard.elasticsearch.config.EsCompressionConfiguration;
+import org.apache.http.ContentTooLongException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Gzip compression for every request sent by the REST clients, including those of the high-level client and the
+ * bulk processor.
+ * <p>
+ * Compression is installed on the HTTP client underlying the REST client with {@link #install}. Request bodies at
+ * least as large as the configured threshold are compressed as they are sent, a few kilobytes at a time on the
+ * HTTP client's I/O threads, so large or streaming bodies are never held in memory in full. When response
+ * compression is enabled, {@code Accept-Encoding: gzip} is sent and compressed responses are decompressed before
+ * they are buffered, so callers always see plain JSON. Both the compressed and the decompressed response are held
+ * to the REST client's default response buffer limit of 100MB, and a response beyond it fails with a
+ * {@link ContentTooLongException}, so a small response which inflates to a huge one cannot exhaust the heap.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.compression}:
+ * <ul>
+ * <li>{@code request-ratio} and {@code response-ratio} - compressed size as a percentage of the original</li>
+ * <li>{@code request-cpu} and {@code response-cpu} - CPU time spent compressing and decompressing, only
+ * recorded if the JVM can measure the CPU time of a thread</li>
+ * </ul>
+ */
+public class EsCompression {
+
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 8192;
+    // The buffer limit of the REST client's default HeapBufferedResponseConsumerFactory
+    private static final int RESPONSE_BUFFER_LIMIT = 100 * 1024 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final boolean requestCompression;
+    private final int minRequestSizeBytes;
+    private final boolean responseCompression;
+    private final int responseBufferLimit;
+
+    private final Histogram requestRatio;
+    private final Histogram responseRatio;
+    private final Timer requestCpu;
+    private final Timer responseCpu;
+
+    /**
+     * Construct the compression support.
+     *
+     * @param config       the compression configuration.
+     * @param metrics      the registry to add the compression metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsCompression(EsCompressionConfiguration config, MetricRegistry metrics, String metricPrefix) {
+        this(config, metrics, metricPrefix, RESPONSE_BUFFER_LIMIT);
+    }
+
+    EsCompression(EsCompressionConfiguration config, MetricRegistry metrics, String metricPrefix, int responseBufferLimit) {
+        checkNotNull(config, "EsCompressionConfiguration must not be null");
+        this.responseBufferLimit = responseBufferLimit;
+        this.requestCompression = config.isRequestCompression();
+        this.minRequestSizeBytes = config.getMinRequestSizeBytes();
+        this.responseCompression = config.isResponseCompression();
+
+        final String prefix = MetricRegistry.name(metricPrefix, "compression");
+        this.requestRatio = metrics.histogram(MetricRegistry.name(prefix, "request-ratio"));
+        this.responseRatio = metrics.histogram(MetricRegistry.name(prefix, "response-ratio"));
+        this.requestCpu = metrics.timer(MetricRegistry.name(prefix, "request-cpu"));
+        this.responseCpu = metrics.timer(MetricRegistry.name(prefix, "response-cpu"));
+    }
+
+    /**
+     * Install compression on the builder for the HTTP client underlying a REST client. This should be the last
+     * customization of the builder, as the builder returned only builds the client.
+     *
+     * @param builder the HTTP client builder.
+     * @return a builder for an HTTP client which compresses requests and decompresses responses as configured, or
+     * {@code builder} if compression is not enabled.
+     */
+    public HttpAsyncClientBuilder install(HttpAsyncClientBuilder builder) {
+        if (!requestCompression && !responseCompression) {
+            return builder;
+        }
+        if (responseCompression) {
+            builder.addInterceptorLast((HttpRequestInterceptor) (request, context) -> {
+                if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+                    request.addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+                }
+            });
+        }
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new CompressingHttpAsyncClient(builder.build());
+            }
+        };
+    }
+
+    HttpAsyncRequestProducer compressing(HttpAsyncRequestProducer producer) {
+        return requestCompression ? new CompressingRequestProducer(producer) : producer;
+    }
+
+    <T> HttpAsyncResponseConsumer<T> decompressing(HttpAsyncResponseConsumer<T> consumer) {
+        return responseCompression ? new DecompressingResponseConsumer<>(consumer) : consumer;
+    }
+
+    private boolean shouldCompress(HttpEntity entity) {
+        if (entity == null || entity.getContentEncoding() != null) {
+            return false;
+        }
+        // Bodies of unknown length are always compressed
+        final long length = entity.getContentLength();
+        return length < 0 || length >= minRequestSizeBytes;
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static void record(Timer cpu, Histogram ratio, long cpuNanos, long compressedBytes, long uncompressedBytes) {
+        if (CPU_TIME_SUPPORTED) {
+            cpu.update(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+        if (uncompressedBytes > 0) {
+            ratio.update((int) (compressedBytes * 100 / uncompressedBytes));
+        }
+    }
+
+    /**
+     * Passes every request through the compressing producer and decompressing consumer.
+     */
+    private class CompressingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+        private final CloseableHttpAsyncClient delegate;
+
+        CompressingHttpAsyncClient(CloseableHttpAsyncClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return delegate.isRunning();
+        }
+
+        @Override
+        public void start() {
+            delegate.start();
+        }
+
+        @Override
+        public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                     HttpContext context, FutureCallback<T> callback) {
+            return delegate.execute(compressing(requestProducer), decompressing(responseConsumer), context, callback);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Sends the request with a gzip-encoded copy of its body. The body produced by the delegate is compressed
+     * a buffer at a time, and no more is taken from the delegate until the compressed output has been written.
+     */
+    private class CompressingRequestProducer implements HttpAsyncRequestProducer {
+
+        private final HttpAsyncRequestProducer delegate;
+        private final PendingOutput compressed = new PendingOutput();
+        private final BodyEncoder body = new BodyEncoder();
+
+        private GZIPOutputStream gzip;
+        private boolean bodyCompleted;
+        private long cpuNanos;
+
+        CompressingRequestProducer(HttpAsyncRequestProducer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpHost getTarget() {
+            return delegate.getTarget();
+        }
+
+        @Override
+        public HttpRequest generateRequest() throws IOException, HttpException {
+            final HttpRequest request = delegate.generateRequest();
+            endCompression();
+            if (!(request instanceof HttpEntityEnclosingRequest)
+                    || !shouldCompress(((HttpEntityEnclosingRequest) request).getEntity())) {
+                return request;
+            }
+
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            final BasicHttpEntity compressedEntity = new BasicHttpEntity();
+            compressedEntity.setContentType(entity.getContentType());
+            compressedEntity.setContentEncoding(GZIP);
+            compressedEntity.setChunked(true);
+
+            gzip = new GZIPOutputStream(compressed, BUFFER_SIZE);
+            // The delegate's request is reused if the request is retried on another host, so is left as it is
+            return new CompressedRequest(request, compressedEntity);
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+            if (gzip == null) {
+                delegate.produceContent(encoder, ioctrl);
+                return;
+            }
+
+            final long startCpu = cpuTime();
+            try {
+                if (!compressed.writeTo(encoder)) {
+                    return;
+                }
+                if (!bodyCompleted) {
+                    body.budget = BUFFER_SIZE;
+                    delegate.produceContent(body, ioctrl);
+                    if (body.completed) {
+                        gzip.finish();
+                        bodyCompleted = true;
+                    }
+                    if (!compressed.writeTo(encoder)) {
+                        return;
+                    }
+                }
+            } finally {
+                cpuNanos += cpuTime() - startCpu;
+            }
+
+            if (bodyCompleted) {
+                encoder.complete();
+                record(requestCpu, requestRatio, cpuNanos, compressed.written, body.written);
+                endCompression();
+            }
+        }
+
+        @Override
+        public void requestCompleted(HttpContext context) {
+            delegate.requestCompleted(context);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            delegate.failed(ex);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return delegate.isRepeatable();
+        }
+
+        @Override
+        public void resetRequest() throws IOException {
+            endCompression();
+            delegate.resetRequest();
+        }
+
+        @Override
+        public void close() throws IOException {
+            endCompression();
+            delegate.close();
+        }
+
+        private void endCompression() {
+            if (gzip != null) {
+                try {
+                    // Releases the deflater; anything written to the buffer is discarded below
+                    gzip.close();
+                } catch (IOException e) {
+                    // Writing to the buffer does not fail
+                }
+                gzip = null;
+            }
+            compressed.reset();
+            compressed.written = 0;
+            body.written = 0;
+            body.completed = false;
+            bodyCompleted = false;
+            cpuNanos = 0;
+        }
+
+        /**
+         * Receives the body from the delegate, compressing up to the budget on each call.
+         */
+        private class BodyEncoder implements ContentEncoder {
+            private final byte[] scratch = new byte[BUFFER_SIZE];
+            private int budget;
+            private long written;
+            private boolean completed;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                final int length = Math.min(Math.min(src.remaining(), budget), scratch.length);
+                src.get(scratch, 0, length);
+                gzip.write(scratch, 0, length);
+                budget -= length;
+                written += length;
+                return length;
+            }
+
+            @Override
+            public void complete() {
+                completed = true;
+            }
+
+            @Override
+            public boolean isCompleted() {
+                return completed;
+            }
+        }
+    }
+
+    /**
+     * Compressed output waiting to be written to the connection.
+     */
+    private static class PendingOutput extends ByteArrayOutputStream {
+        private int position;
+        private long written;
+
+        PendingOutput() {
+            super(BUFFER_SIZE);
+        }
+
+        /**
+         * @return {@code true} if all the pending output has been written.
+         */
+        boolean writeTo(ContentEncoder encoder) throws IOException {
+            if (position < count) {
+                final int n = encoder.write(ByteBuffer.wrap(buf, position, count - position));
+                position += n;
+                written += n;
+            }
+            if (position < count) {
+                return false;
+            }
+            reset();
+            return true;
+        }
+
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            position = 0;
+        }
+    }
+
+    /**
+     * A copy of a request with a different body, keeping its request config.
+     */
+    private static class CompressedRequest extends HttpEntityEnclosingRequestBase {
+        private final String method;
+
+        CompressedRequest(HttpRequest request, HttpEntity entity) {
+            this.method = request.getRequestLine().getMethod();
+            setURI(URI.create(request.getRequestLine().getUri()));
+            setHeaders(request.getAllHeaders());
+            if (request instanceof Configurable) {
+                setConfig(((Configurable) request).getConfig());
+            }
+            setEntity(entity);
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    /**
+     * Buffers a gzip-encoded response, then passes its decompressed content to the delegate a buffer at a time,
+     * so the delegate sees a plain response.
+     */
+    private class DecompressingResponseConsumer<T> implements HttpAsyncResponseConsumer<T> {
+
+        private final HttpAsyncResponseConsumer<T> delegate;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private HttpResponse response;
+        private CompressedContent content;
+        private IOControl ioctrl;
+
+        DecompressingResponseConsumer(HttpAsyncResponseConsumer<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void responseReceived(HttpResponse response) throws IOException, HttpException {
+            final HttpEntity entity = response.getEntity();
+            final Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            if (entity == null || encoding == null || !GZIP.equalsIgnoreCase(encoding.getValue())) {
+                delegate.responseReceived(response);
+                return;
+            }
+
+            final long length = entity.getContentLength();
+            if (length > responseBufferLimit) {
+                throw new ContentTooLongException("entity content is too long [" + length +
+                        "] for the configured buffer limit [" + responseBufferLimit + "]");
+            }
+            this.response = response;
+            this.content = new CompressedContent(length > 0 ? (int) length : BUFFER_SIZE);
+        }
+
+        @Override
+        public void consumeContent(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            if (response == null) {
+                delegate.consumeContent(decoder, ioctrl);
+                return;
+            }
+
+            this.ioctrl = ioctrl;
+            while (decoder.read(readBuffer) > 0) {
+                if (content.size() + readBuffer.position() > responseBufferLimit) {
+                    throw new ContentTooLongException("entity content is too long for the configured buffer limit ["
+                            + responseBufferLimit + "]");
+                }
+                content.write(readBuffer.array(), 0, readBuffer.position());
+                readBuffer.clear();
+            }
+        }
+
+        @Override
+        public void responseCompleted(HttpContext context) {
+            if (response == null) {
+                delegate.responseCompleted(context);
+                return;
+            }
+            if (content.size() == 0) {
+                // Such as the response to a HEAD request, which has headers but no body
+                try {
+                    delegate.responseReceived(response);
+                } catch (IOException | HttpException e) {
+                    delegate.failed(e);
+                    return;
+                }
+                delegate.responseCompleted(context);
+                return;
+            }
+
+            final long startCpu = cpuTime();
+            final BasicHttpEntity plain = new BasicHttpEntity();
+            plain.setContentType(response.getEntity().getContentType());
+            response.setEntity(plain);
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+
+            long decompressedBytes = 0;
+            try (InputStream gzip = new GZIPInputStream(content.toInputStream(), BUFFER_SIZE)) {
+                delegate.responseReceived(response);
+                final byte[] chunk = new byte[BUFFER_SIZE];
+                final ChunkDecoder decoder = new ChunkDecoder();
+                int read;
+                while ((read = ByteStreams.read(gzip, chunk, 0, chunk.length)) > 0) {
+                    if (decompressedBytes + read > responseBufferLimit) {
+                        throw new ContentTooLongException("decompressed entity content is too long for the configured "
+                                + "buffer limit [" + responseBufferLimit + "]");
+                    }
+                    decoder.chunk = ByteBuffer.wrap(chunk, 0, read);
+                    passTo(decoder);
+                    decompressedBytes += read;
+                }
+                decoder.completed = true;
+                passTo(decoder);
+            } catch (IOException | HttpException e) {
+                delegate.failed(e);
+                return;
+            }
+
+            record(responseCpu, responseRatio, cpuTime() - startCpu, content.size(), decompressedBytes);
+            content = null;
+            delegate.responseCompleted(context);
+        }
+
+        private void passTo(ChunkDecoder decoder) throws IOException {
+            do {
+                final int remaining = decoder.chunk.remaining();
+                delegate.consumeContent(decoder, ioctrl);
+                if (decoder.chunk.remaining() == remaining && remaining > 0) {
+                    throw new IOException("Response consumer stopped reading the decompressed response");
+                }
+            } while (decoder.chunk.hasRemaining());
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            delegate.failed(ex);
+        }
+
+        @Override
+        public Exception getException() {
+            return delegate.getException();
+        }
+
+        @Override
+        public T getResult() {
+            return delegate.getResult();
+        }
+
+        @Override
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        @Override
+        public void close() throws IOException {
+            content = null;
+            delegate.close();
+        }
+
+        @Override
+        public boolean cancel() {
+            return delegate.cancel();
+        }
+    }
+
+    /**
+     * The compressed body of a response, read back without copying.
+     */
+    private static class CompressedContent extends ByteArrayOutputStream {
+        CompressedContent(int size) {
+            super(size);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    /**
+     * Hands a chunk of decompressed content to the delegate consumer.
+     */
+    private static class ChunkDecoder implements ContentDecoder {
+        private ByteBuffer chunk = ByteBuffer.allocate(0);
+        private boolean completed;
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!chunk.hasRemaining()) {
+                return completed ? -1 : 0;
+            }
+            final int length = Math.min(dst.remaining(), chunk.remaining());
+            final ByteBuffer slice = chunk.duplicate();
+            slice.limit(slice.position() + length);
+            dst.put(slice);
+            chunk.position(chunk.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed && !chunk.hasRemaining();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsHedgingConfiguration;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hedged read requests: if a request has not completed within a delay based on recent response times, a
+ * duplicate is sent and whichever response arrives first is used.
+ * <p>
+ * The REST client sends each request to the next host in turn, so with more than one host the duplicate
+ * goes to a different node from the original. The low-level client in this version cannot cancel a request
+ * once it has been sent, so the slower response is read and discarded rather than cancelled.
+ * <p>
+ * The hedge delay for each category is the configured percentile of the last {@value #WINDOW_SIZE} response
+ * times of original requests, and no less than {@code minDelayMillis}. No hedges are sent until
+ * {@value #MIN_SAMPLES} responses have been seen. Hedges are limited to {@code maxExtraRequestRatio} of
+ * requests: each request earns that fraction of a hedge, and a hedge is only sent if a whole one has been
+ * earned. If the original request fails before the hedge is sent, the failure is returned immediately; once
+ * a hedge has been sent, a failure is only returned if both requests fail.
+ * <p>
+ * Only {@code GET} and {@code POST} requests which are safe to repeat are hedged. Scroll requests are never
+ * hedged, since a repeated request would advance the scroll or open a second scroll context, and neither are
+ * bulk requests.
+ * <p>
+ * Only requests sent with the low-level client are hedged. Searches and gets sent through the high-level
+ * client, and the multi-gets sent by the get batcher, are parsed by the high-level client from its own
+ * response listener and are not hedged.
+ * <p>
+ * A caller waits no longer than the socket timeout for a response, so a node which accepts both attempts of
+ * a request and then never answers cannot block the caller indefinitely.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.hedging.<category>}:
+ * <ul>
+ * <li>{@code fired} - hedges sent</li>
+ * <li>{@code won} - hedges which completed before the original request</li>
+ * <li>{@code budget-exhausted} - hedges not sent because the extra request budget was used up</li>
+ * <li>{@code delay} - the current hedge delay, in milliseconds</li>
+ * </ul>
+ */
+public class EsHedging implements Closeable {
+
+    static final int WINDOW_SIZE = 1024;
+    static final int MIN_SAMPLES = 20;
+
+    private static final long CREDIT = 1000;
+    private static final long MAX_CREDITS = 10 * CREDIT;
+    private static final long DELAY_UPDATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Sends one attempt of a request.
+     */
+    @FunctionalInterface
+    public interface AsyncRequest {
+        /**
+         * Send the request, reporting the result to the given listener.
+         *
+         * @param listener the listener to notify.
+         */
+        void send(ResponseListener listener);
+    }
+
+    private final Map<RequestCategory, CategoryHedging> categories = new EnumMap<>(RequestCategory.class);
+    private final long creditPerRequest;
+    private final AtomicLong credits = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private final long timeoutMillis;
+
+    /**
+     * Construct the hedging support. Only {@link RequestCategory#SEARCH} and {@link RequestCategory#GET}
+     * requests may be hedged.
+     *
+     * @param config        the hedging configuration.
+     * @param metrics       the registry to add the hedging metrics to.
+     * @param metricPrefix  the prefix for the metric names.
+     * @param timeoutMillis the longest time to wait for a response, usually the socket timeout; zero or
+     *                      less waits indefinitely.
+     */
+    public EsHedging(EsHedgingConfiguration config, MetricRegistry metrics, String metricPrefix, long timeoutMillis) {
+        checkNotNull(config, "EsHedgingConfiguration must not be null");
+        this.timeoutMillis = timeoutMillis;
+        this.creditPerRequest = Math.round(config.getMaxExtraRequestRatio() * CREDIT);
+        config.getCategories().forEach((category, categoryConfig) -> {
+            checkArgument(category == RequestCategory.SEARCH || category == RequestCategory.GET,
+                    "Only SEARCH and GET requests can be hedged, not %s", category);
+            categories.put(category, new CategoryHedging(categoryConfig,
+                    MetricRegistry.name(metricPrefix, "hedging", category.name().toLowerCase(Locale.ROOT)), metrics));
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("elasticsearch-hedging-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * @param category a request category.
+     * @return {@code true} if requests in the category are hedged.
+     */
+    public boolean isHedged(RequestCategory category) {
+        return categories.containsKey(category);
+    }
+
+    /**
+     * @param category the category of the request.
+     * @param method   the HTTP method of the request.
+     * @param endpoint the endpoint of the request, with or without query string.
+     * @param params   the request parameters.
+     * @return {@code true} if the request is safe to repeat and its category is hedged.
+     */
+    public boolean isHedged(RequestCategory category, String method, String endpoint, Map<String, String> params) {
+        return isHedged(category) && isRepeatable(method, endpoint, params);
+    }
+
+    static boolean isRepeatable(String method, String endpoint, Map<String, String> params) {
+        if (!"GET".equals(method) && !"POST".equals(method)) {
+            return false;
+        }
+
+        int end = endpoint.indexOf('?');
+        if (end < 0) {
+            end = endpoint.length();
+        }
+        final String path = endpoint.substring(0, end);
+        return !path.contains("/_search/scroll")
+                && !path.contains("/_bulk")
+                && endpoint.indexOf("scroll=", end) < 0
+                && (params == null || !params.containsKey("scroll"));
+    }
+
+    /**
+     * Perform a request, hedging it if its category is hedged.
+     *
+     * @param category the category of the request.
+     * @param request  sends one attempt of the request; called once or twice.
+     * @return the first successful response.
+     * @throws SocketTimeoutException if no attempt completes within the timeout.
+     * @throws IOException            if the request fails.
+     */
+    public Response performRequest(RequestCategory category, AsyncRequest request) throws IOException {
+        final CategoryHedging hedging = categories.get(category);
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        if (hedging == null) {
+            request.send(new AttemptListener(result, null, null));
+        } else {
+            hedging.send(request, result);
+        }
+
+        try {
+            return timeoutMillis > 0 ? result.get(timeoutMillis, TimeUnit.MILLISECONDS) : result.get();
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("No response within " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for response");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Buffer a request body so that each attempt of a hedged request can be given its own copy. Bodies
+     * such as {@code NStringEntity} hold their read position, so one instance cannot be sent by two
+     * requests at once.
+     *
+     * @param entity the request body, or {@code null}.
+     * @return a supplier of new copies of the body, which supplies {@code null} if {@code entity} is null.
+     * @throws IOException if the body cannot be read.
+     */
+    public static Supplier<HttpEntity> copiesOf(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return () -> null;
+        }
+        final byte[] content = EntityUtils.toByteArray(entity);
+        final Header contentType = entity.getContentType();
+        final Header contentEncoding = entity.getContentEncoding();
+        return () -> {
+            final NByteArrayEntity copy = new NByteArrayEntity(content);
+            copy.setContentType(contentType);
+            copy.setContentEncoding(contentEncoding);
+            return copy;
+        };
+    }
+
+    /**
+     * Stop scheduling hedges.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean tryAcquireCredit() {
+        while (true) {
+            final long current = credits.get();
+            if (current < CREDIT) {
+                return false;
+            } else if (credits.compareAndSet(current, current - CREDIT)) {
+                return true;
+            }
+        }
+    }
+
+    private void earnCredit() {
+        credits.accumulateAndGet(creditPerRequest, (current, credit) -> Math.min(current + credit, MAX_CREDITS));
+    }
+
+    private class CategoryHedging {
+        private final double percentile;
+        private final long minDelayNanos;
+        private final Histogram latencies = new Histogram(new SlidingWindowReservoir(WINDOW_SIZE));
+        private final Meter fired;
+        private final Meter won;
+        private final Meter budgetExhausted;
+        private volatile long delayNanos = -1;
+        private volatile long nextDelayUpdateNanos;
+
+        CategoryHedging(EsHedgingConfiguration.Category config, String prefix, MetricRegistry metrics) {
+            this.percentile = config.getPercentile();
+            this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getMinDelayMillis());
+            this.fired = metrics.meter(MetricRegistry.name(prefix, "fired"));
+            this.won = metrics.meter(MetricRegistry.name(prefix, "won"));
+            this.budgetExhausted = metrics.meter(MetricRegistry.name(prefix, "budget-exhausted"));
+            metrics.gauge(MetricRegistry.name(prefix, "delay"),
+                    () -> (Gauge<Double>) () -> delayNanos < 0 ? 0.0 : delayNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        void send(AsyncRequest request, CompletableFuture<Response> result) {
+            earnCredit();
+            final long delay = delayNanos();
+            final AtomicInteger outstanding = new AtomicInteger(1);
+            final long startNanos = System.nanoTime();
+            final ScheduledFuture<?> hedge = delay < 0 ? null : scheduler.schedule(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                if (!tryAcquireCredit()) {
+                    budgetExhausted.mark();
+                    return;
+                }
+                outstanding.incrementAndGet();
+                fired.mark();
+                request.send(new AttemptListener(result, outstanding, won));
+            }, delay, TimeUnit.NANOSECONDS);
+
+            request.send(new AttemptListener(result, outstanding, null) {
+                @Override
+                public void onSuccess(Response response) {
+                    latencies.update(System.nanoTime() - startNanos);
+                    super.onSuccess(response);
+                    cancel(hedge);
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    cancel(hedge);
+                    super.onFailure(exception);
+                }
+            });
+        }
+
+        private void cancel(ScheduledFuture<?> hedge) {
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+        }
+
+        private long delayNanos() {
+            final long now = System.nanoTime();
+            final boolean update = delayNanos < 0 ? latencies.getCount() >= MIN_SAMPLES : now - nextDelayUpdateNanos >= 0;
+            if (update) {
+                nextDelayUpdateNanos = now + DELAY_UPDATE_INTERVAL_NANOS;
+                delayNanos = Math.max(minDelayNanos, (long) latencies.getSnapshot().getValue(percentile));
+            }
+            return delayNanos;
+        }
+    }
+
+    /**
+     * Completes the shared result with the first successful response, or with a failure once every
+     * attempt has failed. A hedge may be sent after the original fails, so a failure of the original
+     * is only final if no hedge has been sent yet.
+     */
+    private static class AttemptListener implements ResponseListener {
+        private final CompletableFuture<Response> result;
+        private final AtomicInteger outstanding;
+        private final Meter wins;
+
+        AttemptListener(CompletableFuture<Response> result, AtomicInteger outstanding, Meter wins) {
+            this.result = result;
+            this.outstanding = outstanding;
+            this.wins = wins;
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            if (result.complete(response) && wins != null) {
+                wins.mark();
+            }
+        }
+
+        @Override
+        public void onFailure(Exception exception) {
+            if (outstanding == null || outstanding.decrementAndGet() <= 0) {
+                result.completeExceptionally(exception);
+            }
+        }
+    }
+}
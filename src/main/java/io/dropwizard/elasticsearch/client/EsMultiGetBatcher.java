@@ -0,0 +1,228 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsMultiGetConfiguration;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Batches single-document gets made concurrently from different threads into {@code _mget} requests.
+ * <p>
+ * The first get of a batch starts a short window; gets made during the window join the batch, which is sent when
+ * the window ends or when it reaches the maximum batch size, whichever is first. Each caller's future is completed
+ * with its own document, or with its own failure.
+ * <p>
+ * Options which apply to a whole {@code _mget} request, such as {@code preference}, {@code realtime} and
+ * {@code refresh}, cannot differ within a batch, so gets which set them are sent on their own.
+ * <p>
+ * Closing the batcher sends the gets already waiting for a batch. Gets made after it is closed, or which cannot be
+ * sent, fail rather than leaving their futures incomplete.
+ * <p>
+ * The size of each batch is recorded in the histogram {@code <prefix>.mget.batch-size}, and the number of gets and
+ * batches in the meters {@code <prefix>.mget.gets} and {@code <prefix>.mget.batches}.
+ */
+public class EsMultiGetBatcher implements Closeable {
+
+    private static final GetRequest DEFAULTS = new GetRequest();
+
+    private final BiConsumer<MultiGetRequest, ActionListener<MultiGetResponse>> consumer;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Histogram batchSize;
+    private final Meter gets;
+    private final Meter batches;
+
+    private List<PendingGet> pending = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Construct the batcher.
+     *
+     * @param consumer     sends a multi-get request, such as {@code restHighLevelClient::multiGetAsync}.
+     * @param config       the batching configuration.
+     * @param metrics      the registry to add the batching metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsMultiGetBatcher(BiConsumer<MultiGetRequest, ActionListener<MultiGetResponse>> consumer,
+                             EsMultiGetConfiguration config, MetricRegistry metrics, String metricPrefix) {
+        this.consumer = checkNotNull(consumer, "Consumer must not be null");
+        checkNotNull(config, "EsMultiGetConfiguration must not be null");
+        this.windowMicros = config.getWindowMicros();
+        this.maxBatchSize = config.getMaxBatchSize();
+        final String prefix = MetricRegistry.name(metricPrefix, "mget");
+        this.batchSize = metrics.histogram(MetricRegistry.name(prefix, "batch-size"));
+        this.gets = metrics.meter(MetricRegistry.name(prefix, "gets"));
+        this.batches = metrics.meter(MetricRegistry.name(prefix, "batches"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("elasticsearch-mget-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Get a document, as part of the next batch.
+     *
+     * @param request the get.
+     * @return a future completed with the document, which may not exist, or with the failure to get it, including
+     * an {@link IllegalStateException} if the batcher has been closed.
+     */
+    public CompletableFuture<GetResponse> get(GetRequest request) {
+        checkNotNull(request, "GetRequest must not be null");
+        gets.mark();
+        final PendingGet get = new PendingGet(request);
+        if (!isBatchable(request)) {
+            if (isClosed()) {
+                get.future.completeExceptionally(closedException());
+            } else {
+                send(Collections.singletonList(get));
+            }
+            return get.future;
+        }
+
+        List<PendingGet> full = null;
+        synchronized (this) {
+            if (closed) {
+                get.future.completeExceptionally(closedException());
+                return get.future;
+            }
+            pending.add(get);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new ArrayList<>();
+            } else if (pending.size() == 1) {
+                final List<PendingGet> batch = pending;
+                try {
+                    scheduler.schedule(() -> flush(batch), windowMicros, TimeUnit.MICROSECONDS);
+                } catch (RejectedExecutionException e) {
+                    pending = new ArrayList<>();
+                    get.future.completeExceptionally(e);
+                }
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return get.future;
+    }
+
+    /**
+     * Send any pending gets and stop the window timer. Gets made afterwards fail.
+     */
+    @Override
+    public void close() {
+        final List<PendingGet> batch;
+        synchronized (this) {
+            closed = true;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+        scheduler.shutdownNow();
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("EsMultiGetBatcher has been closed");
+    }
+
+    private void flush(List<PendingGet> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                // Already sent because it filled up
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        send(batch);
+    }
+
+    private void send(List<PendingGet> batch) {
+        batchSize.update(batch.size());
+        batches.mark();
+        final MultiGetRequest multiGet = new MultiGetRequest();
+        final GetRequest first = batch.get(0).request;
+        multiGet.preference(first.preference());
+        multiGet.realtime(first.realtime());
+        multiGet.refresh(first.refresh());
+        for (PendingGet get : batch) {
+            multiGet.add(item(get.request));
+        }
+
+        try {
+            consumer.accept(multiGet, new ActionListener<MultiGetResponse>() {
+                @Override
+                public void onResponse(MultiGetResponse response) {
+                    final MultiGetItemResponse[] items = response.getResponses();
+                    for (int i = 0; i < batch.size(); i++) {
+                        final CompletableFuture<GetResponse> future = batch.get(i).future;
+                        if (i >= items.length) {
+                            future.completeExceptionally(new IllegalStateException("No response for item " + i + " of _mget"));
+                        } else if (items[i].isFailed()) {
+                            future.completeExceptionally(items[i].getFailure().getFailure());
+                        } else {
+                            future.complete(items[i].getResponse());
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    batch.forEach(get -> get.future.completeExceptionally(e));
+                }
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(get -> get.future.completeExceptionally(e));
+        }
+    }
+
+    private static boolean isBatchable(GetRequest request) {
+        return request.preference() == null
+                && request.realtime() == DEFAULTS.realtime()
+                && request.refresh() == DEFAULTS.refresh();
+    }
+
+    private static MultiGetRequest.Item item(GetRequest request) {
+        return new MultiGetRequest.Item(request.index(), request.type(), request.id())
+                .routing(request.routing())
+                .parent(request.parent())
+                .storedFields(request.storedFields())
+                .fetchSourceContext(request.fetchSourceContext())
+                .version(request.version())
+                .versionType(request.versionType());
+    }
+
+    private static class PendingGet {
+        private final GetRequest request;
+        private final CompletableFuture<GetResponse> future = new CompletableFuture<>();
+
+        private PendingGet(GetRequest request) {
+            this.request = request;
+        }
+    }
+}
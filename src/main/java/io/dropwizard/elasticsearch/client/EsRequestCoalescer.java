@@ -0,0 +1,97 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces identical concurrent read requests, so that when many threads make the same request at once, only one
+ * request is sent and every caller receives its response (or its failure).
+ * <p>
+ * Requests are only shared while in flight; a request made after the shared one has completed is sent again.
+ * Because the parsed response is shared, callers must not modify it.
+ * <p>
+ * The number of requests sent is recorded in the meter {@code <prefix>.coalescing.issued}, and the number which
+ * shared another caller's request in {@code <prefix>.coalescing.coalesced}.
+ */
+public class EsRequestCoalescer {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Meter issued;
+    private final Meter coalesced;
+
+    /**
+     * @param metrics      the registry to add the coalescing metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsRequestCoalescer(MetricRegistry metrics, String metricPrefix) {
+        this.issued = metrics.meter(MetricRegistry.name(metricPrefix, "coalescing", "issued"));
+        this.coalesced = metrics.meter(MetricRegistry.name(metricPrefix, "coalescing", "coalesced"));
+    }
+
+    /**
+     * Perform a request, or wait for an identical request already in flight.
+     *
+     * @param key  identifies the request, such as a {@link RequestKey}. Requests with equal keys must have
+     *             responses of the same type.
+     * @param call performs the request if no identical request is in flight.
+     * @param <T>  the type of the response.
+     * @return the response.
+     * @throws IOException if the request fails, or the thread is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, EsCircuitBreaker.IOCallable<T> call) throws IOException {
+        final CompletableFuture<Object> request = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = inFlight.putIfAbsent(key, request);
+        if (existing != null) {
+            coalesced.mark();
+            return (T) await(existing);
+        }
+
+        issued.mark();
+        try {
+            final T response = call.call();
+            request.complete(response);
+            return response;
+        } catch (IOException | RuntimeException | Error e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, request);
+        }
+    }
+
+    /**
+     * @return the number of distinct requests currently in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Object await(CompletableFuture<Object> request) throws IOException {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted = new InterruptedIOException("Interrupted waiting for coalesced request");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.dropwizard.elasticsearch.client;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not sent because the circuit breaker for its category is open, or because its
+ * category already has the maximum number of requests in flight.
+ */
+public class EsRequestRejectedException extends IOException {
+
+    private final RequestCategory category;
+
+    public EsRequestRejectedException(RequestCategory category, String message) {
+        super(message);
+        this.category = category;
+    }
+
+    /**
+     * @return the category of the rejected request.
+     */
+    public RequestCategory getCategory() {
+        return category;
+    }
+}
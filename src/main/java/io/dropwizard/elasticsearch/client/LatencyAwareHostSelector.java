@@ -0,0 +1,268 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsNodeSelectionConfiguration;
+import io.dropwizard.elasticsearch.util.HttpRouteHelper;
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.HostsSniffer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Steers REST client traffic away from slow hosts.
+ * <p>
+ * The low-level {@link RestClient} sends requests to each of its hosts in turn, with no way to choose a host
+ * per request. Instead, this listener keeps an exponentially weighted moving average of the response time of
+ * each host, and periodically gives the client only the hosts whose score is within
+ * {@code slowHostRatio} (plus {@code toleranceMillis}) of the best. A host's score is its average
+ * response time multiplied by one more than its number of in-flight requests, taken from the connection
+ * pool. At least {@code minHosts} hosts are always selected so that the client can still retry on another
+ * host, and a host left out for longer than {@code probeIntervalMillis} is selected again for one interval
+ * so that its average is refreshed. Hosts with no samples are always selected. The client's hosts are only
+ * replaced when the selection changes, since doing so also clears its list of dead hosts.
+ * <p>
+ * When the sniffer is enabled, its {@link HostsSniffer} must be wrapped with {@link #wrap(HostsSniffer)} so
+ * that sniffed hosts are filtered in the same way.
+ * <p>
+ * The following gauges are registered below {@code <prefix>.selector}:
+ * <ul>
+ * <li>{@code selected-hosts} - the number of hosts currently given to the client</li>
+ * <li>{@code hosts.<host:port>.latency}, {@code .in-flight}, {@code .score} and {@code .selected} - per host</li>
+ * </ul>
+ */
+public class LatencyAwareHostSelector implements RequestListener, Closeable {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final EsNodeSelectionConfiguration config;
+    private final ToIntFunction<HttpHost> inFlight;
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final ConcurrentMap<HttpHost, HostStats> stats = new ConcurrentHashMap<>();
+    private final Set<HttpHost> registeredHosts = ConcurrentHashMap.newKeySet();
+
+    private volatile List<HttpHost> allHosts;
+    private volatile Set<HttpHost> selectedHosts;
+    private RestClient client;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Create a selector which reads in-flight request counts from the REST client's connection pool.
+     *
+     * @param config            the node selection configuration.
+     * @param connectionManager the connection manager used by the REST client.
+     * @param metrics           the registry to add the selector gauges to.
+     * @param metricPrefix      the prefix for the metric names.
+     * @param hosts             the initially configured hosts.
+     */
+    public LatencyAwareHostSelector(EsNodeSelectionConfiguration config, PoolingNHttpClientConnectionManager connectionManager,
+                                    MetricRegistry metrics, String metricPrefix, List<HttpHost> hosts) {
+        this(config, host -> connectionManager.getStats(HttpRouteHelper.routeTo(host)).getLeased(),
+                metrics, metricPrefix, hosts);
+    }
+
+    LatencyAwareHostSelector(EsNodeSelectionConfiguration config, ToIntFunction<HttpHost> inFlight,
+                             MetricRegistry metrics, String metricPrefix, List<HttpHost> hosts) {
+        this.config = checkNotNull(config, "EsNodeSelectionConfiguration must not be null");
+        this.inFlight = inFlight;
+        this.metrics = checkNotNull(metrics, "MetricRegistry must not be null");
+        this.prefix = MetricRegistry.name(metricPrefix, "selector");
+        this.allHosts = new ArrayList<>(hosts);
+        this.selectedHosts = new HashSet<>(hosts);
+        hosts.forEach(this::statsFor);
+        metrics.gauge(MetricRegistry.name(prefix, "selected-hosts"), () -> (Gauge<Integer>) () -> selectedHosts.size());
+    }
+
+    /**
+     * Start updating the hosts used by the given client.
+     *
+     * @param restClient the client to update.
+     */
+    public synchronized void start(RestClient restClient) {
+        checkState(executor == null, "Host selector has already been started");
+        this.client = checkNotNull(restClient);
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("elasticsearch-host-selector-%d")
+                .setDaemon(true)
+                .build());
+        executor.scheduleWithFixedDelay(() -> update(System.nanoTime()),
+                config.getUpdateIntervalMillis(), config.getUpdateIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wrap a hosts sniffer so that the hosts it finds are filtered by this selector before being given to
+     * the client.
+     *
+     * @param delegate the sniffer to wrap.
+     * @return a hosts sniffer returning the selected subset of the sniffed hosts.
+     */
+    public HostsSniffer wrap(HostsSniffer delegate) {
+        checkNotNull(delegate);
+        return () -> {
+            final List<HttpHost> sniffed = delegate.sniffHosts();
+            if (sniffed.isEmpty()) {
+                return sniffed;
+            }
+            return setAllHosts(sniffed, System.nanoTime());
+        };
+    }
+
+    @Override
+    public void onResponse(HttpHost host, RequestCategory category, int statusCode, long durationNanos,
+                           long requestBytes, long responseBytes) {
+        if (host != null) {
+            statsFor(host).record(durationNanos / NANOS_PER_MILLI);
+        }
+    }
+
+    @Override
+    public void onFailure(HttpHost host) {
+        statsFor(host).record(config.getFailurePenaltyMillis());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    synchronized List<HttpHost> setAllHosts(List<HttpHost> hosts, long nowNanos) {
+        allHosts = new ArrayList<>(hosts);
+        stats.keySet().retainAll(hosts);
+        hosts.forEach(this::statsFor);
+        final List<HttpHost> selected = select(nowNanos);
+        selectedHosts = new HashSet<>(selected);
+        return selected;
+    }
+
+    synchronized void update(long nowNanos) {
+        final List<HttpHost> selected = select(nowNanos);
+        final Set<HttpHost> selectedSet = new HashSet<>(selected);
+        if (!selectedSet.equals(selectedHosts)) {
+            selectedHosts = selectedSet;
+            if (client != null) {
+                client.setHosts(selected.toArray(new HttpHost[selected.size()]));
+            }
+        }
+    }
+
+    Set<HttpHost> getSelectedHosts() {
+        return Collections.unmodifiableSet(selectedHosts);
+    }
+
+    private List<HttpHost> select(long nowNanos) {
+        final List<HttpHost> hosts = allHosts;
+        double best = Double.MAX_VALUE;
+        for (HttpHost host : hosts) {
+            final HostStats hostStats = statsFor(host);
+            if (hostStats.hasSamples()) {
+                best = Math.min(best, score(host, hostStats));
+            }
+        }
+        if (best == Double.MAX_VALUE) {
+            return hosts;
+        }
+
+        final double threshold = best * config.getSlowHostRatio() + config.getToleranceMillis();
+        final long probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getProbeIntervalMillis());
+        final List<HttpHost> excluded = new ArrayList<>();
+        final Set<HttpHost> selected = new HashSet<>();
+        for (HttpHost host : hosts) {
+            final HostStats hostStats = statsFor(host);
+            if (!hostStats.hasSamples() || score(host, hostStats) <= threshold
+                    || nowNanos - hostStats.lastSelectedNanos >= probeIntervalNanos) {
+                selected.add(host);
+            } else {
+                excluded.add(host);
+            }
+        }
+
+        // Keep enough hosts for the client to retry on
+        excluded.sort(Comparator.comparingDouble(host -> score(host, statsFor(host))));
+        for (int i = 0; selected.size() < Math.min(config.getMinHosts(), hosts.size()); i++) {
+            selected.add(excluded.get(i));
+        }
+
+        final List<HttpHost> ordered = new ArrayList<>(selected.size());
+        for (HttpHost host : hosts) {
+            if (selected.contains(host)) {
+                statsFor(host).lastSelectedNanos = nowNanos;
+                ordered.add(host);
+            }
+        }
+        return ordered;
+    }
+
+    private double score(HttpHost host, HostStats hostStats) {
+        return hostStats.latencyMillis * (1 + inFlight.applyAsInt(host));
+    }
+
+    private HostStats statsFor(HttpHost host) {
+        HostStats hostStats = stats.get(host);
+        if (hostStats == null) {
+            hostStats = new HostStats(System.nanoTime());
+            final HostStats existing = stats.putIfAbsent(host, hostStats);
+            if (existing != null) {
+                hostStats = existing;
+            }
+            registerGauges(host);
+        }
+        return hostStats;
+    }
+
+    private void registerGauges(HttpHost host) {
+        // Hosts dropped by the sniffer keep their gauges, reporting zero, in case they come back
+        if (registeredHosts.add(host)) {
+            final String hostPrefix = MetricRegistry.name(prefix, "hosts", host.toHostString());
+            metrics.gauge(MetricRegistry.name(hostPrefix, "latency"), () -> (Gauge<Double>) () -> {
+                final HostStats hostStats = stats.get(host);
+                return hostStats == null ? 0.0 : hostStats.latencyMillis;
+            });
+            metrics.gauge(MetricRegistry.name(hostPrefix, "in-flight"), () -> (Gauge<Integer>) () -> inFlight.applyAsInt(host));
+            metrics.gauge(MetricRegistry.name(hostPrefix, "score"), () -> (Gauge<Double>) () -> {
+                final HostStats hostStats = stats.get(host);
+                return hostStats == null ? 0.0 : score(host, hostStats);
+            });
+            metrics.gauge(MetricRegistry.name(hostPrefix, "selected"), () -> (Gauge<Integer>) () -> selectedHosts.contains(host) ? 1 : 0);
+        }
+    }
+
+    private class HostStats {
+        private volatile double latencyMillis;
+        private volatile long samples;
+        private volatile long lastSelectedNanos;
+
+        HostStats(long nowNanos) {
+            this.lastSelectedNanos = nowNanos;
+        }
+
+        boolean hasSamples() {
+            return samples > 0;
+        }
+
+        synchronized void record(double sampleMillis) {
+            latencyMillis = samples == 0 ? sampleMillis : latencyMillis + config.getEwmaAlpha() * (sampleMillis - latencyMillis);
+            samples++;
+        }
+    }
+}
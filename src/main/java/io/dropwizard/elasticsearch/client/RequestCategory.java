@@ -0,0 +1,77 @@
+package io.dropwizard.elasticsearch.client;
+
+/**
+ * Broad categories of Elasticsearch requests, derived from the HTTP method and endpoint.
+ */
+public enum RequestCategory {
+    SEARCH, BULK, GET, INDEX, CLUSTER;
+
+    /**
+     * Work out the category of a request. The endpoint is scanned in place so that categorising a request
+     * does not allocate.
+     *
+     * @param method the HTTP method.
+     * @param uri    the request URI, with or without query string.
+     * @return the category of the request.
+     */
+    public static RequestCategory of(String method, String uri) {
+        int end = uri.indexOf('?');
+        if (end < 0) {
+            end = uri.length();
+        }
+
+        if (contains(uri, "/_bulk", end)) {
+            return BULK;
+        } else if (contains(uri, "/_search", end) || contains(uri, "/_msearch", end) || contains(uri, "/_count", end)) {
+            return SEARCH;
+        } else if (contains(uri, "/_mget", end) || contains(uri, "/_source", end)) {
+            return GET;
+        } else if (contains(uri, "/_update", end) || contains(uri, "/_delete_by_query", end) || contains(uri, "/_create", end)) {
+            return INDEX;
+        } else if (contains(uri, "/_doc", end)) {
+            return isRead(method) ? GET : INDEX;
+        } else if (contains(uri, "/_", end) || isRoot(uri, end)) {
+            return CLUSTER;
+        } else if (isRead(method) && segments(uri, end) >= 3) {
+            return GET;
+        } else if (segments(uri, end) >= 2) {
+            return INDEX;
+        } else {
+            // Index-level operations, such as creating or checking an index
+            return CLUSTER;
+        }
+    }
+
+    private static boolean isRead(String method) {
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static boolean contains(String uri, String token, int end) {
+        final int index = uri.indexOf(token);
+        return index >= 0 && index < end;
+    }
+
+    private static boolean isRoot(String uri, int end) {
+        return end == 0 || (end == 1 && uri.charAt(0) == '/');
+    }
+
+    private static int segments(String uri, int end) {
+        int start = uri.indexOf("://");
+        start = start < 0 ? 0 : uri.indexOf('/', start + 3);
+        if (start < 0) {
+            return 0;
+        }
+
+        int count = 0;
+        boolean inSegment = false;
+        for (int i = start; i < end; i++) {
+            if (uri.charAt(i) == '/') {
+                inSegment = false;
+            } else if (!inSegment) {
+                inSegment = true;
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,115 @@
+package io.dropwizard.elasticsearch.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.RequestLine;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.RestClient;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hooks into the HTTP client underlying a {@link RestClient}, passing request, response and failure
+ * events to any registered {@link RequestListener}s.
+ * <p>
+ * This is registered as both the request and response interceptor of the HTTP client, and as the
+ * {@link RestClient.FailureListener} of the REST client. Other failure listeners (such as the sniffer's)
+ * can be chained through {@link #addFailureListener(RestClient.FailureListener)}. When no listeners are
+ * registered the interceptors return immediately.
+ */
+public class RequestEventDispatcher extends RestClient.FailureListener
+        implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    static final String START_NANOS_ATTRIBUTE = RequestEventDispatcher.class.getName() + ".startNanos";
+    static final String CATEGORY_ATTRIBUTE = RequestEventDispatcher.class.getName() + ".category";
+
+    private volatile RequestListener[] listeners = new RequestListener[0];
+    private volatile RestClient.FailureListener[] failureListeners = new RestClient.FailureListener[0];
+
+    /**
+     * Add a listener to be notified of request events.
+     *
+     * @param listener the listener.
+     */
+    public synchronized void addListener(RequestListener listener) {
+        checkNotNull(listener);
+        final RequestListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Add a REST client failure listener to be notified when a host fails.
+     *
+     * @param listener the failure listener.
+     */
+    public synchronized void addFailureListener(RestClient.FailureListener listener) {
+        checkNotNull(listener);
+        final RestClient.FailureListener[] updated = Arrays.copyOf(failureListeners, failureListeners.length + 1);
+        updated[failureListeners.length] = listener;
+        failureListeners = updated;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        final RequestListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+
+        final RequestLine requestLine = request.getRequestLine();
+        final RequestCategory category = RequestCategory.of(requestLine.getMethod(), requestLine.getUri());
+        final HttpHost host = (HttpHost) context.getAttribute(HttpCoreContext.HTTP_TARGET_HOST);
+        context.setAttribute(CATEGORY_ATTRIBUTE, category);
+        context.setAttribute(START_NANOS_ATTRIBUTE, System.nanoTime());
+
+        for (RequestListener listener : current) {
+            listener.onRequest(host, category);
+        }
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        final Long startNanos = (Long) context.getAttribute(START_NANOS_ATTRIBUTE);
+        final RequestListener[] current = listeners;
+        if (startNanos == null || current.length == 0) {
+            return;
+        }
+
+        final long durationNanos = System.nanoTime() - startNanos;
+        final RequestCategory category = (RequestCategory) context.getAttribute(CATEGORY_ATTRIBUTE);
+        final HttpHost host = (HttpHost) context.getAttribute(HttpCoreContext.HTTP_TARGET_HOST);
+        final HttpRequest request = (HttpRequest) context.getAttribute(HttpCoreContext.HTTP_REQUEST);
+        final long requestBytes = request instanceof HttpEntityEnclosingRequest
+                ? contentLength(((HttpEntityEnclosingRequest) request).getEntity())
+                : 0;
+        final long responseBytes = contentLength(response.getEntity());
+        final int statusCode = response.getStatusLine().getStatusCode();
+
+        for (RequestListener listener : current) {
+            listener.onResponse(host, category, statusCode, durationNanos, requestBytes, responseBytes);
+        }
+    }
+
+    @Override
+    public void onFailure(HttpHost host) {
+        for (RequestListener listener : listeners) {
+            listener.onFailure(host);
+        }
+        for (RestClient.FailureListener listener : failureListeners) {
+            listener.onFailure(host);
+        }
+    }
+
+    private static long contentLength(HttpEntity entity) {
+        return entity == null ? 0 : entity.getContentLength();
+    }
+}
@@ -0,0 +1,99 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.google.common.hash.Hashing;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Identifies a read request by everything which affects its response, so that identical requests built separately
+ * have equal keys. Search sources are represented by a hash of their serialized form.
+ */
+public final class RequestKey {
+
+    private final String action;
+    private final List<String> indices;
+    private final List<Object> parts;
+    private final int hashCode;
+
+    private RequestKey(String action, String[] indices, Object... parts) {
+        this.action = action;
+        this.indices = Collections.unmodifiableList(Arrays.asList(indices));
+        this.parts = Arrays.asList(parts);
+        this.hashCode = 31 * (31 * action.hashCode() + this.indices.hashCode()) + this.parts.hashCode();
+    }
+
+    /**
+     * @param request a search.
+     * @return the key of the search.
+     */
+    public static RequestKey of(SearchRequest request) {
+        return new RequestKey("search", request.indices(),
+                Arrays.asList(request.types()),
+                request.routing(),
+                request.preference(),
+                request.searchType(),
+                request.requestCache(),
+                indicesOptions(request.indicesOptions()),
+                request.scroll() == null ? null : request.scroll().keepAlive(),
+                Hashing.murmur3_128().hashString(request.source() == null ? "" : request.source().toString(),
+                        StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param request a single-document get.
+     * @return the key of the get.
+     */
+    public static RequestKey of(GetRequest request) {
+        return new RequestKey("get", request.indices(),
+                request.type(),
+                request.id(),
+                request.routing(),
+                request.parent(),
+                request.preference(),
+                request.realtime(),
+                request.refresh(),
+                request.storedFields() == null ? null : Arrays.asList(request.storedFields()),
+                request.fetchSourceContext(),
+                request.version(),
+                request.versionType());
+    }
+
+    private static List<Boolean> indicesOptions(IndicesOptions options) {
+        return Arrays.asList(options.ignoreUnavailable(), options.allowNoIndices(), options.expandWildcardsOpen(),
+                options.expandWildcardsClosed(), options.allowAliasesToMultipleIndices(), options.forbidClosedIndices(),
+                options.ignoreAliases());
+    }
+
+    /**
+     * @return the indices the request reads from.
+     */
+    public List<String> getIndices() {
+        return indices;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RequestKey key = (RequestKey) o;
+        return hashCode == key.hashCode
+                && action.equals(key.action)
+                && indices.equals(key.indices)
+                && parts.equals(key.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
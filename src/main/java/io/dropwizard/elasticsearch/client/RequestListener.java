@@ -0,0 +1,41 @@
+package io.dropwizard.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+/**
+ * Receives notifications about each HTTP request issued by the REST client. Listeners are called on the
+ * IO reactor threads, so implementations must be thread-safe and must not block.
+ */
+public interface RequestListener {
+
+    /**
+     * Called when a request is about to be sent.
+     *
+     * @param host     the target host, or {@code null} if unknown.
+     * @param category the category of the request.
+     */
+    default void onRequest(HttpHost host, RequestCategory category) {
+    }
+
+    /**
+     * Called when the response headers for a request have been received.
+     *
+     * @param host          the target host, or {@code null} if unknown.
+     * @param category      the category of the request.
+     * @param statusCode    the HTTP status code of the response.
+     * @param durationNanos the time between sending the request and receiving the response.
+     * @param requestBytes  the size of the request body, or {@code -1} if unknown.
+     * @param responseBytes the size of the response body, or {@code -1} if unknown.
+     */
+    default void onResponse(HttpHost host, RequestCategory category, int statusCode, long durationNanos,
+                            long requestBytes, long responseBytes) {
+    }
+
+    /**
+     * Called when a request to a host has failed and the host has been marked as dead.
+     *
+     * @param host the failed host.
+     */
+    default void onFailure(HttpHost host) {
+    }
+}
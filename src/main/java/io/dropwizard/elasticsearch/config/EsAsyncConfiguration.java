@@ -0,0 +1,42 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration for the {@code CompletableFuture} based client returned by {@code ManagedEsClient.getAsyncClient()}.
+ */
+public class EsAsyncConfiguration {
+
+    /**
+     * The executor that completes futures, and so runs their dependent stages.
+     */
+    public enum ExecutorType {
+        /**
+         * A fixed pool of {@code threads} platform threads.
+         */
+        FIXED,
+        /**
+         * A new virtual thread for each completion, on runtimes which support virtual threads. Other runtimes
+         * fall back to {@link #FIXED}.
+         */
+        VIRTUAL
+    }
+
+    @JsonProperty
+    @NotNull
+    private ExecutorType executor = ExecutorType.FIXED;
+    @JsonProperty
+    @Min(1)
+    private int threads = 8;
+
+    public ExecutorType getExecutor() {
+        return executor;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+}
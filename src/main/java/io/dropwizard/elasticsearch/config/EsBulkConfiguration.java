@@ -0,0 +1,136 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration for the managed bulk processor created alongside the REST client.
+ */
+public class EsBulkConfiguration {
+
+    /**
+     * The retry strategy applied to bulk items rejected by the cluster.
+     * <p>
+     * The bulk processor's own backoff in this version of Elasticsearch only retries rejections thrown on the
+     * node, and the items of a response parsed by the REST client never match that, so it is not used.
+     * {@code ManagedBulkProcessor} adds items rejected with {@code 429 Too Many Requests} back to the processor
+     * itself, waiting the delays of this policy.
+     */
+    public enum BackoffPolicyType {
+        EXPONENTIAL, CONSTANT, NONE
+    }
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    private int maxActions = 1000;
+    @JsonProperty
+    private long maxSizeBytes = 5 * 1024 * 1024;
+    @JsonProperty
+    @Min(0)
+    private long flushIntervalMillis = 5000;
+    @JsonProperty
+    @Min(0)
+    private int concurrentRequests = 1;
+    @JsonProperty
+    @NotNull
+    private BackoffPolicyType backoffPolicy = BackoffPolicyType.EXPONENTIAL;
+    @JsonProperty
+    @Min(0)
+    private long backoffInitialDelayMillis = 50;
+    @JsonProperty
+    @Min(0)
+    private int backoffMaxRetries = 8;
+    @JsonProperty
+    @Min(0)
+    private long closeTimeoutMillis = 30000;
+    @JsonProperty
+    private boolean adaptiveConcurrency = false;
+    @JsonProperty
+    @Min(1)
+    private int minConcurrentRequests = 1;
+    @JsonProperty
+    @Min(1)
+    private int maxConcurrentRequests = 8;
+    @JsonProperty
+    @DecimalMin("1.0")
+    private double latencyTolerance = 2.0;
+    @JsonProperty
+    @DecimalMin("0.1")
+    @DecimalMax("0.95")
+    private double decreaseFactor = 0.5;
+    @JsonProperty
+    @Min(1024)
+    private int bufferSizeBytes = 64 * 1024;
+    @JsonProperty
+    @Min(0)
+    private int maxPooledBuffers = 256;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxActions() {
+        return maxActions;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public BackoffPolicyType getBackoffPolicy() {
+        return backoffPolicy;
+    }
+
+    public long getBackoffInitialDelayMillis() {
+        return backoffInitialDelayMillis;
+    }
+
+    public int getBackoffMaxRetries() {
+        return backoffMaxRetries;
+    }
+
+    public long getCloseTimeoutMillis() {
+        return closeTimeoutMillis;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public int getMinConcurrentRequests() {
+        return minConcurrentRequests;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public int getBufferSizeBytes() {
+        return bufferSizeBytes;
+    }
+
+    public int getMaxPooledBuffers() {
+        return maxPooledBuffers;
+    }
+}
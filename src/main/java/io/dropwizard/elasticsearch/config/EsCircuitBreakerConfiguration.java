@@ -0,0 +1,103 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import io.dropwizard.validation.ValidationMethod;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Configuration for the circuit breaker and bulkhead guarding requests sent through {@code ManagedEsClient}.
+ */
+public class EsCircuitBreakerConfiguration {
+
+    /**
+     * Circuit breaker and bulkhead limits for a single request category.
+     */
+    public static class Category {
+        @JsonProperty
+        @Min(0)
+        private int maxConcurrentRequests = 0;
+        @JsonProperty
+        @DecimalMin("0.01")
+        @DecimalMax("1.0")
+        private double failureRateThreshold = 0.5;
+        @JsonProperty
+        @Min(1)
+        private int minimumRequests = 20;
+        @JsonProperty
+        @Min(1)
+        private int windowSize = 100;
+        @JsonProperty
+        @Min(0)
+        private long openDurationMillis = 10000;
+        @JsonProperty
+        @Min(1)
+        private int halfOpenProbes = 3;
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public int getMinimumRequests() {
+            return minimumRequests;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public long getOpenDurationMillis() {
+            return openDurationMillis;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        /**
+         * Only the last {@code windowSize} outcomes are kept, so a breaker needing more could never open.
+         *
+         * @return {@code true} if {@code minimumRequests} fits in the window.
+         */
+        @ValidationMethod(message = "minimumRequests must not be greater than windowSize")
+        @JsonIgnore
+        public boolean isMinimumRequestsWithinWindow() {
+            return minimumRequests <= windowSize;
+        }
+    }
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    @Valid
+    @NotNull
+    private Category defaults = new Category();
+    @JsonProperty
+    @Valid
+    @NotNull
+    private Map<RequestCategory, Category> categories = Collections.emptyMap();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Category getDefaults() {
+        return defaults;
+    }
+
+    public Map<RequestCategory, Category> getCategories() {
+        return categories;
+    }
+}
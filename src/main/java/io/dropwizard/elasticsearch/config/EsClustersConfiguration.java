@@ -0,0 +1,53 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.validation.ValidationMethod;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.Valid;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Configuration for several named Elasticsearch clusters, each with its own {@link EsConfiguration}, and for which
+ * clusters reads and writes are routed to.
+ */
+public class EsClustersConfiguration {
+
+    @JsonProperty
+    @Valid
+    @NotEmpty
+    private Map<String, EsConfiguration> clusters = Collections.emptyMap();
+
+    @JsonProperty
+    private String readCluster;
+
+    @JsonProperty
+    private String writeCluster;
+
+    public Map<String, EsConfiguration> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return the name of the cluster to read from, or {@code null} if not configured.
+     */
+    public String getReadCluster() {
+        return readCluster;
+    }
+
+    /**
+     * @return the name of the cluster to write to, or {@code null} if not configured.
+     */
+    public String getWriteCluster() {
+        return writeCluster;
+    }
+
+    @ValidationMethod(message = "readCluster and writeCluster must name configured clusters")
+    @JsonIgnore
+    public boolean isValidRouting() {
+        return (readCluster == null || clusters.containsKey(readCluster))
+                && (writeCluster == null || clusters.containsKey(writeCluster));
+    }
+}
@@ -0,0 +1,17 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for coalescing identical concurrent reads made with {@code ManagedEsClient.search()} and
+ * {@code ManagedEsClient.get()}.
+ */
+public class EsCoalescingConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
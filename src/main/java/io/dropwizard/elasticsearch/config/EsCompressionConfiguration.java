@@ -0,0 +1,31 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for gzip compression of requests and responses sent by the REST clients of {@code ManagedEsClient}.
+ */
+public class EsCompressionConfiguration {
+
+    @JsonProperty
+    private boolean requestCompression = false;
+    @JsonProperty
+    @Min(0)
+    private int minRequestSizeBytes = 1024;
+    @JsonProperty
+    private boolean responseCompression = false;
+
+    public boolean isRequestCompression() {
+        return requestCompression;
+    }
+
+    public int getMinRequestSizeBytes() {
+        return minRequestSizeBytes;
+    }
+
+    public boolean isResponseCompression() {
+        return responseCompression;
+    }
+}
@@ -6,6 +6,7 @@ import com.google.common.net.HostAndPort;
 import io.dropwizard.validation.ValidationMethod;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +40,76 @@ public class EsConfiguration {
     @JsonProperty
     private EsSnifferConfiguration sniffer = new EsSnifferConfiguration();
 
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsBulkConfiguration bulk = new EsBulkConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsHttpConfiguration http = new EsHttpConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsMetricsConfiguration metrics = new EsMetricsConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsHealthCheckConfiguration healthCheck = new EsHealthCheckConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsCompressionConfiguration compression = new EsCompressionConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsWarmupConfiguration warmup = new EsWarmupConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsNodeSelectionConfiguration nodeSelection = new EsNodeSelectionConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsHedgingConfiguration hedging = new EsHedgingConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsCircuitBreakerConfiguration circuitBreaker = new EsCircuitBreakerConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsScrollConfiguration scroll = new EsScrollConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsQueryCacheConfiguration queryCache = new EsQueryCacheConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsCoalescingConfiguration coalescing = new EsCoalescingConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsMultiGetConfiguration multiGet = new EsMultiGetConfiguration();
+
+    @JsonProperty
+    @Valid
+    @NotNull
+    private EsAsyncConfiguration async = new EsAsyncConfiguration();
+
     public List<String> getServers() {
         return servers;
     }
@@ -67,6 +138,62 @@ public class EsConfiguration {
         return sniffer;
     }
 
+    public EsBulkConfiguration getBulk() {
+        return bulk;
+    }
+
+    public EsHttpConfiguration getHttp() {
+        return http;
+    }
+
+    public EsMetricsConfiguration getMetrics() {
+        return metrics;
+    }
+
+    public EsHealthCheckConfiguration getHealthCheck() {
+        return healthCheck;
+    }
+
+    public EsCompressionConfiguration getCompression() {
+        return compression;
+    }
+
+    public EsWarmupConfiguration getWarmup() {
+        return warmup;
+    }
+
+    public EsNodeSelectionConfiguration getNodeSelection() {
+        return nodeSelection;
+    }
+
+    public EsHedgingConfiguration getHedging() {
+        return hedging;
+    }
+
+    public EsCircuitBreakerConfiguration getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public EsScrollConfiguration getScroll() {
+        return scroll;
+    }
+
+    public EsQueryCacheConfiguration getQueryCache() {
+        return queryCache;
+    }
+
+    public EsCoalescingConfiguration getCoalescing() {
+        return coalescing;
+    }
+
+    public EsMultiGetConfiguration getMultiGet() {
+        return multiGet;
+    }
+
+    public EsAsyncConfiguration getAsync() {
+        return async;
+    }
+
     @ValidationMethod
     @JsonIgnore
     public boolean isValidConfig() {
@@ -0,0 +1,26 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for health checks refreshed in the background.
+ */
+public class EsHealthCheckConfiguration {
+
+    @JsonProperty
+    @Min(1)
+    private long refreshIntervalMillis = 10000;
+    @JsonProperty
+    @Min(1)
+    private long maxStalenessMillis = 60000;
+
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+
+    public long getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+}
@@ -0,0 +1,64 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Configuration for hedged read requests sent with {@code ManagedEsClient.performRequest()}.
+ * <p>
+ * Searches and gets sent with the high-level client, and multi-gets sent by the get batcher, are not hedged.
+ */
+public class EsHedgingConfiguration {
+
+    /**
+     * Hedging configuration for a single request category.
+     */
+    public static class Category {
+        @JsonProperty
+        @DecimalMin("0.5")
+        @DecimalMax("1.0")
+        private double percentile = 0.95;
+        @JsonProperty
+        @Min(0)
+        private long minDelayMillis = 5;
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public long getMinDelayMillis() {
+            return minDelayMillis;
+        }
+    }
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double maxExtraRequestRatio = 0.05;
+    @JsonProperty
+    @Valid
+    @NotNull
+    private Map<RequestCategory, Category> categories = Collections.emptyMap();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getMaxExtraRequestRatio() {
+        return maxExtraRequestRatio;
+    }
+
+    public Map<RequestCategory, Category> getCategories() {
+        return categories;
+    }
+}
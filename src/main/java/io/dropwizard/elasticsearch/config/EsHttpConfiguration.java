@@ -0,0 +1,86 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.validation.ValidationMethod;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Connection pool, IO reactor and timeout settings for the REST client.
+ */
+public class EsHttpConfiguration {
+
+    @JsonProperty
+    @Min(1)
+    private int maxConnTotal = 30;
+    @JsonProperty
+    @Min(1)
+    private int maxConnPerRoute = 10;
+    @JsonProperty
+    @Min(0)
+    private int ioThreadCount = 0;
+    @JsonProperty
+    @Min(0)
+    private int connectTimeoutMillis = 1000;
+    @JsonProperty
+    @Min(0)
+    private int socketTimeoutMillis = 30000;
+    @JsonProperty
+    @Min(-1)
+    private int connectionRequestTimeoutMillis = -1;
+    @JsonProperty
+    @Min(0)
+    private int maxRetryTimeoutMillis = 30000;
+    @JsonProperty
+    @Min(-1)
+    private long keepAliveMillis = -1;
+
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    /**
+     * @return the number of IO dispatcher threads; {@code 0} uses one per available processor.
+     */
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * @return how long to wait for a connection lease from the pool; {@code -1} uses the client default.
+     */
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    public int getMaxRetryTimeoutMillis() {
+        return maxRetryTimeoutMillis;
+    }
+
+    /**
+     * @return the maximum time an idle connection is kept alive; {@code -1} keeps connections alive for as long as
+     * the server allows.
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    @ValidationMethod(message = "keepAliveMillis must be -1 or greater than 0")
+    @JsonIgnore
+    public boolean isValidKeepAlive() {
+        return keepAliveMillis != 0;
+    }
+}
@@ -0,0 +1,22 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the request metrics recorded by the REST client.
+ */
+public class EsMetricsConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    private boolean perHost = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isPerHost() {
+        return perHost;
+    }
+}
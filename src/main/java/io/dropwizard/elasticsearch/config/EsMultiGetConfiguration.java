@@ -0,0 +1,33 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for batching single-document gets into {@code _mget} requests with
+ * {@code ManagedEsClient.getMultiGetBatcher()}.
+ */
+public class EsMultiGetConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    @Min(0)
+    private long windowMicros = 1000;
+    @JsonProperty
+    @Min(1)
+    private int maxBatchSize = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
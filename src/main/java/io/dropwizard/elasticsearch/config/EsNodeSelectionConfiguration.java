@@ -0,0 +1,86 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration for how the REST client chooses which hosts to send requests to.
+ */
+public class EsNodeSelectionConfiguration {
+
+    /**
+     * The node selection strategy.
+     */
+    public enum Strategy {
+        /**
+         * Send requests to every host in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Send requests to the hosts with the lowest recent response times.
+         */
+        LATENCY_AWARE
+    }
+
+    @JsonProperty
+    @NotNull
+    private Strategy strategy = Strategy.ROUND_ROBIN;
+    @JsonProperty
+    @DecimalMin("0.01")
+    @DecimalMax("1.0")
+    private double ewmaAlpha = 0.3;
+    @JsonProperty
+    @Min(1)
+    private long updateIntervalMillis = 1000;
+    @JsonProperty
+    @DecimalMin("1.0")
+    private double slowHostRatio = 2.0;
+    @JsonProperty
+    @Min(0)
+    private long toleranceMillis = 10;
+    @JsonProperty
+    @Min(0)
+    private long probeIntervalMillis = 10000;
+    @JsonProperty
+    @Min(1)
+    private int minHosts = 2;
+    @JsonProperty
+    @Min(0)
+    private long failurePenaltyMillis = 1000;
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public double getEwmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    public long getUpdateIntervalMillis() {
+        return updateIntervalMillis;
+    }
+
+    public double getSlowHostRatio() {
+        return slowHostRatio;
+    }
+
+    public long getToleranceMillis() {
+        return toleranceMillis;
+    }
+
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public int getMinHosts() {
+        return minHosts;
+    }
+
+    public long getFailurePenaltyMillis() {
+        return failurePenaltyMillis;
+    }
+}
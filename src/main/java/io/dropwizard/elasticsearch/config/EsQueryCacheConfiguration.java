@@ -0,0 +1,42 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Configuration for the cache of search results used by {@code ManagedEsClient.search()}.
+ */
+public class EsQueryCacheConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    @Min(1)
+    private long maxEntries = 10000;
+    @JsonProperty
+    @Min(1)
+    private long ttlMillis = 5000;
+    @JsonProperty
+    @NotNull
+    private Map<String, Long> indexTtlMillis = Collections.emptyMap();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public Map<String, Long> getIndexTtlMillis() {
+        return indexTtlMillis;
+    }
+}
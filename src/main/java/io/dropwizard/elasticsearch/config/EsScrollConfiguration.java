@@ -0,0 +1,41 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for paging through large result sets with {@code ManagedEsClient.scroll()} and
+ * {@code ManagedEsClient.searchAfter()}, and for exporting them with {@code ManagedEsClient.getSlicedScroll()}.
+ */
+public class EsScrollConfiguration {
+
+    @JsonProperty
+    @Min(1)
+    private long keepAliveMillis = 60000;
+    @JsonProperty
+    @Min(1)
+    private int prefetchPages = 2;
+    @JsonProperty
+    @Min(1)
+    private int slices = 4;
+    @JsonProperty
+    @Min(1)
+    private int slicePageSize = 1000;
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public int getSlicePageSize() {
+        return slicePageSize;
+    }
+}
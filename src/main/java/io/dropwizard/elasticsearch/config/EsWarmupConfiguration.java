@@ -0,0 +1,77 @@
+package io.dropwizard.elasticsearch.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configuration for warming up the REST client when {@code ManagedEsClient} is started.
+ */
+public class EsWarmupConfiguration {
+
+    /**
+     * A request sent to the cluster during warm-up.
+     */
+    public static class Query {
+        @JsonProperty
+        @NotEmpty
+        private String method = "GET";
+        @JsonProperty
+        @NotEmpty
+        private String endpoint;
+        @JsonProperty
+        private String body = null;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    @JsonProperty
+    private boolean enabled = false;
+    @JsonProperty
+    @Min(0)
+    private int connectionsPerHost = 2;
+    @JsonProperty
+    private boolean sniff = true;
+    @JsonProperty
+    @Valid
+    @NotNull
+    private List<Query> queries = Collections.emptyList();
+    @JsonProperty
+    @Min(1)
+    private long timeoutMillis = 30000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    public boolean isSniff() {
+        return sniff;
+    }
+
+    public List<Query> getQueries() {
+        return queries;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
@@ -1,30 +1,47 @@
 package io.dropwizard.elasticsearch.health;
 
 import com.codahale.metrics.health.HealthCheck;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.util.EntityUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.dropwizard.elasticsearch.client.EsCircuitBreaker;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import io.dropwizard.elasticsearch.util.FilterPathHelper;
+import org.apache.http.HttpEntity;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
 
 import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A {@link HealthCheck} which checks the cluster state of an Elasticsearch cluster.
+ * <p>
+ * When using the REST client, the response is filtered down to the {@code status} field. If a
+ * {@link EsCircuitBreaker} is given, the check also fails while any of its breakers is open or half-open.
  *
  * @see <a href="http://www.elasticsearch.org/guide/reference/api/admin-cluster-health/">Admin Cluster Health</a>
  */
 public class EsClusterHealthCheck extends HealthCheck {
 
     static final String CLUSTER_HEALTH_ENDPOINT = "/_cluster/health";
+    static final Map<String, String> CLUSTER_HEALTH_PARAMS = FilterPathHelper.filterPathParams("status");
+
+    private static final String STATUS_FIELD = "status";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private final Client client;
     private final RestHighLevelClient restClient;
     private final boolean failOnYellow;
+    private final EsCircuitBreaker circuitBreaker;
 
     /**
      * Construct a new Elasticsearch cluster health check using the
@@ -34,7 +51,7 @@ public class EsClusterHealthCheck extends HealthCheck {
      * @param failOnYellow whether the health check should fail if the cluster health state is yellow
      */
     public EsClusterHealthCheck(Client client, boolean failOnYellow) {
-        this(checkNotNull(client), null, failOnYellow);
+        this(checkNotNull(client), null, failOnYellow, null);
     }
 
     /**
@@ -53,13 +70,27 @@ public class EsClusterHealthCheck extends HealthCheck {
      * @param failOnYellow whether the health check should fail if the cluster health state is yellow
      */
     public EsClusterHealthCheck(RestHighLevelClient restClient, boolean failOnYellow) {
-        this(null, checkNotNull(restClient), failOnYellow);
+        this(null, checkNotNull(restClient), failOnYellow, null);
+    }
+
+    /**
+     * Construct a new Elasticsearch cluster health check using the RestClient, which also fails while
+     * any of the client's circuit breakers is open.
+     *
+     * @param restClient     a REST client configured for the cluster.
+     * @param failOnYellow   whether the health check should fail if the cluster health state is yellow
+     * @param circuitBreaker the circuit breaker guarding requests to the cluster.
+     */
+    public EsClusterHealthCheck(RestHighLevelClient restClient, boolean failOnYellow, EsCircuitBreaker circuitBreaker) {
+        this(null, checkNotNull(restClient), failOnYellow, checkNotNull(circuitBreaker));
     }
 
-    private EsClusterHealthCheck(Client client, RestHighLevelClient restClient, boolean failOnYellow) {
+    private EsClusterHealthCheck(Client client, RestHighLevelClient restClient, boolean failOnYellow,
+                                 EsCircuitBreaker circuitBreaker) {
         this.client = client;
         this.restClient = restClient;
         this.failOnYellow = failOnYellow;
+        this.circuitBreaker = circuitBreaker;
     }
 
     /**
@@ -86,18 +117,67 @@ public class EsClusterHealthCheck extends HealthCheck {
     }
 
     private Result checkRestClient() throws Exception {
-        Response response = restClient.getLowLevelClient().performRequest(HttpMethod.GET, CLUSTER_HEALTH_ENDPOINT);
+        if (circuitBreaker != null) {
+            final Result breakerResult = checkCircuitBreaker();
+            if (breakerResult != null) {
+                return breakerResult;
+            }
+        }
+
+        Response response = restClient.getLowLevelClient().performRequest(HttpMethod.GET, CLUSTER_HEALTH_ENDPOINT, CLUSTER_HEALTH_PARAMS);
         if (response.getStatusLine().getStatusCode() >= 300) {
             return Result.unhealthy("Status error from server: %d - %s", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
         } else {
-            String body = EntityUtils.toString(response.getEntity());
-            Map jsonMap = new ObjectMapper().readValue(body, Map.class);
-            if (jsonMap.containsKey("status")) {
-                return checkClusterHealthStatus(ClusterHealthStatus.fromString(jsonMap.get("status").toString()));
+            String status = readStatus(response.getEntity());
+            if (status != null) {
+                return checkClusterHealthStatus(ClusterHealthStatus.fromString(status));
             } else {
-                return Result.unhealthy("No status in _cluster/health response - %s", body);
+                return Result.unhealthy("No status in _cluster/health response");
+            }
+        }
+    }
+
+    private Result checkCircuitBreaker() {
+        final Map<RequestCategory, EsCircuitBreaker.State> states = circuitBreaker.getStates();
+        final List<RequestCategory> open = states.entrySet().stream()
+                .filter(e -> e.getValue() != EsCircuitBreaker.State.CLOSED)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (open.isEmpty()) {
+            return null;
+        }
+
+        final ResultBuilder builder = Result.builder()
+                .unhealthy()
+                .withMessage("Circuit breaker not closed for %s requests", open);
+        states.forEach((category, state) -> builder.withDetail(category.name(), state.name()));
+        return builder.build();
+    }
+
+    /**
+     * Read the cluster status from a health response, stopping as soon as the top-level {@code status}
+     * field has been found.
+     *
+     * @param entity the response entity.
+     * @return the status, or {@code null} if the response has no status.
+     * @throws IOException if the response cannot be read or is not valid JSON.
+     */
+    static String readStatus(HttpEntity entity) throws IOException {
+        try (InputStream content = entity.getContent();
+             JsonParser parser = JSON_FACTORY.createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (STATUS_FIELD.equals(fieldName) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
             }
         }
+        return null;
     }
 
     private Result checkClusterHealthStatus(ClusterHealthStatus status) {
@@ -0,0 +1,135 @@
+package io.dropwizard.elasticsearch.health;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsHealthCheckConfiguration;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Runs health checks on a background thread at a fixed interval, so that polling the health check
+ * endpoint does not send a request to the cluster every time.
+ * <p>
+ * Health checks wrapped with {@link #cache(HealthCheck)} return the result of the last refresh immediately,
+ * with its age reported in the {@code stalenessMillis} detail. A result older than the configured maximum
+ * staleness is reported as unhealthy. A single thread refreshes every wrapped check in turn; the time taken
+ * by each refresh is recorded in the {@code <prefix>.health.refresh} timer.
+ */
+public class EsHealthCheckRefresher implements Closeable {
+
+    private final long refreshIntervalMillis;
+    private final long maxStalenessMillis;
+    private final Timer refreshTimer;
+    private final List<CachedHealthCheck> checks = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService executor;
+    private boolean closed;
+
+    /**
+     * Construct a new refresher. The background thread is not started until the first health check is
+     * wrapped.
+     *
+     * @param config       the refresh configuration.
+     * @param metrics      the registry to add the refresh timer to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsHealthCheckRefresher(EsHealthCheckConfiguration config, MetricRegistry metrics, String metricPrefix) {
+        checkNotNull(config, "EsHealthCheckConfiguration must not be null");
+        this.refreshIntervalMillis = config.getRefreshIntervalMillis();
+        this.maxStalenessMillis = config.getMaxStalenessMillis();
+        this.refreshTimer = metrics.timer(MetricRegistry.name(metricPrefix, "health", "refresh"));
+    }
+
+    /**
+     * Wrap a health check so that it is refreshed in the background.
+     *
+     * @param delegate the health check to refresh.
+     * @return a health check returning the last cached result of {@code delegate}.
+     */
+    public synchronized HealthCheck cache(HealthCheck delegate) {
+        checkState(!closed, "Health check refresher has been closed");
+        final CachedHealthCheck cached = new CachedHealthCheck(checkNotNull(delegate));
+        checks.add(cached);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("elasticsearch-health-refresher-%d")
+                    .setDaemon(true)
+                    .build());
+            executor.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return cached;
+    }
+
+    /**
+     * Stop refreshing health checks.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void refresh() {
+        for (CachedHealthCheck check : checks) {
+            try (Timer.Context ignored = refreshTimer.time()) {
+                check.refresh();
+            }
+        }
+    }
+
+    private class CachedHealthCheck extends HealthCheck {
+
+        private final HealthCheck delegate;
+        private volatile Result lastResult;
+        private volatile long lastRefreshMillis;
+
+        CachedHealthCheck(HealthCheck delegate) {
+            this.delegate = delegate;
+        }
+
+        void refresh() {
+            // execute() turns any exception into an unhealthy result
+            lastResult = delegate.execute();
+            lastRefreshMillis = System.currentTimeMillis();
+        }
+
+        @Override
+        protected Result check() {
+            final Result result = lastResult;
+            if (result == null) {
+                return Result.unhealthy("Health check has not been refreshed yet");
+            }
+
+            final long stalenessMillis = System.currentTimeMillis() - lastRefreshMillis;
+            final ResultBuilder builder = Result.builder();
+            if (stalenessMillis > maxStalenessMillis) {
+                builder.unhealthy().withMessage("Last refresh was %d ms ago: %s", stalenessMillis, result.getMessage());
+            } else if (result.isHealthy()) {
+                builder.healthy().withMessage(result.getMessage());
+            } else if (result.getError() != null) {
+                builder.unhealthy(result.getError()).withMessage(result.getMessage());
+            } else {
+                builder.unhealthy().withMessage(result.getMessage());
+            }
+
+            final Map<String, Object> details = result.getDetails();
+            if (details != null) {
+                details.forEach(builder::withDetail);
+            }
+            return builder.withDetail("stalenessMillis", stalenessMillis).build();
+        }
+    }
+}
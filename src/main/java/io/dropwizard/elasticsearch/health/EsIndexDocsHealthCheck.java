@@ -1,13 +1,26 @@
 package io.dropwizard.elasticsearch.health;
 
 import com.codahale.metrics.health.HealthCheck;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.elasticsearch.util.FilterPathHelper;
+import io.dropwizard.elasticsearch.util.IndexPathHelper;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
 
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -15,14 +28,24 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * A {@link HealthCheck} which checks if one or more indices in Elasticsearch contain a given number of documents
  * in their primaries.
+ * <p>
+ * Only the document statistics are requested. When using the REST client, the document counts for all
+ * indices are fetched in a single request to the {@code _stats/docs} endpoint, filtered down to the primary
+ * document counts, unless there are too many indices to fit in one request line.
  *
  * @see <a href="http://www.elasticsearch.org/guide/reference/api/admin-indices-stats/">Admin Indices Stats</a>
  */
 public class EsIndexDocsHealthCheck extends HealthCheck {
+    static final Map<String, String> STATS_PARAMS = FilterPathHelper.withFilterPath(
+            ImmutableMap.of("level", "indices"), "indices.*.primaries.docs.count");
+
     private static final String HEALTH_CHECK_NAME = "elasticsearch-index-documents";
     private static final long DEFAULT_DOCUMENT_THRESHOLD = 1L;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
     private final Client client;
+    private final RestHighLevelClient restClient;
     private final String[] indices;
+    private final List<String> statsEndpoints;
     private final long documentThreshold;
 
     /**
@@ -35,12 +58,7 @@ public class EsIndexDocsHealthCheck extends HealthCheck {
      *                                  or {@code documentThreshold} was less than 1
      */
     public EsIndexDocsHealthCheck(Client client, List<String> indices, long documentThreshold) {
-        checkArgument(!indices.isEmpty(), "At least one index must be given");
-        checkArgument(documentThreshold > 0L, "The document threshold must at least be 1");
-
-        this.client = checkNotNull(client);
-        this.indices = checkNotNull(indices.toArray(new String[indices.size()]));
-        this.documentThreshold = documentThreshold;
+        this(checkNotNull(client), null, indices, documentThreshold);
     }
 
 
@@ -75,6 +93,61 @@ public class EsIndexDocsHealthCheck extends HealthCheck {
         this(client, indexName, DEFAULT_DOCUMENT_THRESHOLD);
     }
 
+    /**
+     * Construct a new Elasticsearch index document count health check using the RestClient.
+     *
+     * @param restClient        a REST client configured for the cluster
+     * @param indices           a {@link List} of indices in Elasticsearch which should be checked
+     * @param documentThreshold the minimal number of documents in an index
+     * @throws IllegalArgumentException if {@code indices} was {@literal null} or empty,
+     *                                  or {@code documentThreshold} was less than 1
+     */
+    public EsIndexDocsHealthCheck(RestHighLevelClient restClient, List<String> indices, long documentThreshold) {
+        this(null, checkNotNull(restClient), indices, documentThreshold);
+    }
+
+    /**
+     * Construct a new Elasticsearch index document count health check using the RestClient.
+     *
+     * @param restClient a REST client configured for the cluster
+     * @param indices    a {@link List} of indices in Elasticsearch which should be checked
+     */
+    public EsIndexDocsHealthCheck(RestHighLevelClient restClient, List<String> indices) {
+        this(restClient, indices, DEFAULT_DOCUMENT_THRESHOLD);
+    }
+
+    /**
+     * Construct a new Elasticsearch index document count health check using the RestClient.
+     *
+     * @param restClient        a REST client configured for the cluster
+     * @param indexName         the index in Elasticsearch which should be checked
+     * @param documentThreshold the minimal number of documents in an index
+     */
+    public EsIndexDocsHealthCheck(RestHighLevelClient restClient, String indexName, long documentThreshold) {
+        this(restClient, ImmutableList.of(indexName), documentThreshold);
+    }
+
+    /**
+     * Construct a new Elasticsearch index document count health check using the RestClient.
+     *
+     * @param restClient a REST client configured for the cluster
+     * @param indexName  the index in Elasticsearch which should be checked
+     */
+    public EsIndexDocsHealthCheck(RestHighLevelClient restClient, String indexName) {
+        this(restClient, indexName, DEFAULT_DOCUMENT_THRESHOLD);
+    }
+
+    private EsIndexDocsHealthCheck(Client client, RestHighLevelClient restClient, List<String> indices, long documentThreshold) {
+        checkArgument(!indices.isEmpty(), "At least one index must be given");
+        checkArgument(documentThreshold > 0L, "The document threshold must at least be 1");
+
+        this.client = client;
+        this.restClient = restClient;
+        this.indices = checkNotNull(indices.toArray(new String[indices.size()]));
+        this.statsEndpoints = IndexPathHelper.indexPaths(indices, "/_stats/docs");
+        this.documentThreshold = documentThreshold;
+    }
+
     /**
      * Perform a check of the number of documents in the Elasticsearch indices.
      *
@@ -86,19 +159,19 @@ public class EsIndexDocsHealthCheck extends HealthCheck {
      */
     @Override
     protected Result check() throws Exception {
-        final IndicesStatsResponse indicesStatsResponse = client.admin().indices().prepareStats(indices).get();
+        final Map<String, Long> documentCounts = client != null ? readTransportDocumentCounts() : readRestDocumentCounts();
 
         final List<String> indexDetails = new ArrayList<String>(indices.length);
         boolean healthy = true;
 
-        for (IndexStats indexStats : indicesStatsResponse.getIndices().values()) {
-            long documentCount = indexStats.getPrimaries().getDocs().getCount();
+        for (Map.Entry<String, Long> indexCount : documentCounts.entrySet()) {
+            long documentCount = indexCount.getValue();
 
             if (documentCount < documentThreshold) {
                 healthy = false;
-                indexDetails.add(String.format("%s (%d)", indexStats.getIndex(), documentCount));
+                indexDetails.add(String.format("%s (%d)", indexCount.getKey(), documentCount));
             } else {
-                indexDetails.add(String.format("%s (%d!)", indexStats.getIndex(), documentCount));
+                indexDetails.add(String.format("%s (%d!)", indexCount.getKey(), documentCount));
             }
         }
 
@@ -110,4 +183,37 @@ public class EsIndexDocsHealthCheck extends HealthCheck {
             return Result.unhealthy(resultDetails);
         }
     }
-}
\ No newline at end of file
+
+    private Map<String, Long> readTransportDocumentCounts() {
+        final IndicesStatsResponse indicesStatsResponse = client.admin().indices().prepareStats(indices).clear().setDocs(true).get();
+
+        final Map<String, Long> documentCounts = new LinkedHashMap<>();
+        for (IndexStats indexStats : indicesStatsResponse.getIndices().values()) {
+            documentCounts.put(indexStats.getIndex(), indexStats.getPrimaries().getDocs().getCount());
+        }
+        return documentCounts;
+    }
+
+    private Map<String, Long> readRestDocumentCounts() throws IOException {
+        final Map<String, Long> documentCounts = new LinkedHashMap<>();
+        for (String statsEndpoint : statsEndpoints) {
+            final Response response = restClient.getLowLevelClient().performRequest(HttpMethod.GET, statsEndpoint, STATS_PARAMS);
+
+            try (InputStream content = response.getEntity().getContent()) {
+                documentCounts.putAll(readDocumentCounts(content));
+            }
+        }
+        return documentCounts;
+    }
+
+    static Map<String, Long> readDocumentCounts(InputStream content) throws IOException {
+        final Map<String, Long> documentCounts = new LinkedHashMap<>();
+        final JsonNode indexNodes = MAPPER.readTree(content).path("indices");
+        final Iterator<Map.Entry<String, JsonNode>> fields = indexNodes.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> index = fields.next();
+            documentCounts.put(index.getKey(), index.getValue().path("primaries").path("docs").path("count").asLong());
+        }
+        return documentCounts;
+    }
+}
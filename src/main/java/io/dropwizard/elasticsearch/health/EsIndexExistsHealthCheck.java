@@ -3,8 +3,12 @@ package io.dropwizard.elasticsearch.health;
 import com.codahale.metrics.health.HealthCheck;
 import com.google.common.collect.ImmutableList;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import io.dropwizard.elasticsearch.util.IndexPathHelper;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
 
+import javax.ws.rs.HttpMethod;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -12,12 +16,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A {@link HealthCheck} which checks if one or more indices exist in Elasticsearch.
+ * <p>
+ * When using the REST client, all indices are checked in a single {@code HEAD} request, which has no
+ * response body, unless there are too many to fit in one request line.
  *
  * @see <a href="http://www.elasticsearch.org/guide/reference/api/admin-indices-indices-exists/">Admin Indices Indices Exists</a>
  */
 public class EsIndexExistsHealthCheck extends HealthCheck {
     private final Client client;
+    private final RestHighLevelClient restClient;
     private final String[] indices;
+    private final List<String> indicesEndpoints;
 
     /**
      * Construct a new Elasticsearch index exists health check.
@@ -27,10 +36,7 @@ public class EsIndexExistsHealthCheck extends HealthCheck {
      * @throws IllegalArgumentException if {@code indices} was {@literal null} or empty
      */
     public EsIndexExistsHealthCheck(Client client, List<String> indices) {
-        checkArgument(!indices.isEmpty(), "At least one index must be given");
-
-        this.client = checkNotNull(client);
-        this.indices = checkNotNull(indices.toArray(new String[indices.size()]));
+        this(checkNotNull(client), null, indices);
     }
 
     /**
@@ -43,6 +49,36 @@ public class EsIndexExistsHealthCheck extends HealthCheck {
         this(client, ImmutableList.of(indexName));
     }
 
+    /**
+     * Construct a new Elasticsearch index exists health check using the RestClient.
+     *
+     * @param restClient a REST client configured for the cluster
+     * @param indices    a {@link List} of indices in Elasticsearch which should be checked
+     * @throws IllegalArgumentException if {@code indices} was {@literal null} or empty
+     */
+    public EsIndexExistsHealthCheck(RestHighLevelClient restClient, List<String> indices) {
+        this(null, checkNotNull(restClient), indices);
+    }
+
+    /**
+     * Construct a new Elasticsearch index exists health check using the RestClient.
+     *
+     * @param restClient a REST client configured for the cluster
+     * @param indexName  the index in Elasticsearch which should be checked
+     */
+    public EsIndexExistsHealthCheck(RestHighLevelClient restClient, String indexName) {
+        this(restClient, ImmutableList.of(indexName));
+    }
+
+    private EsIndexExistsHealthCheck(Client client, RestHighLevelClient restClient, List<String> indices) {
+        checkArgument(!indices.isEmpty(), "At least one index must be given");
+
+        this.client = client;
+        this.restClient = restClient;
+        this.indices = checkNotNull(indices.toArray(new String[indices.size()]));
+        this.indicesEndpoints = IndexPathHelper.indexPaths(indices, "");
+    }
+
     /**
      * Perform a check of the number of documents in the Elasticsearch indices.
      *
@@ -54,12 +90,25 @@ public class EsIndexExistsHealthCheck extends HealthCheck {
      */
     @Override
     protected Result check() throws Exception {
-        final IndicesExistsResponse indicesExistsResponse = client.admin().indices().prepareExists(indices).get();
+        boolean exists = true;
+        if (client != null) {
+            final IndicesExistsResponse indicesExistsResponse = client.admin().indices().prepareExists(indices).get();
+            exists = indicesExistsResponse.isExists();
+        } else {
+            for (String indicesEndpoint : indicesEndpoints) {
+                // HEAD returns 404 if any of the indices is missing
+                final Response response = restClient.getLowLevelClient().performRequest(HttpMethod.HEAD, indicesEndpoint);
+                if (response.getStatusLine().getStatusCode() != 200) {
+                    exists = false;
+                    break;
+                }
+            }
+        }
 
-        if (indicesExistsResponse.isExists()) {
+        if (exists) {
             return Result.healthy();
         } else {
             return Result.unhealthy("One or more indices do not exist.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package io.dropwizard.elasticsearch.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.elasticsearch.config.EsWarmupConfiguration;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.HostsSniffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up a {@link RestClient} before the service starts taking traffic, so that the first user requests
+ * do not pay for connection setup.
+ * <p>
+ * Warm-up runs a sniff (if a {@link HostsSniffer} is available), opens the configured number of connections
+ * per host by sending concurrent {@code HEAD /} requests, then sends any configured warm-up queries. The
+ * whole process is bounded by the configured timeout; failures are logged but do not stop the service
+ * starting. The time taken is recorded in the {@code <prefix>.warmup} timer.
+ */
+class EsClientWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EsClientWarmer.class);
+
+    private final EsWarmupConfiguration config;
+    private final RestClient client;
+    private final HostsSniffer hostsSniffer;
+    private final List<HttpHost> configuredHosts;
+    private final Timer warmupTimer;
+
+    EsClientWarmer(EsWarmupConfiguration config, RestClient client, HostsSniffer hostsSniffer,
+                   List<HttpHost> configuredHosts, MetricRegistry metrics, String metricPrefix) {
+        this.config = config;
+        this.client = client;
+        this.hostsSniffer = hostsSniffer;
+        this.configuredHosts = configuredHosts;
+        this.warmupTimer = metrics.timer(MetricRegistry.name(metricPrefix, "warmup"));
+    }
+
+    /**
+     * Warm up the client, blocking until done or the timeout expires.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void warmUp() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMillis());
+        try (Timer.Context ignored = warmupTimer.time()) {
+            final List<HttpHost> hosts = sniff();
+
+            final int connections = hosts.size() * config.getConnectionsPerHost();
+            final WarmupListener connectionListener = new WarmupListener(connections);
+            for (int i = 0; i < connections; i++) {
+                client.performRequestAsync(HttpMethod.HEAD, "/", connectionListener);
+            }
+            if (!connectionListener.await(deadline)) {
+                LOGGER.warn("Timed out opening {} warm-up connections", connections);
+                return;
+            }
+
+            final WarmupListener queryListener = new WarmupListener(config.getQueries().size());
+            for (EsWarmupConfiguration.Query query : config.getQueries()) {
+                final HttpEntity entity = query.getBody() == null ? null : new NStringEntity(query.getBody(), ContentType.APPLICATION_JSON);
+                client.performRequestAsync(query.getMethod(), query.getEndpoint(), Collections.emptyMap(), entity, queryListener);
+            }
+            if (!queryListener.await(deadline)) {
+                LOGGER.warn("Timed out running {} warm-up queries", config.getQueries().size());
+            }
+
+            LOGGER.info("Elasticsearch client warm-up complete: {} connections to {} hosts, {} queries, {} failures",
+                    connections, hosts.size(), config.getQueries().size(),
+                    connectionListener.failures.get() + queryListener.failures.get());
+        }
+    }
+
+    private List<HttpHost> sniff() {
+        if (config.isSniff() && hostsSniffer != null) {
+            try {
+                final List<HttpHost> sniffedHosts = hostsSniffer.sniffHosts();
+                if (!sniffedHosts.isEmpty()) {
+                    client.setHosts(sniffedHosts.toArray(new HttpHost[sniffedHosts.size()]));
+                    return sniffedHosts;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Warm-up sniff failed, using configured hosts", e);
+            }
+        }
+        return configuredHosts;
+    }
+
+    private static class WarmupListener implements ResponseListener {
+        private final CountDownLatch latch;
+        private final AtomicInteger failures = new AtomicInteger();
+
+        WarmupListener(int requests) {
+            this.latch = new CountDownLatch(requests);
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception exception) {
+            failures.incrementAndGet();
+            LOGGER.debug("Warm-up request failed", exception);
+            latch.countDown();
+        }
+
+        boolean await(long deadlineNanos) throws InterruptedException {
+            return latch.await(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.dropwizard.elasticsearch.managed;
+
+import io.dropwizard.elasticsearch.client.EsCompression;
+import io.dropwizard.elasticsearch.client.RequestEventDispatcher;
+import io.dropwizard.elasticsearch.config.EsHttpConfiguration;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.elasticsearch.client.RestClientBuilder;
+
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Applies the {@link EsHttpConfiguration} to the Apache async HTTP client underlying the {@link org.elasticsearch.client.RestClient}.
+ * <p>
+ * The IO reactor and connection manager are created here rather than by the HTTP client builder, so that
+ * their state can be exposed as metrics. HTTPS connections use the default {@link SSLContext}, as they would with the
+ * connection manager created by the builder. Compression is installed last, so that it applies to every request.
+ */
+class EsHttpClientConfigCallback implements RestClientBuilder.HttpClientConfigCallback, RestClientBuilder.RequestConfigCallback {
+
+    private final EsHttpConfiguration config;
+    private final RequestEventDispatcher requestEvents;
+    private final EsCompression compression;
+    private final DefaultConnectingIOReactor ioReactor;
+    private final PoolingNHttpClientConnectionManager connectionManager;
+
+    EsHttpClientConfigCallback(EsHttpConfiguration config, RequestEventDispatcher requestEvents,
+                               EsCompression compression) throws IOReactorException {
+        this.config = config;
+        this.requestEvents = requestEvents;
+        this.compression = compression;
+
+        final IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom();
+        if (config.getIoThreadCount() > 0) {
+            ioReactorConfig.setIoThreadCount(config.getIoThreadCount());
+        }
+        this.ioReactor = new DefaultConnectingIOReactor(ioReactorConfig.build());
+        this.connectionManager = new PoolingNHttpClientConnectionManager(ioReactor,
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", new SSLIOSessionStrategy(defaultSslContext(), SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+                        .build());
+        connectionManager.setMaxTotal(config.getMaxConnTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnPerRoute());
+    }
+
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("could not create the default ssl context", e);
+        }
+    }
+
+    DefaultConnectingIOReactor getIoReactor() {
+        return ioReactor;
+    }
+
+    PoolingNHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Register this callback with a REST client builder.
+     *
+     * @param builder the builder to configure.
+     * @return the builder.
+     */
+    RestClientBuilder applyTo(RestClientBuilder builder) {
+        return builder
+                .setMaxRetryTimeoutMillis(config.getMaxRetryTimeoutMillis())
+                .setFailureListener(requestEvents)
+                .setHttpClientConfigCallback(this)
+                .setRequestConfigCallback(this);
+    }
+
+    @Override
+    public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
+        httpClientBuilder
+                .setConnectionManager(connectionManager)
+                .addInterceptorFirst((HttpRequestInterceptor) requestEvents)
+                .addInterceptorLast((HttpResponseInterceptor) requestEvents);
+
+        final long keepAliveMillis = config.getKeepAliveMillis();
+        if (keepAliveMillis > 0) {
+            httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+                final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+            });
+        }
+
+        // Last, as the compressing builder only builds the client
+        return compression.install(httpClientBuilder);
+    }
+
+    @Override
+    public RequestConfig.Builder customizeRequestConfig(RequestConfig.Builder requestConfigBuilder) {
+        requestConfigBuilder
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setSocketTimeout(config.getSocketTimeoutMillis());
+        if (config.getConnectionRequestTimeoutMillis() >= 0) {
+            requestConfigBuilder.setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis());
+        }
+        return requestConfigBuilder;
+    }
+}
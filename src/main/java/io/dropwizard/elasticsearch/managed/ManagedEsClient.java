@@ -1,13 +1,48 @@
 package io.dropwizard.elasticsearch.managed;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.io.Resources;
+import io.dropwizard.elasticsearch.bulk.BulkBody;
+import io.dropwizard.elasticsearch.bulk.BulkBufferPool;
+import io.dropwizard.elasticsearch.bulk.ManagedBulkProcessor;
+import io.dropwizard.elasticsearch.client.EsAsyncClient;
+import io.dropwizard.elasticsearch.client.EsCircuitBreaker;
+import io.dropwizard.elasticsearch.client.EsCompression;
+import io.dropwizard.elasticsearch.client.EsHedging;
+import io.dropwizard.elasticsearch.client.EsMultiGetBatcher;
+import io.dropwizard.elasticsearch.client.EsRequestCoalescer;
+import io.dropwizard.elasticsearch.client.LatencyAwareHostSelector;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import io.dropwizard.elasticsearch.client.RequestEventDispatcher;
+import io.dropwizard.elasticsearch.client.RequestKey;
+import io.dropwizard.elasticsearch.config.EsAsyncConfiguration;
 import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.config.EsNodeSelectionConfiguration;
+import io.dropwizard.elasticsearch.config.EsScrollConfiguration;
+import io.dropwizard.elasticsearch.health.EsHealthCheckRefresher;
+import io.dropwizard.elasticsearch.metrics.EsConnectionPoolMetrics;
+import io.dropwizard.elasticsearch.metrics.EsRequestMetrics;
+import io.dropwizard.elasticsearch.search.EsQueryCache;
+import io.dropwizard.elasticsearch.search.EsSearchIterator;
+import io.dropwizard.elasticsearch.search.EsSlicedScroll;
+import io.dropwizard.elasticsearch.util.FilterPathHelper;
 import io.dropwizard.elasticsearch.util.TransportAddressHelper;
 import io.dropwizard.lifecycle.Managed;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.message.BasicHeader;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
@@ -19,8 +54,11 @@ import org.elasticsearch.client.sniff.SnifferBuilder;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -28,6 +66,10 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -47,13 +89,32 @@ import static com.google.common.base.Strings.isNullOrEmpty;
  */
 public class ManagedEsClient implements Managed {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManagedEsClient.class);
+
     private Client client;
     private RestHighLevelClient restHighLevelClient;
     private Sniffer sniffer;
+    private ManagedBulkProcessor bulkProcessor;
+    private EsHealthCheckRefresher healthCheckRefresher;
+    private EsClientWarmer warmer;
+    private LatencyAwareHostSelector hostSelector;
+    private EsHedging hedging;
+    private EsCircuitBreaker circuitBreaker;
+    private EsScrollConfiguration scrollConfig = new EsScrollConfiguration();
+    private EsSlicedScroll slicedScroll;
+    private BulkBufferPool bulkBufferPool;
+    private EsQueryCache queryCache;
+    private EsRequestCoalescer coalescer;
+    private EsMultiGetBatcher multiGetBatcher;
+    private EsAsyncConfiguration asyncConfig = new EsAsyncConfiguration();
+    private EsAsyncClient asyncClient;
 
     /**
      * Create a new managed Elasticsearch {@link Client}. A {@link TransportClient} will be created with {@link EsConfiguration#servers}
      * as transport addresses.
+     * <p>
+     * Client metrics are registered with a new {@link MetricRegistry} which is not published anywhere; use
+     * {@link #ManagedEsClient(EsConfiguration, MetricRegistry)} with {@code environment.metrics()} to report them.
      *
      * @param config a valid {@link EsConfiguration} instance
      * @throws IOException                   if a settings file has been specified and cannot be read.
@@ -61,7 +122,42 @@ public class ManagedEsClient implements Managed {
      *                                       of Elasticsearch does not provide a NodeClient.
      */
     public ManagedEsClient(final EsConfiguration config) throws IOException {
+        this(config, unpublishedMetrics(config));
+    }
+
+    /**
+     * Create a new managed Elasticsearch {@link Client}, registering any client metrics with the given
+     * {@link MetricRegistry}.
+     *
+     * @param config  a valid {@link EsConfiguration} instance
+     * @param metrics the registry to add client metrics to, usually {@code environment.metrics()}
+     * @throws IOException                   if a settings file has been specified and cannot be read.
+     * @throws UnsupportedOperationException if {@code nodeClient=true} has been configured. This version
+     *                                       of Elasticsearch does not provide a NodeClient.
+     */
+    public ManagedEsClient(final EsConfiguration config, final MetricRegistry metrics) throws IOException {
+        this(config, metrics, MetricRegistry.name(ManagedEsClient.class));
+    }
+
+    /**
+     * Create a new managed Elasticsearch {@link Client}, registering any client metrics with the given
+     * {@link MetricRegistry} under the given prefix, so that clients for several clusters can share a registry.
+     *
+     * @param config       a valid {@link EsConfiguration} instance
+     * @param metrics      the registry to add client metrics to, usually {@code environment.metrics()}
+     * @param metricPrefix the prefix for the client's metric names
+     * @throws IOException                   if a settings file has been specified and cannot be read.
+     * @throws UnsupportedOperationException if {@code nodeClient=true} has been configured. This version
+     *                                       of Elasticsearch does not provide a NodeClient.
+     * @see ManagedEsClusters
+     */
+    public ManagedEsClient(final EsConfiguration config, final MetricRegistry metrics, final String metricPrefix) throws IOException {
         checkNotNull(config, "EsConfiguration must not be null");
+        checkNotNull(metrics, "MetricRegistry must not be null");
+        checkNotNull(metricPrefix, "metricPrefix must not be null");
+        this.healthCheckRefresher = new EsHealthCheckRefresher(config.getHealthCheck(), metrics, metricPrefix);
+        this.scrollConfig = config.getScroll();
+        this.asyncConfig = config.getAsync();
 
         // Initialise the settings
         final Settings.Builder settingsBuilder = Settings.builder();
@@ -95,6 +191,20 @@ public class ManagedEsClient implements Managed {
             // Build a REST client
             HttpHost[] hosts = config.getServers().stream().map(HttpHost::create).toArray(HttpHost[]::new);
             RestClientBuilder clientBuilder = RestClient.builder(hosts);
+            final RequestEventDispatcher requestEvents = new RequestEventDispatcher();
+            final EsCompression compression = new EsCompression(config.getCompression(), metrics, metricPrefix);
+            final EsHttpClientConfigCallback httpConfig = new EsHttpClientConfigCallback(config.getHttp(), requestEvents, compression);
+            httpConfig.applyTo(clientBuilder);
+            if (config.getMetrics().isEnabled()) {
+                requestEvents.addListener(new EsRequestMetrics(metrics, metricPrefix, config.getMetrics().isPerHost()));
+                requestEvents.addListener(new EsConnectionPoolMetrics(metrics, metricPrefix,
+                        httpConfig.getConnectionManager(), httpConfig.getIoReactor(), hosts));
+            }
+            if (config.getNodeSelection().getStrategy() == EsNodeSelectionConfiguration.Strategy.LATENCY_AWARE) {
+                this.hostSelector = new LatencyAwareHostSelector(config.getNodeSelection(), httpConfig.getConnectionManager(),
+                        metrics, metricPrefix, Arrays.asList(hosts));
+                requestEvents.addListener(hostSelector);
+            }
             if (!config.getHeaders().isEmpty()) {
                 Header[] headers = config.getHeaders().entrySet().stream()
                         .map(e -> new BasicHeader(e.getKey(), e.getValue()))
@@ -103,23 +213,25 @@ public class ManagedEsClient implements Managed {
             }
 
             // If Sniffer is enabled, initialise that too
+            HostsSniffer hostsSniffer = null;
             if (config.getSniffer().isEnabled()) {
                 SniffOnFailureListener failureListener =  null;
                 if (config.getSniffer().isSniffOnFailure()) {
                     failureListener = new SniffOnFailureListener();
-                    clientBuilder.setFailureListener(failureListener);
+                    requestEvents.addFailureListener(failureListener);
                 }
                 this.restHighLevelClient = new RestHighLevelClient(clientBuilder);
 
                 SnifferBuilder snifferBuilder = Sniffer.builder(restHighLevelClient.getLowLevelClient())
                         .setSniffIntervalMillis(config.getSniffer().getSniffIntervalMillis())
                         .setSniffAfterFailureDelayMillis(config.getSniffer().getSniffFailureMillis());
-                if (config.getSniffer().isUseHttps()) {
-                    HostsSniffer hostsSniffer = new ElasticsearchHostsSniffer(restHighLevelClient.getLowLevelClient(),
-							ElasticsearchHostsSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
-							ElasticsearchHostsSniffer.Scheme.HTTPS);
-                    snifferBuilder.setHostsSniffer(hostsSniffer);
+                hostsSniffer = new ElasticsearchHostsSniffer(restHighLevelClient.getLowLevelClient(),
+                        ElasticsearchHostsSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
+                        config.getSniffer().isUseHttps() ? ElasticsearchHostsSniffer.Scheme.HTTPS : ElasticsearchHostsSniffer.Scheme.HTTP);
+                if (hostSelector != null) {
+                    hostsSniffer = hostSelector.wrap(hostsSniffer);
                 }
+                snifferBuilder.setHostsSniffer(hostsSniffer);
                 this.sniffer = snifferBuilder.build();
                 if (failureListener != null) {
                     failureListener.setSniffer(sniffer);
@@ -127,6 +239,54 @@ public class ManagedEsClient implements Managed {
             } else {
 				this.restHighLevelClient = new RestHighLevelClient(clientBuilder);
 			}
+
+            if (hostSelector != null) {
+                hostSelector.start(restHighLevelClient.getLowLevelClient());
+            }
+
+            if (config.getHedging().isEnabled()) {
+                this.hedging = new EsHedging(config.getHedging(), metrics, metricPrefix,
+                        config.getHttp().getSocketTimeoutMillis());
+            }
+
+            if (config.getCircuitBreaker().isEnabled()) {
+                this.circuitBreaker = new EsCircuitBreaker(config.getCircuitBreaker(), metrics, metricPrefix);
+            }
+
+            this.bulkBufferPool = new BulkBufferPool(config.getBulk().getBufferSizeBytes(), config.getBulk().getMaxPooledBuffers());
+
+            if (config.getBulk().isEnabled()) {
+                final RestHighLevelClient bulkClient = restHighLevelClient;
+                final BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer = circuitBreaker == null
+                        ? bulkClient::bulkAsync
+                        : (request, listener) -> circuitBreaker.executeAsync(RequestCategory.BULK,
+                                l -> bulkClient.bulkAsync(request, l), listener);
+                this.bulkProcessor = new ManagedBulkProcessor(bulkConsumer, config.getBulk(), metrics, metricPrefix);
+            }
+
+            if (config.getCoalescing().isEnabled()) {
+                this.coalescer = new EsRequestCoalescer(metrics, metricPrefix);
+            }
+
+            if (config.getQueryCache().isEnabled()) {
+                this.queryCache = new EsQueryCache(config.getQueryCache(), metrics, metricPrefix);
+            }
+
+            if (config.getMultiGet().isEnabled()) {
+                final RestHighLevelClient multiGetClient = restHighLevelClient;
+                final BiConsumer<MultiGetRequest, ActionListener<MultiGetResponse>> multiGetConsumer = circuitBreaker == null
+                        ? multiGetClient::multiGetAsync
+                        : (request, listener) -> circuitBreaker.executeAsync(RequestCategory.GET,
+                                l -> multiGetClient.multiGetAsync(request, l), listener);
+                this.multiGetBatcher = new EsMultiGetBatcher(multiGetConsumer, config.getMultiGet(), metrics, metricPrefix);
+            }
+
+            this.slicedScroll = new EsSlicedScroll(restHighLevelClient, config.getScroll(), metrics, metricPrefix);
+
+            if (config.getWarmup().isEnabled()) {
+                this.warmer = new EsClientWarmer(config.getWarmup(), restHighLevelClient.getLowLevelClient(), hostsSniffer,
+                        Arrays.asList(hosts), metrics, metricPrefix);
+            }
         }
     }
 
@@ -141,12 +301,16 @@ public class ManagedEsClient implements Managed {
     }
 
     /**
-     * Starts the Elasticsearch {@link Node} (if appropriate). Called <i>before</i> the service becomes available.
+     * Starts the Elasticsearch {@link Node} (if appropriate), and warms up the REST client if warm-up has
+     * been configured. Called <i>before</i> the service becomes available.
      *
      * @throws Exception if something goes wrong; this will halt the service startup.
      */
     @Override
     public void start() throws Exception {
+        if (warmer != null) {
+            warmer.warmUp();
+        }
     }
 
     /**
@@ -157,11 +321,25 @@ public class ManagedEsClient implements Managed {
      */
     @Override
     public void stop() throws Exception {
+        closeHealthCheckRefresher();
+        closeHedging();
+        closeBulkProcessor();
+        closeSlicedScroll();
+        closeMultiGetBatcher();
+        closeAsyncClient();
         closeClient();
         closeSniffer();
+        closeHostSelector();
         closeRestClient();
     }
 
+    private static MetricRegistry unpublishedMetrics(EsConfiguration config) {
+        if (null != config && config.getMetrics().isEnabled()) {
+            LOGGER.warn("Request metrics are enabled but no MetricRegistry was given, so they will not be published");
+        }
+        return new MetricRegistry();
+    }
+
     /**
      * Get the managed Elasticsearch {@link Client} instance.
      *
@@ -189,6 +367,290 @@ public class ManagedEsClient implements Managed {
 		return restHighLevelClient;
 	}
 
+    /**
+     * Perform a request with the low-level REST client, narrowing the response to the given paths with
+     * the {@code filter_path} parameter.
+     *
+     * @param method      the HTTP method
+     * @param endpoint    the endpoint, such as {@code /_nodes/stats}
+     * @param params      any other request parameters
+     * @param filterPaths one or more paths to keep in the response, such as {@code nodes.*.jvm.mem}
+     * @return the filtered response
+     * @throws IOException if the request fails
+     * @see FilterPathHelper
+     */
+    public Response performFilteredRequest(String method, String endpoint, Map<String, String> params,
+                                           String... filterPaths) throws IOException {
+        return performRequest(method, endpoint, FilterPathHelper.withFilterPath(params, filterPaths), null);
+    }
+
+    /**
+     * Perform a request with a body with the low-level REST client, narrowing the response to the given
+     * paths with the {@code filter_path} parameter.
+     *
+     * @param method      the HTTP method
+     * @param endpoint    the endpoint, such as {@code /index/_search}
+     * @param params      any other request parameters
+     * @param entity      the request body
+     * @param filterPaths one or more paths to keep in the response, such as {@code hits.hits._id}
+     * @return the filtered response
+     * @throws IOException if the request fails
+     * @see FilterPathHelper
+     */
+    public Response performFilteredRequest(String method, String endpoint, Map<String, String> params,
+                                           HttpEntity entity, String... filterPaths) throws IOException {
+        return performRequest(method, endpoint, FilterPathHelper.withFilterPath(params, filterPaths), entity);
+    }
+
+    /**
+     * Perform a request with the low-level REST client, applying the configured request and response
+     * compression, hedging the request if its category is configured for hedging, and guarding it with
+     * the circuit breaker if enabled.
+     *
+     * @param method   the HTTP method
+     * @param endpoint the endpoint
+     * @param params   the request parameters
+     * @param entity   the request body, or {@code null}
+     * @return the response, with any compressed body already decompressed
+     * @throws IOException if the request fails
+     * @see EsCompression
+     * @see EsHedging
+     * @see EsCircuitBreaker
+     */
+    public Response performRequest(String method, String endpoint, Map<String, String> params,
+                                   HttpEntity entity) throws IOException {
+        final RequestCategory category = RequestCategory.of(method, endpoint);
+        return execute(category, () -> performRequest(category, method, endpoint, params, entity));
+    }
+
+    /**
+     * Perform a request, such as a call to the high-level REST client, through the circuit breaker and
+     * bulkhead for its category. If the circuit breaker is not enabled, the request is performed directly.
+     *
+     * @param category the category of the request
+     * @param call     the request
+     * @param <T>      the type of the result
+     * @return the result of the request
+     * @throws io.dropwizard.elasticsearch.client.EsRequestRejectedException if the circuit breaker or bulkhead
+     *                                                                       rejected the request
+     * @throws IOException                                                   if the request fails
+     * @see EsCircuitBreaker
+     */
+    public <T> T execute(RequestCategory category, EsCircuitBreaker.IOCallable<T> call) throws IOException {
+        if (circuitBreaker == null) {
+            return call.call();
+        }
+        return circuitBreaker.execute(category, call);
+    }
+
+    private Response performRequest(RequestCategory category, String method, String endpoint, Map<String, String> params,
+                                    HttpEntity entity) throws IOException {
+        final RestClient restClient = getRestClient();
+        if (hedging != null) {
+            if (hedging.isHedged(category, method, endpoint, params)) {
+                // Give each attempt its own copy of the body
+                final Supplier<HttpEntity> body = EsHedging.copiesOf(entity);
+                return hedging.performRequest(category,
+                        listener -> restClient.performRequestAsync(method, endpoint, params, body.get(), listener));
+            }
+        }
+        return restClient.performRequest(method, endpoint, params, entity);
+    }
+
+    /**
+     * Perform a search with the high-level REST client, through the circuit breaker if enabled. If the query cache
+     * is enabled, a recent response to an identical search without extra headers is returned instead when there is
+     * one. If coalescing is enabled, identical concurrent searches without extra headers share a single request.
+     * Scroll searches are never cached or shared.
+     *
+     * @param request the search
+     * @param headers any extra request headers
+     * @return the response, which must not be modified if the query cache or coalescing is enabled
+     * @throws IOException if the search fails
+     * @see EsQueryCache
+     * @see EsRequestCoalescer
+     */
+    public SearchResponse search(SearchRequest request, Header... headers) throws IOException {
+        checkNotNull(restHighLevelClient, "search requires the REST client");
+        final EsCircuitBreaker.IOCallable<SearchResponse> call =
+                () -> execute(RequestCategory.SEARCH, () -> restHighLevelClient.search(request, headers));
+        // Each scroll search opens its own scroll context, so is never shared
+        final EsCircuitBreaker.IOCallable<SearchResponse> search = request.scroll() != null
+                ? call
+                : coalesce(RequestKey.of(request), headers, call);
+        // Searches with their own headers, such as per-user credentials, may see different results so are never cached
+        return queryCache == null || headers.length > 0 ? search.call() : queryCache.search(request, search);
+    }
+
+    /**
+     * Get a document with the high-level REST client, through the circuit breaker if enabled. If coalescing is
+     * enabled, identical concurrent gets without extra headers share a single request.
+     *
+     * @param request the get
+     * @param headers any extra request headers
+     * @return the response, which must not be modified if coalescing is enabled
+     * @throws IOException if the get fails
+     * @see EsRequestCoalescer
+     */
+    public GetResponse get(GetRequest request, Header... headers) throws IOException {
+        checkNotNull(restHighLevelClient, "get requires the REST client");
+        return coalesce(RequestKey.of(request), headers,
+                () -> execute(RequestCategory.GET, () -> restHighLevelClient.get(request, headers))).call();
+    }
+
+    private <T> EsCircuitBreaker.IOCallable<T> coalesce(RequestKey key, Header[] headers, EsCircuitBreaker.IOCallable<T> call) {
+        // Requests with their own headers, such as per-user credentials, are never shared
+        return coalescer == null || headers.length > 0 ? call : () -> coalescer.execute(key, call);
+    }
+
+    /**
+     * Get the cache of search results used by {@link #search(SearchRequest, Header...)}, for example to invalidate
+     * searches of an index after writing to it.
+     *
+     * @return the query cache, or {@code null} if it is not enabled or using the Transport client.
+     */
+    public EsQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Iterate over every hit of a search using a scroll, prefetching pages in the background as configured
+     * in {@link EsConfiguration#getScroll()}. The iterator must be closed to release the scroll context.
+     *
+     * @param request the search; its source's {@code size} is the page size
+     * @return an iterator over the hits
+     * @see EsSearchIterator#scroll(RestHighLevelClient, SearchRequest, TimeValue, int)
+     */
+    public EsSearchIterator scroll(SearchRequest request) {
+        checkNotNull(restHighLevelClient, "Scrolling requires the REST client");
+        return EsSearchIterator.scroll(restHighLevelClient, request,
+                TimeValue.timeValueMillis(scrollConfig.getKeepAliveMillis()), scrollConfig.getPrefetchPages());
+    }
+
+    /**
+     * Iterate over every hit of a sorted search using {@code search_after}, prefetching pages in the background
+     * as configured in {@link EsConfiguration#getScroll()}.
+     *
+     * @param request the search, sorted on fields which uniquely identify each document
+     * @return an iterator over the hits
+     * @see EsSearchIterator#searchAfter(RestHighLevelClient, SearchRequest, int)
+     */
+    public EsSearchIterator searchAfter(SearchRequest request) {
+        checkNotNull(restHighLevelClient, "search_after requires the REST client");
+        return EsSearchIterator.searchAfter(restHighLevelClient, request, scrollConfig.getPrefetchPages());
+    }
+
+    /**
+     * Create a bulk request body written into this client's pooled buffers, to send with
+     * {@link #performRequest(String, String, Map, HttpEntity)}. Close the body once the request has completed, or
+     * been given up on, to return its buffers to the pool when the body is no longer being sent.
+     *
+     * @return an empty bulk body
+     */
+    public BulkBody newBulkBody() {
+        checkNotNull(bulkBufferPool, "Bulk bodies require the REST client");
+        return new BulkBody(bulkBufferPool);
+    }
+
+    /**
+     * Get the non-blocking client, whose methods return {@link java.util.concurrent.CompletableFuture}s completed
+     * on the executor configured in {@link EsConfiguration#getAsync()}. The client and its executor are created
+     * on the first call.
+     *
+     * @return the async client, or {@code null} if using the Transport client.
+     */
+    public synchronized EsAsyncClient getAsyncClient() {
+        if (null == asyncClient && null != restHighLevelClient) {
+            asyncClient = new EsAsyncClient(restHighLevelClient, circuitBreaker, EsAsyncClient.newCallbackExecutor(asyncConfig));
+        }
+        return asyncClient;
+    }
+
+    /**
+     * Get the batcher which combines single-document gets made concurrently into {@code _mget} requests.
+     *
+     * @return the multi-get batcher, or {@code null} if it is not enabled or using the Transport client.
+     */
+    public EsMultiGetBatcher getMultiGetBatcher() {
+        return multiGetBatcher;
+    }
+
+    /**
+     * Get the sliced scroll, for exporting every hit of a search with several concurrent scrolls as configured
+     * in {@link EsConfiguration#getScroll()}.
+     *
+     * @return the sliced scroll, or {@code null} if using the Transport client.
+     */
+    public EsSlicedScroll getSlicedScroll() {
+        return slicedScroll;
+    }
+
+    /**
+     * Get the circuit breaker guarding requests sent through this client.
+     *
+     * @return the circuit breaker, or {@code null} if it is not enabled or using the Transport client.
+     */
+    public EsCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the managed bulk processor.
+     *
+     * @return the bulk processor, or {@code null} if bulk processing is not enabled or using the
+     * Transport client.
+     */
+    public ManagedBulkProcessor getBulkProcessor() {
+        return bulkProcessor;
+    }
+
+    /**
+     * Get the refresher for running health checks in the background. Health checks wrapped with
+     * {@link EsHealthCheckRefresher#cache(com.codahale.metrics.health.HealthCheck)} share a single refresh thread,
+     * which is stopped with this client.
+     *
+     * @return the health check refresher, or {@code null} if this client was created from an existing {@link Client}.
+     */
+    public EsHealthCheckRefresher getHealthCheckRefresher() {
+        return healthCheckRefresher;
+    }
+
+    private void closeHealthCheckRefresher() {
+        if (null != healthCheckRefresher) {
+            healthCheckRefresher.close();
+        }
+    }
+
+    private void closeHedging() {
+        if (null != hedging) {
+            hedging.close();
+        }
+    }
+
+    private synchronized void closeAsyncClient() {
+        if (null != asyncClient) {
+            asyncClient.close();
+        }
+    }
+
+    private void closeMultiGetBatcher() {
+        if (null != multiGetBatcher) {
+            multiGetBatcher.close();
+        }
+    }
+
+    private void closeSlicedScroll() {
+        if (null != slicedScroll) {
+            slicedScroll.close();
+        }
+    }
+
+    private void closeBulkProcessor() {
+        if (null != bulkProcessor) {
+            bulkProcessor.close();
+        }
+    }
+
 	private void closeClient() {
         if (null != client) {
             client.close();
@@ -201,6 +663,12 @@ public class ManagedEsClient implements Managed {
         }
     }
 
+    private void closeHostSelector() {
+        if (null != hostSelector) {
+            hostSelector.close();
+        }
+    }
+
     private void closeRestClient() throws IOException {
         if (null != restHighLevelClient) {
 			restHighLevelClient.close();
@@ -0,0 +1,165 @@
+package io.dropwizard.elasticsearch.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import io.dropwizard.elasticsearch.config.EsClustersConfiguration;
+import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.health.EsClusterHealthCheck;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Manages a {@link ManagedEsClient} for each of several named clusters, such as a search cluster and a logging
+ * cluster, with a shared lifecycle.
+ * <p>
+ * Each client has its own connection pools, sniffer, bulk processor and other components, and its metrics are
+ * prefixed with the cluster name, as {@code io.dropwizard.elasticsearch.managed.ManagedEsClient.<cluster>}.
+ * Reads and writes can be routed to different clusters with {@link #forReads()} and {@link #forWrites()}, for
+ * example to keep heavy analytic reads off the cluster serving latency-critical writes.
+ */
+public class ManagedEsClusters implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManagedEsClusters.class);
+
+    private final Map<String, ManagedEsClient> clients = new LinkedHashMap<>();
+    private final String readCluster;
+    private final String writeCluster;
+
+    /**
+     * Create a client for each configured cluster.
+     *
+     * @param config  a valid {@link EsClustersConfiguration} instance
+     * @param metrics the registry to add client metrics to, usually {@code environment.metrics()}
+     * @throws IOException if a settings file has been specified for a cluster and cannot be read.
+     */
+    public ManagedEsClusters(final EsClustersConfiguration config, final MetricRegistry metrics) throws IOException {
+        checkNotNull(config, "EsClustersConfiguration must not be null");
+        checkNotNull(metrics, "MetricRegistry must not be null");
+        checkArgument(!config.getClusters().isEmpty(), "At least one cluster must be configured");
+        checkArgument(config.isValidRouting(), "readCluster and writeCluster must name configured clusters");
+
+        try {
+            for (Map.Entry<String, EsConfiguration> cluster : config.getClusters().entrySet()) {
+                clients.put(cluster.getKey(), new ManagedEsClient(cluster.getValue(), metrics,
+                        MetricRegistry.name(ManagedEsClient.class, cluster.getKey())));
+            }
+        } catch (IOException | RuntimeException e) {
+            stopClients();
+            throw e;
+        }
+
+        final String onlyCluster = clients.size() == 1 ? clients.keySet().iterator().next() : null;
+        this.readCluster = config.getReadCluster() != null ? config.getReadCluster() : onlyCluster;
+        this.writeCluster = config.getWriteCluster() != null ? config.getWriteCluster() : onlyCluster;
+    }
+
+    /**
+     * @param name the name of a configured cluster.
+     * @return the client for the cluster.
+     * @throws IllegalArgumentException if there is no cluster with the name.
+     */
+    public ManagedEsClient get(String name) {
+        final ManagedEsClient client = clients.get(name);
+        checkArgument(client != null, "No Elasticsearch cluster named %s", name);
+        return client;
+    }
+
+    /**
+     * @return the names of the configured clusters, in configuration order.
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(clients.keySet());
+    }
+
+    /**
+     * @return the client for the cluster configured as {@code readCluster}, or the only cluster.
+     * @throws IllegalStateException if several clusters are configured without a {@code readCluster}.
+     */
+    public ManagedEsClient forReads() {
+        checkState(readCluster != null, "No readCluster has been configured");
+        return clients.get(readCluster);
+    }
+
+    /**
+     * @return the client for the cluster configured as {@code writeCluster}, or the only cluster.
+     * @throws IllegalStateException if several clusters are configured without a {@code writeCluster}.
+     */
+    public ManagedEsClient forWrites() {
+        checkState(writeCluster != null, "No writeCluster has been configured");
+        return clients.get(writeCluster);
+    }
+
+    /**
+     * Register an {@link EsClusterHealthCheck} for each cluster, named {@code elasticsearch.<cluster>}. Each check is
+     * refreshed in the background by its client's {@link ManagedEsClient#getHealthCheckRefresher() refresher}, and
+     * also reports the cluster's circuit breaker if it is enabled.
+     *
+     * @param registry     the registry to add the health checks to, usually {@code environment.healthChecks()}
+     * @param failOnYellow whether a {@code YELLOW} cluster status should be reported as unhealthy
+     */
+    public void registerHealthChecks(HealthCheckRegistry registry, boolean failOnYellow) {
+        clients.forEach((name, client) -> {
+            final HealthCheck check;
+            if (client.getRestHighLevelClient() == null) {
+                check = new EsClusterHealthCheck(client.getClient(), failOnYellow);
+            } else if (client.getCircuitBreaker() == null) {
+                check = new EsClusterHealthCheck(client.getRestHighLevelClient(), failOnYellow);
+            } else {
+                check = new EsClusterHealthCheck(client.getRestHighLevelClient(), failOnYellow, client.getCircuitBreaker());
+            }
+            registry.register(MetricRegistry.name("elasticsearch", name), client.getHealthCheckRefresher().cache(check));
+        });
+    }
+
+    /**
+     * Start every cluster's client, such as warming up its connections.
+     *
+     * @throws Exception if a client fails to start; this will halt the service startup.
+     */
+    @Override
+    public void start() throws Exception {
+        for (ManagedEsClient client : clients.values()) {
+            client.start();
+        }
+    }
+
+    /**
+     * Stop every cluster's client. Every client is stopped even if stopping another fails.
+     *
+     * @throws Exception the first failure to stop a client.
+     */
+    @Override
+    public void stop() throws Exception {
+        final Exception failure = stopClients();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Exception stopClients() {
+        Exception failure = null;
+        for (Map.Entry<String, ManagedEsClient> client : clients.entrySet()) {
+            try {
+                client.getValue().stop();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to stop Elasticsearch client for cluster {}", client.getKey(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        return failure;
+    }
+}
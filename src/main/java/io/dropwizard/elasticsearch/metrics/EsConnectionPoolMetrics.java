@@ -0,0 +1,99 @@
+package io.dropwizard.elasticsearch.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import io.dropwizard.elasticsearch.client.RequestListener;
+import io.dropwizard.elasticsearch.util.HttpRouteHelper;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.reactor.IOReactor;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Gauges for the connection pool and IO reactor underlying the REST client.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.pool}:
+ * <ul>
+ * <li>{@code leased}, {@code available}, {@code pending} and {@code max} - totals for the whole pool</li>
+ * <li>{@code routes.<host:port>.leased}, {@code .available} and {@code .pending} - per target host</li>
+ * <li>{@code io-reactor.status} - the status of the IO reactor</li>
+ * </ul>
+ * Route gauges are registered for the configured hosts up front, and for any other host (such as those
+ * found by the sniffer) the first time a request is sent to it. A host without a port is reported under the
+ * default port of its scheme.
+ * <p>
+ * Gauges which already exist in the registry are kept, and a warning is logged, since they report another
+ * client's pool. Clients sharing a registry should use different prefixes.
+ */
+public class EsConnectionPoolMetrics implements RequestListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EsConnectionPoolMetrics.class);
+
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final Set<HttpHost> registeredHosts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Register the pool gauges.
+     *
+     * @param metrics           the registry to add the gauges to.
+     * @param metricPrefix      the prefix for the metric names.
+     * @param connectionManager the connection manager used by the REST client.
+     * @param ioReactor         the IO reactor used by the connection manager.
+     * @param hosts             the initially configured hosts.
+     */
+    public EsConnectionPoolMetrics(MetricRegistry metrics, String metricPrefix,
+                                   PoolingNHttpClientConnectionManager connectionManager, IOReactor ioReactor,
+                                   HttpHost... hosts) {
+        this.metrics = checkNotNull(metrics, "MetricRegistry must not be null");
+        this.connectionManager = checkNotNull(connectionManager, "Connection manager must not be null");
+        this.prefix = MetricRegistry.name(metricPrefix, "pool");
+
+        registerStats(prefix, manager -> manager.getTotalStats());
+        register(MetricRegistry.name(prefix, "max"), () -> connectionManager.getTotalStats().getMax());
+        register(MetricRegistry.name(prefix, "io-reactor", "status"), () -> ioReactor.getStatus().name());
+
+        for (HttpHost host : hosts) {
+            registerHost(host);
+        }
+    }
+
+    @Override
+    public void onRequest(HttpHost host, RequestCategory category) {
+        if (host != null && !registeredHosts.contains(HttpRouteHelper.withDefaultPort(host))) {
+            registerHost(host);
+        }
+    }
+
+    private void registerHost(HttpHost host) {
+        final HttpRoute route = HttpRouteHelper.routeTo(host);
+        if (registeredHosts.add(route.getTargetHost())) {
+            registerStats(MetricRegistry.name(prefix, "routes", route.getTargetHost().toHostString()),
+                    manager -> manager.getStats(route));
+        }
+    }
+
+    private void registerStats(String name, Function<PoolingNHttpClientConnectionManager, PoolStats> stats) {
+        register(MetricRegistry.name(name, "leased"), () -> stats.apply(connectionManager).getLeased());
+        register(MetricRegistry.name(name, "available"), () -> stats.apply(connectionManager).getAvailable());
+        register(MetricRegistry.name(name, "pending"), () -> stats.apply(connectionManager).getPending());
+    }
+
+    private <T> void register(String name, Gauge<T> gauge) {
+        if (metrics.gauge(name, () -> gauge) != gauge) {
+            LOGGER.warn("Gauge {} is already registered, probably by another client with the same metric prefix, "
+                    + "so it does not report this client's connection pool", name);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.dropwizard.elasticsearch.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import io.dropwizard.elasticsearch.client.RequestListener;
+import org.apache.http.HttpHost;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link RequestListener} recording Dropwizard metrics for every request sent by the REST client.
+ * <p>
+ * The following metrics are registered below {@code <prefix>.requests}:
+ * <ul>
+ * <li>{@code <category>} - a timer per {@link RequestCategory}</li>
+ * <li>{@code hosts.<host:port>} - a timer per target host, if enabled</li>
+ * <li>{@code responses.<n>xx} - a meter per HTTP status class</li>
+ * <li>{@code host-failures} - a meter of requests which failed without a response, so that the REST client
+ * marked their host as dead; error responses are counted in {@code responses.<n>xx} instead</li>
+ * <li>{@code request-size} and {@code response-size} - histograms of body sizes, where known</li>
+ * </ul>
+ * All metrics except the per-host timers are created up front, so recording a response does not look them up
+ * in the registry.
+ */
+public class EsRequestMetrics implements RequestListener {
+
+    private final MetricRegistry metrics;
+    private final String prefix;
+    private final boolean perHost;
+
+    private final Timer[] categoryTimers;
+    private final Meter[] statusMeters;
+    private final Meter hostFailures;
+    private final Histogram requestSizes;
+    private final Histogram responseSizes;
+    private final ConcurrentMap<HttpHost, Timer> hostTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Construct the request metrics.
+     *
+     * @param metrics      the registry to add the metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     * @param perHost      whether to record a timer for each target host.
+     */
+    public EsRequestMetrics(MetricRegistry metrics, String metricPrefix, boolean perHost) {
+        this.metrics = checkNotNull(metrics, "MetricRegistry must not be null");
+        this.prefix = MetricRegistry.name(metricPrefix, "requests");
+        this.perHost = perHost;
+
+        final RequestCategory[] categories = RequestCategory.values();
+        this.categoryTimers = new Timer[categories.length];
+        for (RequestCategory category : categories) {
+            categoryTimers[category.ordinal()] = metrics.timer(MetricRegistry.name(prefix, category.name().toLowerCase(Locale.ROOT)));
+        }
+
+        this.statusMeters = new Meter[6];
+        for (int i = 1; i < statusMeters.length; i++) {
+            statusMeters[i] = metrics.meter(MetricRegistry.name(prefix, "responses", i + "xx"));
+        }
+
+        this.hostFailures = metrics.meter(MetricRegistry.name(prefix, "host-failures"));
+        this.requestSizes = metrics.histogram(MetricRegistry.name(prefix, "request-size"));
+        this.responseSizes = metrics.histogram(MetricRegistry.name(prefix, "response-size"));
+    }
+
+    @Override
+    public void onResponse(HttpHost host, RequestCategory category, int statusCode, long durationNanos,
+                           long requestBytes, long responseBytes) {
+        categoryTimers[category.ordinal()].update(durationNanos, TimeUnit.NANOSECONDS);
+        if (perHost && host != null) {
+            hostTimer(host).update(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        final int statusClass = statusCode / 100;
+        if (statusClass > 0 && statusClass < statusMeters.length) {
+            statusMeters[statusClass].mark();
+        }
+
+        if (requestBytes >= 0) {
+            requestSizes.update(requestBytes);
+        }
+        if (responseBytes >= 0) {
+            responseSizes.update(responseBytes);
+        }
+    }
+
+    @Override
+    public void onFailure(HttpHost host) {
+        hostFailures.mark();
+    }
+
+    private Timer hostTimer(HttpHost host) {
+        final Timer timer = hostTimers.get(host);
+        if (timer != null) {
+            return timer;
+        }
+        return hostTimers.computeIfAbsent(host, h -> metrics.timer(MetricRegistry.name(prefix, "hosts", h.toHostString())));
+    }
+}
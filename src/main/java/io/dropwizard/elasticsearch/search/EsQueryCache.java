@@ -0,0 +1,203 @@
+package io.dropwizard.elasticsearch.search;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import io.dropwizard.elasticsearch.client.EsCircuitBreaker;
+import io.dropwizard.elasticsearch.client.RequestKey;
+import io.dropwizard.elasticsearch.config.EsQueryCacheConfiguration;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A size-bounded cache of search responses, for searches which are repeated within a short time, such as
+ * autocomplete or landing pages.
+ * <p>
+ * Searches are keyed with {@link RequestKey}, on their indices, options and a hash of the serialized search source,
+ * so identical searches built separately share an entry. Entries expire after the TTL of their index, or the shortest
+ * TTL when a search covers several indices; indices are matched by name, not by pattern. The least recently used
+ * entries are evicted once the cache is full. Scroll searches are never cached.
+ * <p>
+ * A response is only cached if none of its indices was invalidated while its search was in flight, so a search
+ * which started before an index was written to cannot put a stale response back after the invalidation. Searches
+ * of every index, of {@code _all} or of a wildcard pattern may cover any index, so invalidating any index removes
+ * them too.
+ * <p>
+ * Cached responses are shared between callers, so must not be modified. Hits, misses and evictions are recorded in
+ * the meters {@code <prefix>.query-cache.hits}, {@code .misses} and {@code .evictions}, and the number of entries
+ * in the gauge {@code <prefix>.query-cache.size}.
+ */
+public class EsQueryCache {
+
+    private final Cache<RequestKey, Entry> cache;
+    private final long defaultTtlNanos;
+    private final Map<String, Long> indexTtlMillis;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, AtomicLong> indexGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong anyGeneration = new AtomicLong();
+    private final AtomicLong allGeneration = new AtomicLong();
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+
+    /**
+     * Construct the cache.
+     *
+     * @param config       the cache configuration.
+     * @param metrics      the registry to add the cache metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsQueryCache(EsQueryCacheConfiguration config, MetricRegistry metrics, String metricPrefix) {
+        this(config, metrics, metricPrefix, System::nanoTime);
+    }
+
+    EsQueryCache(EsQueryCacheConfiguration config, MetricRegistry metrics, String metricPrefix, LongSupplier nanoClock) {
+        checkNotNull(config, "EsQueryCacheConfiguration must not be null");
+        this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(config.getTtlMillis());
+        this.indexTtlMillis = config.getIndexTtlMillis();
+        this.nanoClock = nanoClock;
+        final String prefix = MetricRegistry.name(metricPrefix, "query-cache");
+        this.hits = metrics.meter(MetricRegistry.name(prefix, "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(prefix, "misses"));
+        this.evictions = metrics.meter(MetricRegistry.name(prefix, "evictions"));
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                // A single segment, so that eviction is least recently used across the whole cache
+                .concurrencyLevel(1)
+                .<RequestKey, Entry>removalListener(removal -> {
+                    if (removal.getCause() == RemovalCause.SIZE) {
+                        evictions.mark();
+                    }
+                })
+                .build();
+        metrics.gauge(MetricRegistry.name(prefix, "size"), () -> (Gauge<Long>) cache::size);
+    }
+
+    /**
+     * Return the cached response to a search, or perform the search and cache its response.
+     *
+     * @param request the search.
+     * @param search  performs the search on a miss.
+     * @return the response, which must not be modified.
+     * @throws IOException if the search fails.
+     */
+    public SearchResponse search(SearchRequest request, EsCircuitBreaker.IOCallable<SearchResponse> search) throws IOException {
+        if (request.scroll() != null) {
+            return search.call();
+        }
+
+        final RequestKey key = RequestKey.of(request);
+        final long now = nanoClock.getAsLong();
+        final Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (now - cached.expiresAt < 0) {
+                hits.mark();
+                return cached.response;
+            }
+            cache.asMap().remove(key, cached);
+        }
+
+        misses.mark();
+        final long searchGeneration = generation(key.getIndices());
+        final SearchResponse response = search.call();
+        if (generation(key.getIndices()) == searchGeneration) {
+            final Entry entry = new Entry(response, now + ttlNanos(request.indices()));
+            cache.put(key, entry);
+            // An invalidation may have removed entries between the check and the put
+            if (generation(key.getIndices()) != searchGeneration) {
+                cache.asMap().remove(key, entry);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Remove every cached search which covers the given index, for example after it has been written to. This
+     * includes searches of every index, of {@code _all} and of wildcard patterns.
+     *
+     * @param index the index name.
+     */
+    public void invalidate(String index) {
+        indexGenerations.computeIfAbsent(index, i -> new AtomicLong()).incrementAndGet();
+        anyGeneration.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.getIndices().contains(index) || coversAnyIndex(key.getIndices()));
+    }
+
+    /**
+     * Remove every cached search.
+     */
+    public void invalidateAll() {
+        allGeneration.incrementAndGet();
+        anyGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the number of cached searches.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * The generations only increase, so the sum for a search changes whenever one of its indices is invalidated.
+     */
+    private long generation(List<String> indices) {
+        if (coversAnyIndex(indices)) {
+            return anyGeneration.get();
+        }
+        long generation = allGeneration.get();
+        for (String index : indices) {
+            final AtomicLong indexGeneration = indexGenerations.get(index);
+            if (indexGeneration != null) {
+                generation += indexGeneration.get();
+            }
+        }
+        return generation;
+    }
+
+    private static boolean coversAnyIndex(List<String> indices) {
+        if (indices.isEmpty()) {
+            return true;
+        }
+        for (String index : indices) {
+            if ("_all".equals(index) || index.indexOf('*') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long ttlNanos(String[] indices) {
+        long ttl = Long.MAX_VALUE;
+        for (String index : indices) {
+            final Long indexTtl = indexTtlMillis.get(index);
+            ttl = Math.min(ttl, indexTtl == null ? defaultTtlNanos : TimeUnit.MILLISECONDS.toNanos(indexTtl));
+        }
+        return ttl == Long.MAX_VALUE ? defaultTtlNanos : ttl;
+    }
+
+    private static class Entry {
+        private final SearchResponse response;
+        private final long expiresAt;
+
+        private Entry(SearchResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
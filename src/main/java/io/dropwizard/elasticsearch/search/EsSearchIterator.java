@@ -0,0 +1,270 @@
+package io.dropwizard.elasticsearch.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Iterates over every hit of a search, fetching pages with the high-level REST client's asynchronous API.
+ * <p>
+ * While the caller works through one page, the following pages are fetched in the background, up to
+ * {@code prefetchPages} buffered pages, so the caller rarely waits for the cluster and memory use stays
+ * bounded. Pages are fetched one at a time, since each depends on the last.
+ * <p>
+ * Two paging modes are supported:
+ * <ul>
+ * <li>{@link #scroll} keeps a scroll context open on the cluster. The context is cleared when the iterator
+ * is closed or exhausted, so iterators should always be closed, for example with try-with-resources.</li>
+ * <li>{@link #searchAfter} pages with {@code search_after}, which keeps no state on the cluster. The request
+ * must be sorted on fields which uniquely identify each document, such as a timestamp with the document ID
+ * as a tie-breaker, so that pages are stable while the index changes. The request's source is updated as
+ * pages are fetched.</li>
+ * </ul>
+ * The iterator itself is not thread-safe.
+ */
+public class EsSearchIterator implements Iterator<SearchHit>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EsSearchIterator.class);
+    private static final SearchHit[] NO_HITS = new SearchHit[0];
+
+    private final RestHighLevelClient client;
+    private final SearchRequest request;
+    private final TimeValue keepAlive;
+    private final int prefetchPages;
+    private final int pageSize;
+
+    private final Queue<SearchHit[]> buffered = new ArrayDeque<>();
+    private boolean fetching;
+    private boolean exhausted;
+    private boolean closed;
+    private Exception failure;
+    private String scrollId;
+
+    private SearchHit[] page = NO_HITS;
+    private int pageIndex;
+
+    private EsSearchIterator(RestHighLevelClient client, SearchRequest request, TimeValue keepAlive, int prefetchPages) {
+        checkArgument(prefetchPages > 0, "prefetchPages must be positive");
+        this.client = checkNotNull(client, "RestHighLevelClient must not be null");
+        this.request = checkNotNull(request, "SearchRequest must not be null");
+        this.keepAlive = keepAlive;
+        this.prefetchPages = prefetchPages;
+        final SearchSourceBuilder source = request.source();
+        this.pageSize = source == null || source.size() < 0 ? 10 : source.size();
+    }
+
+    /**
+     * Page through a search with a scroll. The first page is requested immediately.
+     *
+     * @param client        the high-level REST client.
+     * @param request       the search; its source's {@code size} is the page size.
+     * @param keepAlive     how long the cluster keeps the scroll context between pages.
+     * @param prefetchPages the maximum number of pages to buffer ahead of the caller.
+     * @return the iterator.
+     */
+    public static EsSearchIterator scroll(RestHighLevelClient client, SearchRequest request, TimeValue keepAlive,
+                                          int prefetchPages) {
+        checkNotNull(keepAlive, "keepAlive must not be null");
+        request.scroll(keepAlive);
+        final EsSearchIterator iterator = new EsSearchIterator(client, request, keepAlive, prefetchPages);
+        iterator.start();
+        return iterator;
+    }
+
+    /**
+     * Page through a search with {@code search_after}. The first page is requested immediately.
+     *
+     * @param client        the high-level REST client.
+     * @param request       the search, which must be sorted; its source's {@code size} is the page size.
+     * @param prefetchPages the maximum number of pages to buffer ahead of the caller.
+     * @return the iterator.
+     */
+    public static EsSearchIterator searchAfter(RestHighLevelClient client, SearchRequest request, int prefetchPages) {
+        checkArgument(request.source() != null && request.source().sorts() != null && !request.source().sorts().isEmpty(),
+                "search_after requires a sorted search");
+        final EsSearchIterator iterator = new EsSearchIterator(client, request, null, prefetchPages);
+        iterator.start();
+        return iterator;
+    }
+
+    /**
+     * @return a sequential stream of the remaining hits, which closes this iterator when closed.
+     */
+    public Stream<SearchHit> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (pageIndex >= page.length) {
+            final SearchHit[] next = takePage();
+            if (next == null) {
+                close();
+                return false;
+            }
+            page = next;
+            pageIndex = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public SearchHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page[pageIndex++];
+    }
+
+    /**
+     * Stop fetching pages and clear the scroll context, if any. Pages already fetched are discarded.
+     */
+    @Override
+    public void close() {
+        final String scrollToClear;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffered.clear();
+            notifyAll();
+            // A fetch in flight clears its own scroll when it completes
+            scrollToClear = fetching ? null : scrollId;
+        }
+        page = NO_HITS;
+        clearScroll(scrollToClear);
+    }
+
+    private void start() {
+        synchronized (this) {
+            fetching = true;
+        }
+        client.searchAsync(request, new PageListener());
+    }
+
+    private synchronized SearchHit[] takePage() {
+        while (buffered.isEmpty()) {
+            if (failure != null) {
+                throw propagate(failure);
+            } else if (exhausted || closed) {
+                return null;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("Interrupted waiting for search results", e));
+            }
+        }
+        final SearchHit[] next = buffered.remove();
+        fetchNextIfRoom();
+        return next;
+    }
+
+    private void fetchNextIfRoom() {
+        assert Thread.holdsLock(this);
+        if (!fetching && !exhausted && !closed && failure == null && buffered.size() < prefetchPages) {
+            fetching = true;
+            if (keepAlive != null) {
+                client.searchScrollAsync(new SearchScrollRequest(scrollId).scroll(keepAlive), new PageListener());
+            } else {
+                client.searchAsync(request, new PageListener());
+            }
+        }
+    }
+
+    private void clearScroll(String id) {
+        if (id == null) {
+            return;
+        }
+        final ClearScrollRequest clearScroll = new ClearScrollRequest();
+        clearScroll.addScrollId(id);
+        client.clearScrollAsync(clearScroll, new ActionListener<ClearScrollResponse>() {
+            @Override
+            public void onResponse(ClearScrollResponse response) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                LOGGER.warn("Failed to clear scroll", e);
+            }
+        });
+    }
+
+    private static RuntimeException propagate(Exception e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        return new UncheckedIOException(e instanceof IOException ? (IOException) e : new IOException(e));
+    }
+
+    private class PageListener implements ActionListener<SearchResponse> {
+
+        @Override
+        public void onResponse(SearchResponse response) {
+            final SearchHit[] hits = response.getHits().getHits();
+            String scrollToClear = null;
+            synchronized (EsSearchIterator.this) {
+                fetching = false;
+                if (keepAlive != null) {
+                    scrollId = response.getScrollId();
+                }
+                if (closed) {
+                    scrollToClear = scrollId;
+                } else {
+                    if (hits.length > 0) {
+                        buffered.add(hits);
+                    }
+                    if (hits.length == 0 || (keepAlive == null && hits.length < pageSize)) {
+                        exhausted = true;
+                    } else if (keepAlive == null) {
+                        request.source().searchAfter(hits[hits.length - 1].getSortValues());
+                    }
+                    fetchNextIfRoom();
+                    EsSearchIterator.this.notifyAll();
+                }
+            }
+            clearScroll(scrollToClear);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            String scrollToClear = null;
+            synchronized (EsSearchIterator.this) {
+                fetching = false;
+                failure = e;
+                if (closed) {
+                    scrollToClear = scrollId;
+                }
+                EsSearchIterator.this.notifyAll();
+            }
+            clearScroll(scrollToClear);
+        }
+    }
+}
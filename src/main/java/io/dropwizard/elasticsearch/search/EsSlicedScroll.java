@@ -0,0 +1,173 @@
+package io.dropwizard.elasticsearch.search;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.elasticsearch.config.EsScrollConfiguration;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Exports every hit of a search by splitting it into sliced scrolls which are read concurrently.
+ * <p>
+ * Each slice is read by its own thread with an {@link EsSearchIterator}, which prefetches a bounded number of pages,
+ * and its hits are passed to the consumer on that thread. A slow consumer therefore holds back its slice's scroll
+ * rather than letting hits pile up in memory. Each export has its own threads, which are stopped when it
+ * finishes, so concurrent exports do not wait for each other and no threads are kept while idle.
+ * <p>
+ * The number of hits read from each slice is recorded in the meter {@code <prefix>.scroll.slices.<slice>.hits},
+ * and from all slices in {@code <prefix>.scroll.hits}.
+ */
+public class EsSlicedScroll implements Closeable {
+
+    private final RestHighLevelClient client;
+    private final TimeValue keepAlive;
+    private final int prefetchPages;
+    private final int slices;
+    private final int pageSize;
+    private final MetricRegistry metrics;
+    private final String metricPrefix;
+    private final Meter hits;
+    private final Set<ExecutorService> exports = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Construct the sliced scroll.
+     *
+     * @param client       the high-level REST client.
+     * @param config       the scroll configuration, giving the number of slices and their page size.
+     * @param metrics      the registry to add the throughput metrics to.
+     * @param metricPrefix the prefix for the metric names.
+     */
+    public EsSlicedScroll(RestHighLevelClient client, EsScrollConfiguration config, MetricRegistry metrics,
+                          String metricPrefix) {
+        this.client = checkNotNull(client, "RestHighLevelClient must not be null");
+        checkNotNull(config, "EsScrollConfiguration must not be null");
+        this.keepAlive = TimeValue.timeValueMillis(config.getKeepAliveMillis());
+        this.prefetchPages = config.getPrefetchPages();
+        this.slices = config.getSlices();
+        this.pageSize = config.getSlicePageSize();
+        this.metrics = metrics;
+        this.metricPrefix = MetricRegistry.name(metricPrefix, "scroll");
+        this.hits = metrics.meter(MetricRegistry.name(this.metricPrefix, "hits"));
+    }
+
+    /**
+     * Read every hit of a search, passing each to the consumer, and wait for all slices to finish. The consumer
+     * is called concurrently from each slice's thread, so must be thread-safe.
+     * <p>
+     * If a slice fails, or the consumer throws, the other slices are stopped and their scrolls cleared.
+     *
+     * @param request  the search. Its source's {@code size} and any slice are replaced.
+     * @param consumer receives every hit.
+     * @return the number of hits read.
+     * @throws IOException if a slice fails, or the calling thread is interrupted.
+     */
+    public long export(SearchRequest request, Consumer<SearchHit> consumer) throws IOException {
+        checkNotNull(request, "SearchRequest must not be null");
+        checkNotNull(consumer, "Consumer must not be null");
+        final ExecutorService executor = Executors.newFixedThreadPool(slices, new ThreadFactoryBuilder()
+                .setNameFormat("elasticsearch-scroll-slice-%d")
+                .setDaemon(true)
+                .build());
+        exports.add(executor);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final List<Future<Long>> results = new ArrayList<>(slices);
+        long total = 0;
+        Throwable failure = null;
+        try {
+            for (int slice = 0; slice < slices; slice++) {
+                final SearchRequest sliceRequest = sliceRequest(request, slice);
+                final Meter sliceHits = metrics.meter(MetricRegistry.name(metricPrefix, "slices", Integer.toString(slice), "hits"));
+                results.add(executor.submit(() -> readSlice(sliceRequest, consumer, sliceHits, stopped)));
+            }
+
+            for (Future<Long> result : results) {
+                try {
+                    total += result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        stopped.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped.set(true);
+                    results.forEach(r -> r.cancel(true));
+                    throw new IOException("Interrupted waiting for sliced scroll", e);
+                }
+            }
+        } finally {
+            exports.remove(executor);
+            executor.shutdown();
+        }
+
+        if (failure instanceof UncheckedIOException) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+        return total;
+    }
+
+    private long readSlice(SearchRequest request, Consumer<SearchHit> consumer, Meter sliceHits, AtomicBoolean stopped) {
+        long count = 0;
+        try (EsSearchIterator iterator = EsSearchIterator.scroll(client, request, keepAlive, prefetchPages)) {
+            while (!stopped.get() && iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                sliceHits.mark();
+                hits.mark();
+                count++;
+            }
+        } catch (RuntimeException e) {
+            stopped.set(true);
+            throw e;
+        }
+        return count;
+    }
+
+    private SearchRequest sliceRequest(SearchRequest request, int slice) {
+        final SearchSourceBuilder source = request.source() == null ? new SearchSourceBuilder() : request.source();
+        final SearchSourceBuilder sliceSource = slices > 1
+                ? source.copyWithNewSlice(new SliceBuilder(slice, slices))
+                : source.copyWithNewSlice(null);
+        return new SearchRequest(request.indices(), sliceSource.size(pageSize))
+                .types(request.types())
+                .routing(request.routing())
+                .preference(request.preference())
+                .indicesOptions(request.indicesOptions());
+    }
+
+    /**
+     * Stop any exports in progress.
+     */
+    @Override
+    public void close() {
+        exports.forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -0,0 +1,41 @@
+package io.dropwizard.elasticsearch.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Helper class for narrowing Elasticsearch REST responses with the {@code filter_path} parameter.
+ *
+ * @see <a href="https://www.elastic.co/guide/en/elasticsearch/reference/6.2/common-options.html#common-options-response-filtering">Response Filtering</a>
+ */
+public class FilterPathHelper {
+    public static final String FILTER_PATH_PARAM = "filter_path";
+
+    /**
+     * Build request parameters containing only a {@code filter_path}.
+     *
+     * @param filterPaths one or more paths to keep in the response, such as {@code indices.*.primaries.docs.count}
+     * @return an immutable map of request parameters
+     */
+    public static Map<String, String> filterPathParams(final String... filterPaths) {
+        return withFilterPath(Collections.emptyMap(), filterPaths);
+    }
+
+    /**
+     * Add a {@code filter_path} to a set of request parameters. Any existing {@code filter_path} is replaced.
+     *
+     * @param params      the existing request parameters
+     * @param filterPaths one or more paths to keep in the response
+     * @return an immutable copy of {@code params} including the filter path
+     */
+    public static Map<String, String> withFilterPath(final Map<String, String> params, final String... filterPaths) {
+        checkArgument(filterPaths.length > 0, "At least one filter path must be given");
+
+        final Map<String, String> filtered = new HashMap<>(params);
+        filtered.put(FILTER_PATH_PARAM, String.join(",", filterPaths));
+        return Collections.unmodifiableMap(filtered);
+    }
+}
@@ -0,0 +1,42 @@
+package io.dropwizard.elasticsearch.util;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+
+/**
+ * Helper class for building the {@link HttpRoute} the Apache async HTTP client uses for a host, so that
+ * per-route connection pool statistics can be looked up.
+ */
+public class HttpRouteHelper {
+    private static final int DEFAULT_HTTP_PORT = 80;
+    private static final int DEFAULT_HTTPS_PORT = 443;
+
+    /**
+     * Build the direct route to a host. A host without a port, such as {@code https://es.example.com}, is given the
+     * default port of its scheme, as the HTTP client's route planner does; otherwise the route would never match a
+     * route in the connection pool.
+     *
+     * @param host the target host
+     * @return the route to {@code host}, without a proxy or local address
+     */
+    public static HttpRoute routeTo(final HttpHost host) {
+        return new HttpRoute(withDefaultPort(host), null, isSecure(host));
+    }
+
+    /**
+     * Give a host without a port the default port of its scheme.
+     *
+     * @param host the host
+     * @return {@code host} itself if it has a port, otherwise the same host with its scheme's default port
+     */
+    public static HttpHost withDefaultPort(final HttpHost host) {
+        if (host.getPort() > 0) {
+            return host;
+        }
+        return new HttpHost(host.getHostName(), isSecure(host) ? DEFAULT_HTTPS_PORT : DEFAULT_HTTP_PORT, host.getSchemeName());
+    }
+
+    private static boolean isSecure(final HttpHost host) {
+        return "https".equalsIgnoreCase(host.getSchemeName());
+    }
+}
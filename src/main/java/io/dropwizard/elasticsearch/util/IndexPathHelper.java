@@ -0,0 +1,68 @@
+package io.dropwizard.elasticsearch.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Helper class for building REST endpoints which address several indices, such as {@code /index1,index2/_stats}.
+ * <p>
+ * Each index name is URL-encoded, so date math names such as {@code <logs-{now/d}>} can be used. Elasticsearch
+ * rejects request lines longer than {@code http.max_initial_line_length} (4kb by default), so the indices are
+ * split across as many endpoints as needed to keep each path within {@link #MAX_PATH_LENGTH}, leaving room for
+ * the method, query string and protocol.
+ */
+public class IndexPathHelper {
+    public static final int MAX_PATH_LENGTH = 3072;
+
+    /**
+     * Build the endpoints addressing a list of indices.
+     *
+     * @param indices one or more index names or patterns
+     * @param suffix  the path following the indices, such as {@code /_stats/docs}, or an empty string
+     * @return one or more endpoints which together address every index in {@code indices}
+     * @throws IllegalArgumentException if {@code indices} is empty, or a single index would exceed the maximum length
+     */
+    public static List<String> indexPaths(final List<String> indices, final String suffix) {
+        return indexPaths(indices, suffix, MAX_PATH_LENGTH);
+    }
+
+    static List<String> indexPaths(final List<String> indices, final String suffix, final int maxPathLength) {
+        checkArgument(!indices.isEmpty(), "At least one index must be given");
+
+        final List<String> paths = new ArrayList<>();
+        final StringBuilder path = new StringBuilder(Math.min(maxPathLength, 256));
+        for (String index : indices) {
+            final String encoded = encodeIndex(index);
+            checkArgument(1 + encoded.length() + suffix.length() <= maxPathLength,
+                    "The path for index %s would exceed %s characters", index, maxPathLength);
+
+            if (path.length() > 0 && path.length() + 1 + encoded.length() + suffix.length() > maxPathLength) {
+                paths.add(path.append(suffix).toString());
+                path.setLength(0);
+            }
+            path.append(path.length() == 0 ? '/' : ',').append(encoded);
+        }
+        paths.add(path.append(suffix).toString());
+        return paths;
+    }
+
+    /**
+     * URL-encode an index name for use as a path segment.
+     *
+     * @param index the index name or pattern
+     * @return the encoded name; wildcards are left as they are
+     */
+    public static String encodeIndex(final String index) {
+        try {
+            // URLEncoder encodes for forms, where a space is a '+'
+            return URLEncoder.encode(index, StandardCharsets.UTF_8.name()).replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
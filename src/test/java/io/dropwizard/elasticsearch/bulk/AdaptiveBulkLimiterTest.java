@@ -0,0 +1,224 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsBulkConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link AdaptiveBulkLimiter}.
+ */
+public class AdaptiveBulkLimiterTest {
+
+    private static final BulkResponse SUCCESS = new BulkResponse(new BulkItemResponse[0], 1L);
+    private static final BulkResponse REJECTED = new BulkResponse(new BulkItemResponse[]{
+            BulkItemResponse.failure(0, DocWriteRequest.OpType.INDEX,
+                    new BulkItemResponse.Failure("index", "doc", "1", new EsRejectedExecutionException("rejected")))
+    }, 1L);
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final List<ActionListener<BulkResponse>> sent = new ArrayList<>();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    @Test
+    public void bulksBeyondLimitAreQueued() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 2, \"maxConcurrentRequests\": 8 }");
+
+        send(limiter);
+        send(limiter);
+        send(limiter);
+
+        assertEquals(2, sent.size());
+        assertEquals(1, metrics.getGauges().get("test.bulk.queued-bulks").getValue());
+
+        sent.get(0).onResponse(SUCCESS);
+        assertEquals(3, sent.size());
+        assertEquals(0, metrics.getGauges().get("test.bulk.queued-bulks").getValue());
+        assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void successfulRoundRaisesLimit() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 1, \"maxConcurrentRequests\": 8, \"latencyTolerance\": 1000 }");
+
+        send(limiter);
+        sent.get(0).onResponse(SUCCESS);
+
+        assertEquals(2, limiter.getLimit());
+        assertEquals(2, metrics.getGauges().get("test.bulk.concurrency-limit").getValue());
+    }
+
+    @Test
+    public void rejectedItemsCutLimit() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, \"decreaseFactor\": 0.5 }");
+
+        send(limiter);
+        sent.get(0).onResponse(REJECTED);
+
+        assertEquals(2, limiter.getLimit());
+        assertEquals(1, metrics.meter("test.bulk.limit-decreases").getCount());
+    }
+
+    @Test
+    public void rejectedRequestCutsLimit() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, \"decreaseFactor\": 0.5 }");
+
+        send(limiter);
+        sent.get(0).onFailure(new ElasticsearchStatusException("rejected", RestStatus.TOO_MANY_REQUESTS));
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void limitStaysWithinBounds() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 2, \"minConcurrentRequests\": 2, "
+                + "\"maxConcurrentRequests\": 3, \"latencyTolerance\": 1000 }");
+
+        for (int i = 0; i < 3; i++) {
+            send(limiter);
+            sent.get(sent.size() - 1).onResponse(REJECTED);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            send(limiter);
+            sent.get(sent.size() - 1).onResponse(SUCCESS);
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void slowRoundTripCutsLimit() throws Exception {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, "
+                + "\"latencyTolerance\": 2.0, \"decreaseFactor\": 0.5 }");
+        send(limiter);
+        sent.get(0).onResponse(SUCCESS);
+        int limit = limiter.getLimit();
+
+        send(limiter);
+        Thread.sleep(50);
+        sent.get(1).onResponse(SUCCESS);
+
+        assertEquals(limit / 2, limiter.getLimit());
+    }
+
+    @Test
+    public void concurrentRejectionsCutLimitOnce() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 8, \"maxConcurrentRequests\": 8, \"decreaseFactor\": 0.5 }");
+
+        for (int i = 0; i < 4; i++) {
+            send(limiter);
+        }
+        for (int i = 0; i < 4; i++) {
+            sent.get(i).onResponse(REJECTED);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, metrics.meter("test.bulk.limit-decreases").getCount());
+
+        // A bulk sent after the cut may cut the limit again
+        send(limiter);
+        sent.get(4).onResponse(REJECTED);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void smallBulkAfterLargeOnesDoesNotCutLimit() throws Exception {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, "
+                + "\"latencyTolerance\": 2.0, \"decreaseFactor\": 0.5 }");
+        for (int i = 0; i < 3; i++) {
+            send(limiter, bulkOf(1000));
+            Thread.sleep(20);
+            sent.get(i).onResponse(SUCCESS);
+        }
+
+        // A flush interval bulk takes most of the time of a full one, but far longer per action
+        send(limiter, bulkOf(5));
+        Thread.sleep(15);
+        sent.get(3).onResponse(SUCCESS);
+
+        assertEquals(0, metrics.meter("test.bulk.limit-decreases").getCount());
+    }
+
+    @Test
+    public void failedRequestIsNotALatencySample() throws Exception {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, "
+                + "\"latencyTolerance\": 2.0, \"decreaseFactor\": 0.5 }");
+        send(limiter);
+        sent.get(0).onFailure(new IOException("connection reset"));
+        assertEquals(4, limiter.getLimit());
+
+        // The fast failure did not set the baseline, so a normal bulk is not slow
+        send(limiter);
+        Thread.sleep(20);
+        sent.get(1).onResponse(SUCCESS);
+        assertEquals(0, metrics.meter("test.bulk.limit-decreases").getCount());
+    }
+
+    @Test
+    public void rejectionsParsedFromAResponseCutLimit() throws IOException {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, \"decreaseFactor\": 0.5 }");
+
+        send(limiter);
+        sent.get(0).onResponse(new BulkResponse(new BulkItemResponse[]{
+                BulkItemResponse.failure(0, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure("index", "doc", "1",
+                        new ElasticsearchException("Elasticsearch exception [type=es_rejected_execution_exception]"),
+                        RestStatus.TOO_MANY_REQUESTS))
+        }, 1L));
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void bulksOfDifferentSizesHaveTheirOwnBaseline() throws Exception {
+        AdaptiveBulkLimiter limiter = limiter("{ \"concurrentRequests\": 4, \"maxConcurrentRequests\": 8, "
+                + "\"latencyTolerance\": 2.0, \"decreaseFactor\": 0.5 }");
+        send(limiter, bulkOf(1));
+        Thread.sleep(20);
+        sent.get(0).onResponse(SUCCESS);
+
+        // A larger bulk takes longer, but is only compared with bulks of its own size
+        send(limiter, bulkOf(10));
+        Thread.sleep(60);
+        sent.get(1).onResponse(SUCCESS);
+
+        assertEquals(0, metrics.meter("test.bulk.limit-decreases").getCount());
+    }
+
+    private AdaptiveBulkLimiter limiter(String json) throws IOException {
+        EsBulkConfiguration config = Jackson.newObjectMapper().readValue(json, EsBulkConfiguration.class);
+        return new AdaptiveBulkLimiter((request, listener) -> sent.add(listener), config, metrics, "test");
+    }
+
+    private void send(AdaptiveBulkLimiter limiter) {
+        send(limiter, new BulkRequest());
+    }
+
+    private void send(AdaptiveBulkLimiter limiter, BulkRequest request) {
+        limiter.accept(request, ActionListener.wrap(r -> completed.incrementAndGet(), e -> completed.incrementAndGet()));
+    }
+
+    private static BulkRequest bulkOf(int actions) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < actions; i++) {
+            request.add(new IndexRequest("index", "doc", Integer.toString(i)).source("field", "value"));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,128 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import org.apache.http.HttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link BulkBody}.
+ */
+public class BulkBodyTest {
+
+    private static final byte[] SOURCE = "{\"message\":\"hello\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void writesActionsAndSourcesAsNdjson() throws Exception {
+        final BulkBufferPool pool = new BulkBufferPool(16, 10);
+        try (BulkBody body = new BulkBody(pool)) {
+            body.index("logs", "doc", "1", SOURCE)
+                    .create("logs", null, null, SOURCE)
+                    .update("logs", "doc", "2", "{\"doc\":{}}".getBytes(StandardCharsets.UTF_8))
+                    .delete("logs", "doc", "3");
+
+            final String expected = "{\"index\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"1\"}}\n"
+                    + "{\"message\":\"hello\"}\n"
+                    + "{\"create\":{\"_index\":\"logs\"}}\n"
+                    + "{\"message\":\"hello\"}\n"
+                    + "{\"update\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"2\"}}\n"
+                    + "{\"doc\":{}}\n"
+                    + "{\"delete\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"3\"}}\n";
+            final HttpEntity entity = body.toEntity();
+            assertEquals(expected, EntityUtils.toString(entity, StandardCharsets.UTF_8));
+            assertEquals(expected.length(), entity.getContentLength());
+            assertEquals(4, body.getActionCount());
+            assertTrue(entity.getContentType().getValue().startsWith("application/x-ndjson"));
+        }
+        assertEquals(10, pool.getPooledCount());
+    }
+
+    @Test
+    public void escapesIdsAndEncodesThemAsUtf8() throws Exception {
+        final String id = "a\"b\\c\n\u00e9\u20ac\ud83d\ude00";
+        try (BulkBody body = new BulkBody(new BulkBufferPool(1024, 1))) {
+            body.delete("logs", null, id);
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.toEntity().writeTo(out);
+            assertEquals("{\"delete\":{\"_index\":\"logs\",\"_id\":\"a\\\"b\\\\c\\u000a\u00e9\u20ac\ud83d\ude00\"}}\n",
+                    new String(out.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(out.size(), body.getSizeInBytes());
+        }
+    }
+
+    @Test
+    public void reusesReleasedBuffers() {
+        final BulkBufferPool pool = new BulkBufferPool(16, 1);
+        final byte[] buffer = pool.acquire();
+        pool.release(buffer);
+
+        try (BulkBody body = new BulkBody(pool)) {
+            // Needs several buffers, starting with the pooled one
+            body.delete("logs", null, "1");
+            assertEquals(0, pool.getPooledCount());
+        }
+
+        // Only one released buffer is kept
+        assertEquals(1, pool.getPooledCount());
+        assertSame(buffer, pool.acquire());
+    }
+
+    @Test
+    public void buffersAreKeptUntilTheEntityHasBeenSent() throws Exception {
+        final BulkBufferPool pool = new BulkBufferPool(16, 10);
+        final BulkBody body = new BulkBody(pool);
+        body.index("logs", "doc", "1", SOURCE);
+        final HttpAsyncContentProducer entity = (HttpAsyncContentProducer) body.toEntity();
+        final ContentEncoder encoder = mock(ContentEncoder.class);
+
+        // The connection is full, so the entity is part way through sending
+        entity.produceContent(encoder, mock(IOControl.class));
+        body.close();
+        assertEquals(0, pool.getPooledCount());
+
+        entity.close();
+        assertTrue(pool.getPooledCount() > 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void entityIsNotSentAfterTheBodyIsClosed() throws Exception {
+        final BulkBody body = new BulkBody(new BulkBufferPool(16, 10));
+        body.index("logs", "doc", "1", SOURCE);
+        final HttpAsyncContentProducer entity = (HttpAsyncContentProducer) body.toEntity();
+        body.close();
+
+        entity.produceContent(mock(ContentEncoder.class), mock(IOControl.class));
+    }
+
+    @Test
+    public void isSentByTheRestClient() throws Exception {
+        try (FakeEsServer server = new FakeEsServer();
+             RestClient client = RestClient.builder(server.getHttpHost()).build();
+             BulkBody body = new BulkBody(new BulkBufferPool(64, 10))) {
+            for (int i = 0; i < 100; i++) {
+                body.index("logs", "doc", Integer.toString(i), SOURCE);
+            }
+
+            final Response response = client.performRequest("POST", "/_bulk", Collections.emptyMap(), body.toEntity());
+
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(100, server.getBulkItemCount());
+        }
+    }
+}
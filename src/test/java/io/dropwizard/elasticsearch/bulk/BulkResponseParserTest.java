@@ -0,0 +1,92 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import org.elasticsearch.client.RestClient;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BulkResponseParser}.
+ */
+public class BulkResponseParserTest {
+
+    @Test
+    public void stopsReadingWhenThereAreNoErrors() throws IOException {
+        // The items are malformed, so reading them would fail
+        final BulkFailures result = BulkResponseParser.parse(json("{\"took\":30,\"errors\":false,\"items\":[{]}"));
+
+        assertFalse(result.hasErrors());
+        assertEquals(30, result.getTookMillis());
+        assertEquals(-1, result.getItemCount());
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void returnsOnlyFailedItemsWithTheirPositions() throws IOException {
+        final BulkFailures result = BulkResponseParser.parse(json("{\"took\":5,\"errors\":true,\"items\":["
+                + "{\"index\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"1\",\"_version\":1,\"result\":\"created\","
+                + "\"_shards\":{\"total\":2,\"successful\":1,\"failed\":0},\"status\":201}},"
+                + "{\"index\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"2\",\"status\":429,"
+                + "\"error\":{\"type\":\"es_rejected_execution_exception\",\"reason\":\"rejected\",\"caused_by\":{\"type\":\"x\"}}}},"
+                + "{\"delete\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"3\",\"result\":\"not_found\",\"status\":404}},"
+                + "{\"update\":{\"_index\":\"logs\",\"_type\":\"doc\",\"_id\":\"4\",\"status\":400,"
+                + "\"error\":{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse\"}}}"
+                + "]}"));
+
+        assertTrue(result.hasErrors());
+        assertEquals(4, result.getItemCount());
+        assertEquals(2, result.getFailures().size());
+
+        final BulkFailures.Item rejected = result.getFailures().get(0);
+        assertEquals(1, rejected.getPosition());
+        assertEquals("index", rejected.getOpType());
+        assertEquals("logs", rejected.getIndex());
+        assertEquals("2", rejected.getId());
+        assertEquals(429, rejected.getStatus());
+        assertEquals("es_rejected_execution_exception", rejected.getErrorType());
+        assertEquals("rejected", rejected.getErrorReason());
+        assertTrue(rejected.isRetryable());
+
+        final BulkFailures.Item invalid = result.getFailures().get(1);
+        assertEquals(3, invalid.getPosition());
+        assertEquals("update", invalid.getOpType());
+        assertEquals("mapper_parsing_exception", invalid.getErrorType());
+        assertFalse(invalid.isRetryable());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsResponsesWhichAreNotBulkResponses() throws IOException {
+        BulkResponseParser.parse(json("[]"));
+    }
+
+    @Test
+    public void readsResponsesFromTheRestClient() throws IOException {
+        try (FakeEsServer server = new FakeEsServer().withBulkRejectionRate(1.0);
+             RestClient client = RestClient.builder(server.getHttpHost()).build();
+             BulkBody body = new BulkBody(new BulkBufferPool(1024, 1))) {
+            for (int i = 0; i < 3; i++) {
+                body.index("logs", "doc", Integer.toString(i), "{}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            final BulkFailures result = BulkResponseParser.parse(
+                    client.performRequest("POST", "/_bulk", Collections.emptyMap(), body.toEntity()));
+
+            assertEquals(3, result.getItemCount());
+            assertEquals(3, result.getFailures().size());
+            assertEquals(2, result.getFailures().get(2).getPosition());
+        }
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
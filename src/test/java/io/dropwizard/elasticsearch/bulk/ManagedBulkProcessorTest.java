@@ -0,0 +1,131 @@
+package io.dropwizard.elasticsearch.bulk;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsBulkConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ManagedBulkProcessor}.
+ */
+public class ManagedBulkProcessorTest {
+
+    private static final String PREFIX = "test";
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final AtomicInteger bulksSent = new AtomicInteger();
+    private ManagedBulkProcessor processor;
+
+    @Before
+    public void setup() throws IOException {
+        final EsBulkConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"maxActions\": 2, \"concurrentRequests\": 0, \"flushIntervalMillis\": 0, \"backoffPolicy\": \"NONE\" }",
+                EsBulkConfiguration.class);
+        final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer = (request, listener) -> {
+            bulksSent.incrementAndGet();
+            listener.onResponse(new BulkResponse(new BulkItemResponse[]{
+                    BulkItemResponse.failure(0, DocWriteRequest.OpType.INDEX,
+                            new BulkItemResponse.Failure("index", "doc", "1", new EsRejectedExecutionException("rejected"))),
+                    BulkItemResponse.failure(1, DocWriteRequest.OpType.INDEX,
+                            new BulkItemResponse.Failure("index", "doc", "2", new IllegalArgumentException("bad")))
+            }, 1L));
+        };
+        processor = new ManagedBulkProcessor(consumer, config, metrics, PREFIX);
+    }
+
+    @After
+    public void closeProcessor() {
+        processor.close();
+    }
+
+    @Test
+    public void actionsAreQueuedUntilMaxActionsReached() {
+        processor.add(indexRequest("1"));
+
+        assertEquals(0, bulksSent.get());
+        assertEquals(1, metrics.counter("test.bulk.queued-actions").getCount());
+    }
+
+    @Test
+    public void metricsAreUpdatedWhenBulkIsSent() {
+        processor.add(indexRequest("1")).add(indexRequest("2"));
+
+        assertEquals(1, bulksSent.get());
+        assertEquals(0, metrics.counter("test.bulk.queued-actions").getCount());
+        assertEquals(0, metrics.counter("test.bulk.in-flight-bulks").getCount());
+        assertEquals(1, metrics.timer("test.bulk.flush-latency").getCount());
+        assertEquals(1, metrics.meter("test.bulk.rejected-items").getCount());
+        assertEquals(1, metrics.meter("test.bulk.failed-items").getCount());
+    }
+
+    @Test
+    public void closeFlushesQueuedActions() {
+        processor.add(indexRequest("1"));
+        processor.close();
+
+        assertEquals(1, bulksSent.get());
+        assertEquals(0, metrics.counter("test.bulk.queued-actions").getCount());
+    }
+
+    @Test
+    public void rejectedItemsFromARestResponseAreRetried() throws Exception {
+        processor.close();
+        final EsBulkConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"maxActions\": 2, \"concurrentRequests\": 0, \"flushIntervalMillis\": 0, "
+                        + "\"backoffPolicy\": \"CONSTANT\", \"backoffInitialDelayMillis\": 10, \"backoffMaxRetries\": 1 }",
+                EsBulkConfiguration.class);
+        final List<BulkRequest> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch retried = new CountDownLatch(1);
+        processor = new ManagedBulkProcessor((request, listener) -> {
+            sent.add(request);
+            if (sent.size() == 1) {
+                // Shaped like an item parsed from a REST _bulk response, with a generic ElasticsearchException
+                listener.onResponse(new BulkResponse(new BulkItemResponse[]{
+                        BulkItemResponse.failure(0, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure("index", "doc", "1",
+                                new ElasticsearchException("Elasticsearch exception [type=es_rejected_execution_exception, "
+                                        + "reason=rejected execution]"), RestStatus.TOO_MANY_REQUESTS))
+                }, 1L));
+            } else {
+                listener.onResponse(new BulkResponse(new BulkItemResponse[0], 1L));
+                retried.countDown();
+            }
+        }, config, metrics, PREFIX);
+        final IndexRequest rejected = indexRequest("1");
+
+        processor.add(rejected).add(indexRequest("2"));
+        processor.add(indexRequest("3"));
+
+        assertTrue(retried.await(5, TimeUnit.SECONDS));
+        assertEquals(2, sent.size());
+        assertEquals(2, sent.get(1).numberOfActions());
+        assertSame(rejected, sent.get(1).requests().get(1));
+        assertEquals(0, metrics.meter("test.bulk.rejected-items").getCount());
+    }
+
+    private static IndexRequest indexRequest(String id) {
+        return new IndexRequest("index", "doc", id).source("field", "value");
+    }
+}
@@ -0,0 +1,94 @@
+package io.dropwizard.elasticsearch.client;
+
+import io.dropwizard.elasticsearch.config.EsAsyncConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EsAsyncClient}, against a {@link FakeEsServer}.
+ */
+public class EsAsyncClientTest {
+
+    private FakeEsServer server;
+    private RestHighLevelClient restClient;
+    private EsAsyncClient client;
+
+    @Before
+    public void setup() throws Exception {
+        server = new FakeEsServer().withSearchHits(Arrays.asList("{\"name\":\"shoe\"}", "{\"name\":\"boot\"}"));
+        restClient = new RestHighLevelClient(RestClient.builder(server.getHttpHost()));
+        client = new EsAsyncClient(restClient, null, EsAsyncClient.newCallbackExecutor(new EsAsyncConfiguration()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        restClient.close();
+        server.close();
+    }
+
+    @Test
+    public void futuresAreCompletedOnTheCallbackExecutor() throws Exception {
+        final String thread = client.performRequest("GET", "/_cluster/health", Collections.emptyMap(), null)
+                .thenApply(response -> Thread.currentThread().getName())
+                .get(5, TimeUnit.SECONDS);
+
+        assertTrue(thread, thread.startsWith("elasticsearch-async-"));
+    }
+
+    @Test
+    public void lowLevelRequestsReturnTheResponse() throws Exception {
+        final Response response = client.performRequest("GET", "/_cluster/health", Collections.emptyMap(), null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, response.getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void searchesReturnTheParsedResponse() throws Exception {
+        final SearchResponse response = client.search(new SearchRequest("products")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, response.getHits().getTotalHits());
+    }
+
+    @Test
+    public void errorResponsesFailTheFuture() throws Exception {
+        server.failNext(1, 500);
+        try {
+            client.performRequest("GET", "/_cluster/health", Collections.emptyMap(), null).get(5, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ResponseException);
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutorFallsBackWhereUnsupported() throws Exception {
+        final ExecutorService executor = EsAsyncClient.newCallbackExecutor(Jackson.newObjectMapper()
+                .readValue("{ \"executor\": \"VIRTUAL\", \"threads\": 2 }", EsAsyncConfiguration.class));
+        try {
+            assertEquals("done", executor.submit(() -> "done").get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
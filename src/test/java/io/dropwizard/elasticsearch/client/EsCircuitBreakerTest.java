@@ -0,0 +1,206 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsCircuitBreakerConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EsCircuitBreaker}.
+ */
+public class EsCircuitBreakerTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void opensAfterFailureRateReached() throws IOException {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 4, \"failureRateThreshold\": 0.5 } }");
+
+        succeedRequest(breaker, RequestCategory.SEARCH);
+        succeedRequest(breaker, RequestCategory.SEARCH);
+        failRequest(breaker, RequestCategory.SEARCH);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.getState(RequestCategory.SEARCH));
+        failRequest(breaker, RequestCategory.SEARCH);
+
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.getState(RequestCategory.SEARCH));
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.getState(RequestCategory.BULK));
+        assertEquals(1, metrics.meter("es.breaker.search.transitions.open").getCount());
+        assertEquals("OPEN", metrics.getGauges().get("es.breaker.search.state").getValue());
+    }
+
+    @Test
+    public void openBreakerRejectsWithoutCalling() throws IOException {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1 } }");
+        failRequest(breaker, RequestCategory.SEARCH);
+
+        try {
+            breaker.execute(RequestCategory.SEARCH, () -> {
+                throw new AssertionError("Should not be called");
+            });
+            fail("Expected rejection");
+        } catch (EsRequestRejectedException e) {
+            assertEquals(RequestCategory.SEARCH, e.getCategory());
+        }
+        assertEquals(1, metrics.meter("es.breaker.search.rejected.open").getCount());
+    }
+
+    @Test
+    public void halfOpenProbesCloseBreaker() throws Exception {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1, \"openDurationMillis\": 20, \"halfOpenProbes\": 2 } }");
+        failRequest(breaker, RequestCategory.SEARCH);
+        Thread.sleep(40);
+
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.getState(RequestCategory.SEARCH));
+        succeedRequest(breaker, RequestCategory.SEARCH);
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.getState(RequestCategory.SEARCH));
+        succeedRequest(breaker, RequestCategory.SEARCH);
+
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.getState(RequestCategory.SEARCH));
+        assertEquals(1, metrics.meter("es.breaker.search.transitions.closed").getCount());
+    }
+
+    @Test
+    public void failedProbeReopensBreaker() throws Exception {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1, \"openDurationMillis\": 20 } }");
+        failRequest(breaker, RequestCategory.SEARCH);
+        Thread.sleep(40);
+
+        failRequest(breaker, RequestCategory.SEARCH);
+
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.getState(RequestCategory.SEARCH));
+        assertEquals(2, metrics.meter("es.breaker.search.transitions.open").getCount());
+    }
+
+    @Test
+    public void requestAdmittedWhileClosedIsNotAProbe() throws Exception {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1, \"openDurationMillis\": 20, \"halfOpenProbes\": 1 } }");
+        AtomicReference<ActionListener<String>> slowRequest = new AtomicReference<>();
+        breaker.executeAsync(RequestCategory.SEARCH, slowRequest::set, ActionListener.wrap(r -> { }, e -> { }));
+
+        failRequest(breaker, RequestCategory.SEARCH);
+        Thread.sleep(40);
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.getState(RequestCategory.SEARCH));
+
+        // Admitted before the breaker opened, so its success must not close the breaker
+        breaker.executeAsync(RequestCategory.SEARCH, l -> { }, ActionListener.wrap(r -> { }, e -> { }));
+        slowRequest.get().onResponse("late");
+        assertEquals(EsCircuitBreaker.State.HALF_OPEN, breaker.getState(RequestCategory.SEARCH));
+        assertEquals(0, metrics.meter("es.breaker.search.transitions.closed").getCount());
+    }
+
+    @Test
+    public void errorReleasesProbeAndBulkheadPermit() throws Exception {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1, \"openDurationMillis\": 20, "
+                + "\"halfOpenProbes\": 1, \"maxConcurrentRequests\": 1 } }");
+        failRequest(breaker, RequestCategory.SEARCH);
+        Thread.sleep(40);
+
+        try {
+            breaker.execute(RequestCategory.SEARCH, () -> {
+                throw new StackOverflowError();
+            });
+            fail("Expected error");
+        } catch (StackOverflowError e) {
+            // Expected
+        }
+        assertEquals(0, metrics.getGauges().get("es.breaker.search.in-flight").getValue());
+
+        succeedRequest(breaker, RequestCategory.SEARCH);
+        assertEquals(EsCircuitBreaker.State.CLOSED, breaker.getState(RequestCategory.SEARCH));
+    }
+
+    @Test
+    public void clientErrorsAreNotFailures() {
+        assertFalse(EsCircuitBreaker.isFailure(new ElasticsearchStatusException("missing", RestStatus.NOT_FOUND)));
+        assertTrue(EsCircuitBreaker.isFailure(new ElasticsearchStatusException("rejected", RestStatus.TOO_MANY_REQUESTS)));
+        assertTrue(EsCircuitBreaker.isFailure(new ElasticsearchStatusException("unavailable", RestStatus.SERVICE_UNAVAILABLE)));
+        assertTrue(EsCircuitBreaker.isFailure(new SocketTimeoutException()));
+        assertFalse(EsCircuitBreaker.isFailure(new IllegalArgumentException()));
+    }
+
+    @Test
+    public void bulkheadLimitsConcurrentRequests() throws Exception {
+        EsCircuitBreaker breaker = breaker("{ \"categories\": { \"SEARCH\": { \"maxConcurrentRequests\": 1 } } }");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> breaker.execute(RequestCategory.SEARCH, () -> {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return "first";
+            }));
+            started.await();
+
+            try {
+                breaker.execute(RequestCategory.SEARCH, () -> "second");
+                fail("Expected bulkhead rejection");
+            } catch (EsRequestRejectedException e) {
+                assertEquals(1, metrics.meter("es.breaker.search.rejected.bulkhead").getCount());
+            }
+            assertEquals(1, metrics.getGauges().get("es.breaker.search.in-flight").getValue());
+            // Other categories have their own limits
+            assertEquals("bulk", breaker.execute(RequestCategory.BULK, () -> "bulk"));
+
+            finish.countDown();
+            assertEquals("first", first.get(1, TimeUnit.SECONDS));
+            assertEquals("third", breaker.execute(RequestCategory.SEARCH, () -> "third"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void asyncRequestsAreGuarded() throws IOException {
+        EsCircuitBreaker breaker = breaker("{ \"defaults\": { \"minimumRequests\": 1 } }");
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ActionListener<String> listener = ActionListener.wrap(r -> { }, failure::set);
+
+        breaker.executeAsync(RequestCategory.BULK, l -> l.onFailure(new IOException("failed")), listener);
+        assertEquals(EsCircuitBreaker.State.OPEN, breaker.getState(RequestCategory.BULK));
+
+        breaker.executeAsync(RequestCategory.BULK, l -> {
+            throw new AssertionError("Should not be called");
+        }, listener);
+        assertTrue(failure.get() instanceof EsRequestRejectedException);
+    }
+
+    private EsCircuitBreaker breaker(String json) throws IOException {
+        return new EsCircuitBreaker(Jackson.newObjectMapper().readValue(json, EsCircuitBreakerConfiguration.class), metrics, "es");
+    }
+
+    private static void succeedRequest(EsCircuitBreaker breaker, RequestCategory category) throws IOException {
+        breaker.execute(category, () -> "ok");
+    }
+
+    private static void failRequest(EsCircuitBreaker breaker, RequestCategory category) {
+        try {
+            breaker.execute(category, () -> {
+                throw new IOException("failed");
+            });
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
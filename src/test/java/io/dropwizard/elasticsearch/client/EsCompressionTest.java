@@ -0,0 +1,317 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.ByteStreams;
+import io.dropwizard.elasticsearch.config.EsCompressionConfiguration;
+import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.managed.ManagedEsClient;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.ContentTooLongException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link EsCompression}.
+ */
+public class EsCompressionTest {
+
+    private static final String LARGE_BODY = new String(new char[20000]).replace('\0', 'a');
+    private static final HttpHost HOST = new HttpHost("localhost", 9200);
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void requestsAreNotCompressedByDefault() {
+        EsCompression compression = new EsCompression(new EsCompressionConfiguration(), metrics, "es");
+        HttpAsyncRequestProducer producer = producer(new NStringEntity(LARGE_BODY, ContentType.APPLICATION_JSON));
+
+        assertSame(producer, compression.compressing(producer));
+    }
+
+    @Test
+    public void smallBodiesAreNotCompressed() throws Exception {
+        EsCompression compression = new EsCompression(config(), metrics, "es");
+        HttpEntity entity = new NStringEntity("{}", ContentType.APPLICATION_JSON);
+
+        HttpRequest request = compression.compressing(producer(entity)).generateRequest();
+
+        assertSame(entity, ((HttpEntityEnclosingRequest) request).getEntity());
+    }
+
+    @Test
+    public void largeBodiesAreCompressedAsTheyAreSent() throws Exception {
+        EsCompression compression = new EsCompression(config(), metrics, "es");
+        HttpAsyncRequestProducer producer = compression.compressing(
+                producer(new NStringEntity(LARGE_BODY, ContentType.APPLICATION_JSON)));
+
+        HttpEntity entity = ((HttpEntityEnclosingRequest) producer.generateRequest()).getEntity();
+        byte[] sent = send(producer);
+
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        assertEquals(ContentType.APPLICATION_JSON.toString(), entity.getContentType().getValue());
+        assertEquals(-1, entity.getContentLength());
+        assertTrue(sent.length < LARGE_BODY.length());
+        assertEquals(LARGE_BODY, gunzip(sent));
+        assertEquals(1, metrics.histogram("es.compression.request-ratio").getCount());
+        assertEquals(1, metrics.timer("es.compression.request-cpu").getCount());
+    }
+
+    @Test
+    public void streamingBodiesAreCompressed() throws Exception {
+        EsCompression compression = new EsCompression(config(), metrics, "es");
+        HttpAsyncRequestProducer producer = compression.compressing(producer(new InputStreamEntity(
+                new ByteArrayInputStream(LARGE_BODY.getBytes(StandardCharsets.UTF_8)), ContentType.APPLICATION_JSON)));
+
+        producer.generateRequest();
+
+        assertEquals(LARGE_BODY, gunzip(send(producer)));
+    }
+
+    @Test
+    public void compressedResponsesAreDecompressed() throws Exception {
+        EsCompression compression = new EsCompression(responseConfig(), metrics, "es");
+        HttpAsyncResponseConsumer<HttpResponse> consumer = compression.decompressing(new HeapBufferedAsyncResponseConsumer(1024 * 1024));
+        byte[] compressed = gzip(LARGE_BODY);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setEntity(entity(compressed));
+        consumer.responseReceived(response);
+        receive(consumer, compressed);
+        consumer.responseCompleted(new BasicHttpContext());
+
+        HttpResponse result = consumer.getResult();
+        assertNull(result.getFirstHeader("Content-Encoding"));
+        assertEquals(LARGE_BODY, EntityUtils.toString(result.getEntity()));
+        assertEquals(1, metrics.histogram("es.compression.response-ratio").getCount());
+    }
+
+    @Test
+    public void responsesInflatingBeyondTheBufferLimitFail() throws Exception {
+        EsCompression compression = new EsCompression(responseConfig(), metrics, "es", 10000);
+        HttpAsyncResponseConsumer<HttpResponse> consumer = compression.decompressing(new HeapBufferedAsyncResponseConsumer(1024 * 1024));
+        byte[] compressed = gzip(LARGE_BODY);
+        assertTrue(compressed.length < 10000);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setEntity(entity(compressed));
+        consumer.responseReceived(response);
+        receive(consumer, compressed);
+        consumer.responseCompleted(new BasicHttpContext());
+
+        assertTrue(consumer.getException() instanceof ContentTooLongException);
+    }
+
+    @Test
+    public void plainResponsesArePassedThrough() throws Exception {
+        EsCompression compression = new EsCompression(responseConfig(), metrics, "es");
+        HttpAsyncResponseConsumer<HttpResponse> consumer = compression.decompressing(new HeapBufferedAsyncResponseConsumer(1024 * 1024));
+        byte[] plain = "{}".getBytes(StandardCharsets.UTF_8);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(entity(plain));
+        consumer.responseReceived(response);
+        receive(consumer, plain);
+        consumer.responseCompleted(new BasicHttpContext());
+
+        assertEquals("{}", EntityUtils.toString(consumer.getResult().getEntity()));
+        assertEquals(0, metrics.histogram("es.compression.response-ratio").getCount());
+    }
+
+    @Test
+    public void corruptResponsesFailTheRequest() throws Exception {
+        EsCompression compression = new EsCompression(responseConfig(), metrics, "es");
+        HttpAsyncResponseConsumer<HttpResponse> consumer = compression.decompressing(new HeapBufferedAsyncResponseConsumer(1024 * 1024));
+        byte[] corrupt = "not gzip".getBytes(StandardCharsets.UTF_8);
+
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setEntity(entity(corrupt));
+        consumer.responseReceived(response);
+        receive(consumer, corrupt);
+        consumer.responseCompleted(new BasicHttpContext());
+
+        assertTrue(consumer.getException() instanceof IOException);
+    }
+
+    @Test
+    public void highLevelClientRequestsAreCompressed() throws Exception {
+        try (FakeEsServer server = new FakeEsServer()) {
+            EsConfiguration config = Jackson.newObjectMapper().readValue("{ \"servers\": [ \"" + server.getAddress() + "\" ], "
+                    + "\"compression\": { \"requestCompression\": true, \"minRequestSizeBytes\": 0, \"responseCompression\": true } }",
+                    EsConfiguration.class);
+            ManagedEsClient client = new ManagedEsClient(config, metrics);
+            try {
+                client.getRestHighLevelClient().bulk(new BulkRequest()
+                        .add(new IndexRequest("index", "doc", "1").source(Collections.singletonMap("name", "shoe")))
+                        .add(new IndexRequest("index", "doc", "2").source("{\"name\":\"boot\"}", XContentType.JSON)));
+                Response response = client.getRestClient().performRequest("GET", "/_cluster/health");
+
+                assertEquals(2, server.getBulkItemCount());
+                assertEquals(1, server.getCompressedRequestCount());
+                assertNull(response.getHeader("Content-Encoding"));
+                assertTrue(EntityUtils.toString(response.getEntity()).contains("\"status\":\"green\""));
+                assertEquals(1, metrics.histogram(MetricRegistry.name(ManagedEsClient.class, "compression", "request-ratio")).getCount());
+                assertEquals(2, metrics.histogram(MetricRegistry.name(ManagedEsClient.class, "compression", "response-ratio")).getCount());
+            } finally {
+                client.stop();
+            }
+        }
+    }
+
+    private static HttpAsyncRequestProducer producer(HttpEntity entity) {
+        HttpPost request = new HttpPost("/_bulk");
+        request.setEntity(entity);
+        return new BasicAsyncRequestProducer(HOST, request);
+    }
+
+    /**
+     * Produce the whole body, a few bytes at a time, as a slow connection would accept it.
+     */
+    private static byte[] send(HttpAsyncRequestProducer producer) throws IOException {
+        LimitedEncoder encoder = new LimitedEncoder();
+        for (int i = 0; i < 100000 && !encoder.isCompleted(); i++) {
+            encoder.capacity = 100;
+            producer.produceContent(encoder, null);
+        }
+        assertTrue(encoder.isCompleted());
+        return encoder.out.toByteArray();
+    }
+
+    /**
+     * Pass a body to a consumer a few bytes at a time, as it would arrive from a slow connection.
+     */
+    private static void receive(HttpAsyncResponseConsumer<?> consumer, byte[] body) throws IOException {
+        for (int offset = 0; offset < body.length; offset += 100) {
+            final int length = Math.min(100, body.length - offset);
+            consumer.consumeContent(new ChunkDecoder(ByteBuffer.wrap(body, offset, length), offset + length == body.length),
+                    mock(IOControl.class));
+        }
+    }
+
+    private static HttpEntity entity(byte[] body) {
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(body.length);
+        entity.setContentType(ContentType.APPLICATION_JSON.toString());
+        return entity;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static EsCompressionConfiguration config() throws IOException {
+        return Jackson.newObjectMapper().readValue(
+                "{ \"requestCompression\": true, \"minRequestSizeBytes\": 1024 }", EsCompressionConfiguration.class);
+    }
+
+    private static EsCompressionConfiguration responseConfig() throws IOException {
+        return Jackson.newObjectMapper().readValue("{ \"responseCompression\": true }", EsCompressionConfiguration.class);
+    }
+
+    private static class LimitedEncoder implements ContentEncoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int capacity;
+        private boolean completed;
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int length = Math.min(src.remaining(), capacity);
+            for (int i = 0; i < length; i++) {
+                out.write(src.get());
+            }
+            capacity -= length;
+            return length;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+
+    private static class ChunkDecoder implements ContentDecoder {
+        private final ByteBuffer chunk;
+        private final boolean last;
+
+        ChunkDecoder(ByteBuffer chunk, boolean last) {
+            this.chunk = chunk;
+            this.last = last;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!chunk.hasRemaining()) {
+                return last ? -1 : 0;
+            }
+            int length = 0;
+            while (chunk.hasRemaining() && dst.hasRemaining()) {
+                dst.put(chunk.get());
+                length++;
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return last && !chunk.hasRemaining();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsHedgingConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link EsHedging}.
+ */
+public class EsHedgingTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final ExecutorService callers = Executors.newSingleThreadExecutor();
+    private final List<ResponseListener> attempts = new CopyOnWriteArrayList<>();
+    private EsHedging hedging;
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+        if (hedging != null) {
+            hedging.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeCategoriesCannotBeHedged() throws IOException {
+        hedging("{ \"enabled\": true, \"categories\": { \"BULK\": {} } }");
+    }
+
+    @Test
+    public void notHedgedWithoutEnoughSamples() throws Exception {
+        hedging("{ \"enabled\": true, \"maxExtraRequestRatio\": 1.0, \"categories\": { \"SEARCH\": { \"minDelayMillis\": 1 } } }");
+
+        Future<Response> result = search();
+        Thread.sleep(50);
+        assertEquals(1, attempts.size());
+
+        Response response = mock(Response.class);
+        attempts.get(0).onSuccess(response);
+        assertSame(response, result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void slowRequestIsHedgedAndHedgeWins() throws Exception {
+        hedging("{ \"enabled\": true, \"maxExtraRequestRatio\": 1.0, \"categories\": { \"SEARCH\": { \"minDelayMillis\": 10 } } }");
+        warmUp();
+
+        Future<Response> result = search();
+        waitForAttempts(2);
+        Response hedgeResponse = mock(Response.class);
+        attempts.get(1).onSuccess(hedgeResponse);
+        attempts.get(0).onSuccess(mock(Response.class));
+
+        assertSame(hedgeResponse, result.get(1, TimeUnit.SECONDS));
+        assertEquals(1, metrics.meter("es.hedging.search.fired").getCount());
+        assertEquals(1, metrics.meter("es.hedging.search.won").getCount());
+        assertEquals(10.0, metrics.getGauges().get("es.hedging.search.delay").getValue());
+    }
+
+    @Test
+    public void hedgeNotSentWhenBudgetExhausted() throws Exception {
+        hedging("{ \"enabled\": true, \"maxExtraRequestRatio\": 0.0, \"categories\": { \"SEARCH\": { \"minDelayMillis\": 1 } } }");
+        warmUp();
+
+        Future<Response> result = search();
+        Thread.sleep(50);
+        assertEquals(1, attempts.size());
+        attempts.get(0).onSuccess(mock(Response.class));
+
+        result.get(1, TimeUnit.SECONDS);
+        assertEquals(0, metrics.meter("es.hedging.search.fired").getCount());
+        assertEquals(1, metrics.meter("es.hedging.search.budget-exhausted").getCount());
+    }
+
+    @Test
+    public void failureBeforeHedgeIsReturned() throws Exception {
+        hedging("{ \"enabled\": true, \"maxExtraRequestRatio\": 1.0, \"categories\": { \"SEARCH\": { \"minDelayMillis\": 1000 } } }");
+        warmUp();
+
+        Future<Response> result = search();
+        waitForAttempts(1);
+        attempts.get(0).onFailure(new IOException("failed"));
+
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail("Expected the original failure");
+        } catch (ExecutionException e) {
+            assertEquals("failed", e.getCause().getMessage());
+        }
+        assertEquals(1, attempts.size());
+    }
+
+    @Test
+    public void hedgeSucceedsWhenOriginalFails() throws Exception {
+        hedging("{ \"enabled\": true, \"maxExtraRequestRatio\": 1.0, \"categories\": { \"SEARCH\": { \"minDelayMillis\": 10 } } }");
+        warmUp();
+
+        Future<Response> result = search();
+        waitForAttempts(2);
+        attempts.get(0).onFailure(new IOException("failed"));
+        assertFalse(result.isDone());
+        Response hedgeResponse = mock(Response.class);
+        attempts.get(1).onSuccess(hedgeResponse);
+
+        assertSame(hedgeResponse, result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unhedgedCategoryIsSentOnce() throws Exception {
+        hedging("{ \"enabled\": true, \"categories\": { \"SEARCH\": {} } }");
+        assertFalse(hedging.isHedged(RequestCategory.GET));
+
+        Future<Response> result = callers.submit(() -> hedging.performRequest(RequestCategory.GET, attempts::add));
+        waitForAttempts(1);
+        attempts.get(0).onSuccess(mock(Response.class));
+
+        result.get(1, TimeUnit.SECONDS);
+        assertEquals(1, attempts.size());
+    }
+
+    @Test
+    public void scrollRequestsAreNeverHedged() throws IOException {
+        hedging("{ \"enabled\": true, \"categories\": { \"SEARCH\": {} } }");
+        assertEquals(RequestCategory.SEARCH, RequestCategory.of("POST", "/_search/scroll"));
+
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "POST", "/_search/scroll", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "GET", "/_search/scroll?scroll=1m", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "DELETE", "/_search/scroll", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "POST", "/index/_search?scroll=1m", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "POST", "/index/_search",
+                Collections.singletonMap("scroll", "1m")));
+    }
+
+    @Test
+    public void onlyRepeatableReadsAreHedged() throws IOException {
+        hedging("{ \"enabled\": true, \"categories\": { \"SEARCH\": {}, \"GET\": {} } }");
+
+        assertTrue(hedging.isHedged(RequestCategory.SEARCH, "GET", "/index/_search", Collections.emptyMap()));
+        assertTrue(hedging.isHedged(RequestCategory.SEARCH, "POST", "/index/_search?size=10", null));
+        assertTrue(hedging.isHedged(RequestCategory.GET, "POST", "/_mget", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.SEARCH, "PUT", "/index/_search", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.GET, "HEAD", "/index/_doc/1", Collections.emptyMap()));
+        assertFalse(hedging.isHedged(RequestCategory.BULK, "POST", "/_bulk", Collections.emptyMap()));
+    }
+
+    @Test
+    public void callerStopsWaitingAfterTheTimeout() throws Exception {
+        hedging = new EsHedging(Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"categories\": { \"SEARCH\": {} } }", EsHedgingConfiguration.class),
+                metrics, "es", 50);
+
+        try {
+            search().get(1, TimeUnit.SECONDS);
+            fail("Expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+        assertEquals(1, attempts.size());
+    }
+
+    @Test
+    public void copiesAreIndependent() throws IOException {
+        Supplier<HttpEntity> copies = EsHedging.copiesOf(new NStringEntity("{\"query\":{}}", ContentType.APPLICATION_JSON));
+
+        HttpEntity first = copies.get();
+        HttpEntity second = copies.get();
+
+        assertNotSame(first, second);
+        assertEquals("{\"query\":{}}", EntityUtils.toString(first));
+        assertEquals("{\"query\":{}}", EntityUtils.toString(second));
+        assertTrue(second.getContentType().getValue().startsWith("application/json"));
+    }
+
+    private void hedging(String json) throws IOException {
+        hedging = new EsHedging(Jackson.newObjectMapper().readValue(json, EsHedgingConfiguration.class), metrics, "es", 5000);
+    }
+
+    private Future<Response> search() {
+        return callers.submit(() -> hedging.performRequest(RequestCategory.SEARCH, attempts::add));
+    }
+
+    /**
+     * Complete enough immediate requests for a hedge delay to be calculated.
+     */
+    private void warmUp() throws IOException {
+        for (int i = 0; i < EsHedging.MIN_SAMPLES; i++) {
+            hedging.performRequest(RequestCategory.SEARCH, listener -> listener.onSuccess(mock(Response.class)));
+        }
+    }
+
+    private void waitForAttempts(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (attempts.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, attempts.size());
+    }
+}
@@ -0,0 +1,171 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsMultiGetConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link EsMultiGetBatcher}.
+ */
+public class EsMultiGetBatcherTest {
+
+    private final BlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+    private final MetricRegistry metrics = new MetricRegistry();
+    private EsMultiGetBatcher batcher;
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void fullBatchIsSentImmediately() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 60000000, \"maxBatchSize\": 3 }");
+
+        final CompletableFuture<GetResponse> first = batcher.get(new GetRequest("products", "doc", "1"));
+        final CompletableFuture<GetResponse> second = batcher.get(new GetRequest("products", "doc", "2").routing("a"));
+        final CompletableFuture<GetResponse> third = batcher.get(new GetRequest("products", "doc", "3"));
+
+        final Sent batch = sent.poll(5, TimeUnit.SECONDS);
+        assertEquals(3, batch.request.getItems().size());
+        assertEquals("2", batch.request.getItems().get(1).id());
+        assertEquals("a", batch.request.getItems().get(1).routing());
+
+        final GetResponse firstDocument = mock(GetResponse.class);
+        final GetResponse thirdDocument = mock(GetResponse.class);
+        batch.listener.onResponse(new MultiGetResponse(new MultiGetItemResponse[]{
+                new MultiGetItemResponse(firstDocument, null),
+                new MultiGetItemResponse(null, new MultiGetResponse.Failure("products", "doc", "2", new IOException("Shard failed"))),
+                new MultiGetItemResponse(thirdDocument, null)}));
+
+        assertSame(firstDocument, first.get());
+        assertSame(thirdDocument, third.get());
+        try {
+            second.get();
+            fail("Expected the item failure");
+        } catch (ExecutionException e) {
+            assertEquals("Shard failed", e.getCause().getMessage());
+        }
+        assertEquals(3, metrics.histogram("es.mget.batch-size").getSnapshot().getMax());
+        assertEquals(3, metrics.meter("es.mget.gets").getCount());
+        assertEquals(1, metrics.meter("es.mget.batches").getCount());
+    }
+
+    @Test
+    public void partialBatchIsSentWhenTheWindowEnds() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 1000, \"maxBatchSize\": 100 }");
+
+        batcher.get(new GetRequest("products", "doc", "1"));
+        batcher.get(new GetRequest("products", "doc", "2"));
+
+        final Sent batch = sent.poll(5, TimeUnit.SECONDS);
+        assertEquals(2, batch.request.getItems().size());
+        assertNull(sent.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void getsWithRequestLevelOptionsAreSentAlone() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 60000000, \"maxBatchSize\": 100 }");
+
+        batcher.get(new GetRequest("products", "doc", "1").preference("_local"));
+
+        final Sent batch = sent.poll(5, TimeUnit.SECONDS);
+        assertEquals(1, batch.request.getItems().size());
+        assertEquals("_local", batch.request.preference());
+    }
+
+    @Test
+    public void requestFailureFailsEveryGet() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 60000000, \"maxBatchSize\": 2 }");
+
+        final CompletableFuture<GetResponse> first = batcher.get(new GetRequest("products", "doc", "1"));
+        final CompletableFuture<GetResponse> second = batcher.get(new GetRequest("products", "doc", "2"));
+        sent.poll(5, TimeUnit.SECONDS).listener.onFailure(new IOException("Connection refused"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void closeSendsPendingGets() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 60000000, \"maxBatchSize\": 100 }");
+        final CompletableFuture<GetResponse> get = batcher.get(new GetRequest("products", "doc", "1"));
+
+        batcher.close();
+
+        assertEquals(1, sent.poll(5, TimeUnit.SECONDS).request.getItems().size());
+        assertFalse(get.isDone());
+    }
+
+    @Test
+    public void getsAfterCloseFail() throws Exception {
+        batcher = newBatcher("{ \"windowMicros\": 60000000, \"maxBatchSize\": 100 }");
+        batcher.close();
+
+        final CompletableFuture<GetResponse> batched = batcher.get(new GetRequest("products", "doc", "1"));
+        final CompletableFuture<GetResponse> single = batcher.get(new GetRequest("products", "doc", "2").preference("_local"));
+
+        assertTrue(batched.isCompletedExceptionally());
+        assertTrue(single.isCompletedExceptionally());
+        try {
+            batched.get();
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void pendingGetsFailWhenTheyCannotBeSentOnClose() throws Exception {
+        batcher = new EsMultiGetBatcher((request, listener) -> {
+            throw new IllegalStateException("Client is closed");
+        }, Jackson.newObjectMapper().readValue("{ \"windowMicros\": 60000000, \"maxBatchSize\": 100 }",
+                EsMultiGetConfiguration.class), metrics, "es");
+        final CompletableFuture<GetResponse> get = batcher.get(new GetRequest("products", "doc", "1"));
+
+        batcher.close();
+
+        assertTrue(get.isCompletedExceptionally());
+    }
+
+    private EsMultiGetBatcher newBatcher(String json) throws IOException {
+        return new EsMultiGetBatcher((request, listener) -> sent.add(new Sent(request, listener)),
+                Jackson.newObjectMapper().readValue(json, EsMultiGetConfiguration.class), metrics, "es");
+    }
+
+    private static class Sent {
+        private final MultiGetRequest request;
+        private final ActionListener<MultiGetResponse> listener;
+
+        private Sent(MultiGetRequest request, ActionListener<MultiGetResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+    }
+}
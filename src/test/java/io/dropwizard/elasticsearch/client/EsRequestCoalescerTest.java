@@ -0,0 +1,138 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EsRequestCoalescer}.
+ */
+public class EsRequestCoalescerTest {
+
+    private static final int CALLERS = 5;
+
+    private MetricRegistry metrics;
+    private EsRequestCoalescer coalescer;
+    private ExecutorService executor;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        metrics = new MetricRegistry();
+        coalescer = new EsRequestCoalescer(metrics, "es");
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentIdenticalRequestsShareOneCall() throws Exception {
+        final Object response = new Object();
+        final List<Future<Object>> results = submitCallers("key", () -> {
+            calls.incrementAndGet();
+            release.await();
+            return response;
+        });
+
+        release.countDown();
+        for (Future<Object> result : results) {
+            assertSame(response, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, metrics.meter("es.coalescing.issued").getCount());
+        assertEquals(CALLERS - 1, metrics.meter("es.coalescing.coalesced").getCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void failureIsThrownToEveryCaller() throws Exception {
+        final List<Future<Object>> results = submitCallers("key", () -> {
+            calls.incrementAndGet();
+            release.await();
+            throw new IOException("Request failed");
+        });
+
+        release.countDown();
+        for (Future<Object> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the failure to be thrown");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void completedRequestsAreNotShared() throws Exception {
+        coalescer.execute("key", calls::incrementAndGet);
+        coalescer.execute("key", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, metrics.meter("es.coalescing.coalesced").getCount());
+    }
+
+    @Test
+    public void differentKeysAreNotShared() throws Exception {
+        final List<Future<Object>> first = submitCallers("first", () -> {
+            calls.incrementAndGet();
+            release.await();
+            return "first";
+        });
+        assertEquals("second", coalescer.execute("second", () -> "second"));
+
+        release.countDown();
+        assertEquals("first", first.get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Submit {@link #CALLERS} callers, returning once all but the first are waiting on its request.
+     */
+    private List<Future<Object>> submitCallers(Object key, Call call) throws InterruptedException {
+        final List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.execute(key, () -> {
+                try {
+                    return call.call();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            })));
+            if (i == 0) {
+                while (calls.get() == 0) {
+                    Thread.sleep(1);
+                }
+            }
+        }
+        while (metrics.meter("es.coalescing.coalesced").getCount() < CALLERS - 1) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    private interface Call {
+        Object call() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,213 @@
+package io.dropwizard.elasticsearch.client;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Gauge;
+import io.dropwizard.elasticsearch.config.EsNodeSelectionConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.elasticsearch.util.HttpRouteHelper;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.HostsSniffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LatencyAwareHostSelector}.
+ */
+public class LatencyAwareHostSelectorTest {
+
+    private static final HttpHost ES1 = new HttpHost("es1", 9200);
+    private static final HttpHost ES2 = new HttpHost("es2", 9200);
+    private static final HttpHost ES3 = new HttpHost("es3", 9200);
+    private static final List<HttpHost> HOSTS = Arrays.asList(ES1, ES2, ES3);
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final Map<HttpHost, Integer> inFlight = new HashMap<>();
+
+    @Test
+    public void allHostsSelectedWithoutSamples() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1 }");
+
+        selector.update(System.nanoTime());
+
+        assertEquals(new HashSet<>(HOSTS), selector.getSelectedHosts());
+    }
+
+    @Test
+    public void slowHostIsExcluded() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1, \"toleranceMillis\": 0 }");
+        RestClient client = mock(RestClient.class);
+        selector.start(client);
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 12);
+        respond(selector, ES3, 500);
+
+        selector.update(System.nanoTime());
+
+        assertEquals(new HashSet<>(Arrays.asList(ES1, ES2)), selector.getSelectedHosts());
+        verify(client).setHosts(ES1, ES2);
+        assertEquals(0, metrics.getGauges().get("es.selector.hosts.es3:9200.selected").getValue());
+        assertEquals(500.0, metrics.getGauges().get("es.selector.hosts.es3:9200.latency").getValue());
+        selector.close();
+    }
+
+    @Test
+    public void inFlightRequestsIncreaseScore() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1, \"toleranceMillis\": 0 }");
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 10);
+        respond(selector, ES3, 10);
+        inFlight.put(ES3, 4);
+
+        selector.update(System.nanoTime());
+
+        assertEquals(new HashSet<>(Arrays.asList(ES1, ES2)), selector.getSelectedHosts());
+        assertEquals(50.0, metrics.getGauges().get("es.selector.hosts.es3:9200.score").getValue());
+    }
+
+    @Test
+    public void minimumHostsAreKept() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 2, \"toleranceMillis\": 0 }");
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 300);
+        respond(selector, ES3, 500);
+
+        selector.update(System.nanoTime());
+
+        assertEquals(new HashSet<>(Arrays.asList(ES1, ES2)), selector.getSelectedHosts());
+    }
+
+    @Test
+    public void excludedHostIsProbedAfterInterval() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1, \"toleranceMillis\": 0, \"probeIntervalMillis\": 1000 }");
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 10);
+        respond(selector, ES3, 500);
+        long now = System.nanoTime();
+        selector.update(now);
+        assertEquals(2, selector.getSelectedHosts().size());
+
+        selector.update(now + TimeUnit.SECONDS.toNanos(2));
+        assertEquals(3, selector.getSelectedHosts().size());
+
+        // Still slow after probing
+        selector.update(now + TimeUnit.MILLISECONDS.toNanos(2500));
+        assertEquals(2, selector.getSelectedHosts().size());
+    }
+
+    @Test
+    public void failuresArePenalised() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1, \"toleranceMillis\": 0, \"failurePenaltyMillis\": 1000 }");
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 10);
+        selector.onFailure(ES3);
+
+        selector.update(System.nanoTime());
+
+        assertEquals(new HashSet<>(Arrays.asList(ES1, ES2)), selector.getSelectedHosts());
+    }
+
+    @Test
+    public void clientOnlyUpdatedWhenSelectionChanges() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1 }");
+        RestClient client = mock(RestClient.class);
+        selector.start(client);
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 10);
+        respond(selector, ES3, 10);
+
+        selector.update(System.nanoTime());
+
+        verify(client, never()).setHosts(any(HttpHost[].class));
+        selector.close();
+    }
+
+    @Test
+    public void wrappedSnifferReturnsSelectedHosts() throws IOException {
+        LatencyAwareHostSelector selector = selector("{ \"minHosts\": 1, \"toleranceMillis\": 0 }");
+        HttpHost es4 = new HttpHost("es4", 9200);
+        respond(selector, ES1, 10);
+        respond(selector, ES2, 500);
+        HostsSniffer delegate = mock(HostsSniffer.class);
+        when(delegate.sniffHosts()).thenReturn(Arrays.asList(ES1, ES2, es4));
+
+        List<HttpHost> selected = selector.wrap(delegate).sniffHosts();
+
+        // es4 has no samples yet, so is selected
+        assertEquals(Arrays.asList(ES1, es4), selected);
+    }
+
+    @Test
+    public void inFlightRequestsAreReadFromTheConnectionPool() throws Exception {
+        try (FakeEsServer server = new FakeEsServer()) {
+            PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+            try (CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom().setConnectionManager(connectionManager).build()) {
+                // The client runs the IO reactor, so that connections can be leased
+                httpClient.start();
+                HttpHost host = server.getHttpHost();
+                LatencyAwareHostSelector selector = new LatencyAwareHostSelector(
+                        Jackson.newObjectMapper().readValue("{}", EsNodeSelectionConfiguration.class),
+                        connectionManager, metrics, "es", Collections.singletonList(host));
+                Gauge inFlightGauge = metrics.getGauges().get("es.selector.hosts." + host.toHostString() + ".in-flight");
+
+                assertEquals(0, inFlightGauge.getValue());
+
+                NHttpClientConnection connection = connectionManager.requestConnection(HttpRouteHelper.routeTo(host), null,
+                        1000, 0, 1000, TimeUnit.MILLISECONDS, null).get(5, TimeUnit.SECONDS);
+
+                assertEquals(1, inFlightGauge.getValue());
+
+                connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+                assertEquals(0, inFlightGauge.getValue());
+                selector.close();
+            }
+        }
+    }
+
+    @Test
+    public void hostsWithoutPortUseTheSchemeDefaultPort() throws IOException {
+        PoolingNHttpClientConnectionManager connectionManager = mock(PoolingNHttpClientConnectionManager.class);
+        when(connectionManager.getStats(any(HttpRoute.class))).thenReturn(new PoolStats(0, 0, 0, 10));
+        when(connectionManager.getStats(eq(new HttpRoute(new HttpHost("es1", 443, "https"), null, true))))
+                .thenReturn(new PoolStats(3, 0, 0, 10));
+        HttpHost host = HttpHost.create("https://es1");
+
+        new LatencyAwareHostSelector(Jackson.newObjectMapper().readValue("{}", EsNodeSelectionConfiguration.class),
+                connectionManager, metrics, "es", Collections.singletonList(host));
+
+        assertEquals(3, metrics.getGauges().get("es.selector.hosts.es1.in-flight").getValue());
+    }
+
+    private LatencyAwareHostSelector selector(String json) throws IOException {
+        EsNodeSelectionConfiguration config = Jackson.newObjectMapper().readValue(json, EsNodeSelectionConfiguration.class);
+        return new LatencyAwareHostSelector(config, host -> inFlight.getOrDefault(host, 0), metrics, "es", HOSTS);
+    }
+
+    private static void respond(LatencyAwareHostSelector selector, HttpHost host, long millis) {
+        selector.onResponse(host, RequestCategory.SEARCH, 200, TimeUnit.MILLISECONDS.toNanos(millis), 0, 0);
+    }
+}
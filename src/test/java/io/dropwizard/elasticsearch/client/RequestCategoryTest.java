@@ -0,0 +1,50 @@
+package io.dropwizard.elasticsearch.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link RequestCategory}.
+ */
+public class RequestCategoryTest {
+
+    @Test
+    public void searchEndpoints() {
+        assertEquals(RequestCategory.SEARCH, RequestCategory.of("GET", "/index/_search"));
+        assertEquals(RequestCategory.SEARCH, RequestCategory.of("POST", "/_search/scroll"));
+        assertEquals(RequestCategory.SEARCH, RequestCategory.of("POST", "/_msearch"));
+        assertEquals(RequestCategory.SEARCH, RequestCategory.of("GET", "/index/doc/_count"));
+    }
+
+    @Test
+    public void bulkEndpoints() {
+        assertEquals(RequestCategory.BULK, RequestCategory.of("POST", "/_bulk"));
+        assertEquals(RequestCategory.BULK, RequestCategory.of("POST", "/index/_bulk?refresh=true"));
+    }
+
+    @Test
+    public void documentEndpoints() {
+        assertEquals(RequestCategory.GET, RequestCategory.of("GET", "/index/doc/1"));
+        assertEquals(RequestCategory.GET, RequestCategory.of("GET", "/_mget"));
+        assertEquals(RequestCategory.GET, RequestCategory.of("GET", "/index/_doc/1"));
+        assertEquals(RequestCategory.INDEX, RequestCategory.of("PUT", "/index/doc/1"));
+        assertEquals(RequestCategory.INDEX, RequestCategory.of("POST", "/index/doc"));
+        assertEquals(RequestCategory.INDEX, RequestCategory.of("POST", "/index/doc/1/_update"));
+        assertEquals(RequestCategory.INDEX, RequestCategory.of("DELETE", "/index/_doc/1"));
+    }
+
+    @Test
+    public void clusterEndpoints() {
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("GET", "/_cluster/health"));
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("GET", "/index/_stats/docs"));
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("HEAD", "/"));
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("HEAD", "/index"));
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("PUT", "/index"));
+    }
+
+    @Test
+    public void queryStringIsIgnored() {
+        assertEquals(RequestCategory.CLUSTER, RequestCategory.of("GET", "/_cluster/health?filter_path=_search"));
+    }
+}
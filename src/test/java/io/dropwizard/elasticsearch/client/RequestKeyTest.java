@@ -0,0 +1,56 @@
+package io.dropwizard.elasticsearch.client;
+
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for {@link RequestKey}.
+ */
+public class RequestKeyTest {
+
+    @Test
+    public void identicalSearchesHaveEqualKeys() {
+        assertEquals(RequestKey.of(search("logs", "error")), RequestKey.of(search("logs", "error")));
+        assertEquals(RequestKey.of(search("logs", "error")).hashCode(), RequestKey.of(search("logs", "error")).hashCode());
+    }
+
+    @Test
+    public void searchesDifferingInIndexQueryOrOptionsHaveDifferentKeys() {
+        final RequestKey key = RequestKey.of(search("logs", "error"));
+        assertNotEquals(key, RequestKey.of(search("metrics", "error")));
+        assertNotEquals(key, RequestKey.of(search("logs", "warning")));
+        assertNotEquals(key, RequestKey.of(search("logs", "error").routing("user-1")));
+    }
+
+    @Test
+    public void searchesDifferingInIndicesOptionsOrScrollHaveDifferentKeys() {
+        final RequestKey key = RequestKey.of(search("logs", "error"));
+        assertNotEquals(key, RequestKey.of(search("logs", "error")
+                .indicesOptions(IndicesOptions.fromOptions(true, true, true, false))));
+        assertNotEquals(key, RequestKey.of(search("logs", "error").scroll(TimeValue.timeValueMinutes(1))));
+        assertEquals(RequestKey.of(search("logs", "error").indicesOptions(IndicesOptions.lenientExpandOpen())),
+                RequestKey.of(search("logs", "error").indicesOptions(IndicesOptions.lenientExpandOpen())));
+    }
+
+    @Test
+    public void getsAreKeyedOnTheirDocument() {
+        assertEquals(RequestKey.of(new GetRequest("logs", "doc", "1")), RequestKey.of(new GetRequest("logs", "doc", "1")));
+        assertNotEquals(RequestKey.of(new GetRequest("logs", "doc", "1")), RequestKey.of(new GetRequest("logs", "doc", "2")));
+        assertNotEquals(RequestKey.of(new GetRequest("logs", "doc", "1")), RequestKey.of(search("logs", "1")));
+        assertEquals(Collections.singletonList("logs"), RequestKey.of(new GetRequest("logs", "doc", "1")).getIndices());
+    }
+
+    private static SearchRequest search(String index, String text) {
+        return new SearchRequest(index).source(new SearchSourceBuilder().query(QueryBuilders.matchQuery("message", text)));
+    }
+}
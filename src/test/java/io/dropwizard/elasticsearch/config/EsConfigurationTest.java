@@ -13,6 +13,9 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Unit tests for {@link EsConfiguration}.
  */
@@ -33,4 +36,29 @@ public class EsConfigurationTest {
         File configFile = new File(configFileUrl.toURI());
         configFactory.build(configFile);
     }
+
+    @Test
+    public void keepAliveMayBeDisabledOrPositive() throws IOException {
+        assertTrue(validator.validate(Jackson.newObjectMapper().readValue("{ \"keepAliveMillis\": -1 }", EsHttpConfiguration.class)).isEmpty());
+        assertTrue(validator.validate(Jackson.newObjectMapper().readValue("{ \"keepAliveMillis\": 5000 }", EsHttpConfiguration.class)).isEmpty());
+    }
+
+    @Test
+    public void keepAliveMustNotBeZero() throws IOException {
+        final EsHttpConfiguration config = Jackson.newObjectMapper().readValue("{ \"keepAliveMillis\": 0 }", EsHttpConfiguration.class);
+
+        assertEquals(1, validator.validate(config).size());
+    }
+
+    @Test
+    public void breakerMinimumRequestsMustFitInTheWindow() throws IOException {
+        final EsCircuitBreakerConfiguration valid = Jackson.newObjectMapper().readValue(
+                "{ \"defaults\": { \"minimumRequests\": 10, \"windowSize\": 10 } }", EsCircuitBreakerConfiguration.class);
+        final EsCircuitBreakerConfiguration invalid = Jackson.newObjectMapper().readValue(
+                "{ \"categories\": { \"SEARCH\": { \"minimumRequests\": 50, \"windowSize\": 10 } } }",
+                EsCircuitBreakerConfiguration.class);
+
+        assertTrue(validator.validate(valid).isEmpty());
+        assertEquals(1, validator.validate(invalid).size());
+    }
 }
@@ -1,6 +1,8 @@
 package io.dropwizard.elasticsearch.health;
 
 import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.elasticsearch.client.EsCircuitBreaker;
+import io.dropwizard.elasticsearch.client.RequestCategory;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.entity.ContentType;
@@ -15,7 +17,11 @@ import org.junit.Test;
 
 import javax.ws.rs.HttpMethod;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -56,7 +62,8 @@ public class EsClusterHealthCheckTest {
     @Test(expected = IOException.class)
     public void restClientThrowsIOException() throws Exception {
         EsClusterHealthCheck healthCheck = new EsClusterHealthCheck(highLevelClient, true);
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenThrow(new IOException("Error"));
 
         HealthCheck.Result result = healthCheck.check();
@@ -68,7 +75,8 @@ public class EsClusterHealthCheckTest {
         EsClusterHealthCheck healthCheck = new EsClusterHealthCheck(highLevelClient, true);
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(BAD_STATUS_LINE);
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -81,7 +89,8 @@ public class EsClusterHealthCheckTest {
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
         when(response.getEntity()).thenReturn(new NStringEntity("{ }", ContentType.APPLICATION_JSON));
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -94,7 +103,8 @@ public class EsClusterHealthCheckTest {
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
         when(response.getEntity()).thenReturn(new NStringEntity("{ \"status\": \"red\" }", ContentType.APPLICATION_JSON));
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -107,7 +117,8 @@ public class EsClusterHealthCheckTest {
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
         when(response.getEntity()).thenReturn(new NStringEntity("{ \"status\": \"yellow\" }", ContentType.APPLICATION_JSON));
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -120,7 +131,8 @@ public class EsClusterHealthCheckTest {
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
         when(response.getEntity()).thenReturn(new NStringEntity("{ \"status\": \"yellow\" }", ContentType.APPLICATION_JSON));
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -133,7 +145,53 @@ public class EsClusterHealthCheckTest {
         Response response = mock(Response.class);
         when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
         when(response.getEntity()).thenReturn(new NStringEntity("{ \"status\": \"green\" }", ContentType.APPLICATION_JSON));
-        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT))
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
+                .thenReturn(response);
+
+        HealthCheck.Result result = healthCheck.check();
+        assertTrue(result.isHealthy());
+    }
+
+    @Test
+    public void statusIsFoundAfterNestedObjects() throws Exception {
+        EsClusterHealthCheck healthCheck = new EsClusterHealthCheck(highLevelClient, true);
+        Response response = mock(Response.class);
+        when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
+        when(response.getEntity()).thenReturn(new NStringEntity(
+                "{ \"indices\": { \"a\": { \"status\": \"red\" } }, \"status\": \"green\" }", ContentType.APPLICATION_JSON));
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
+                .thenReturn(response);
+
+        HealthCheck.Result result = healthCheck.check();
+        assertTrue(result.isHealthy());
+    }
+
+    @Test
+    public void restClientUnhealthyWhenCircuitBreakerOpen() throws Exception {
+        EsCircuitBreaker circuitBreaker = mock(EsCircuitBreaker.class);
+        Map<RequestCategory, EsCircuitBreaker.State> states = new EnumMap<>(RequestCategory.class);
+        states.put(RequestCategory.SEARCH, EsCircuitBreaker.State.OPEN);
+        states.put(RequestCategory.BULK, EsCircuitBreaker.State.CLOSED);
+        when(circuitBreaker.getStates()).thenReturn(states);
+        EsClusterHealthCheck healthCheck = new EsClusterHealthCheck(highLevelClient, false, circuitBreaker);
+
+        HealthCheck.Result result = healthCheck.check();
+        assertFalse(result.isHealthy());
+        assertEquals("OPEN", result.getDetails().get("SEARCH"));
+    }
+
+    @Test
+    public void restClientChecksClusterWhenCircuitBreakerClosed() throws Exception {
+        EsCircuitBreaker circuitBreaker = mock(EsCircuitBreaker.class);
+        when(circuitBreaker.getStates()).thenReturn(Collections.singletonMap(RequestCategory.SEARCH, EsCircuitBreaker.State.CLOSED));
+        EsClusterHealthCheck healthCheck = new EsClusterHealthCheck(highLevelClient, false, circuitBreaker);
+        Response response = mock(Response.class);
+        when(response.getStatusLine()).thenReturn(GOOD_STATUS_LINE);
+        when(response.getEntity()).thenReturn(new NStringEntity("{ \"status\": \"green\" }", ContentType.APPLICATION_JSON));
+        when(lowLevelClient.performRequest(HttpMethod.GET, EsClusterHealthCheck.CLUSTER_HEALTH_ENDPOINT,
+                EsClusterHealthCheck.CLUSTER_HEALTH_PARAMS))
                 .thenReturn(response);
 
         HealthCheck.Result result = healthCheck.check();
@@ -0,0 +1,91 @@
+package io.dropwizard.elasticsearch.health;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.elasticsearch.config.EsHealthCheckConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link EsHealthCheckRefresher}.
+ */
+public class EsHealthCheckRefresherTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    private final CountDownLatch backgroundRefresh = new CountDownLatch(1);
+    private EsHealthCheckRefresher refresher;
+
+    @Before
+    public void setup() throws IOException {
+        EsHealthCheckConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"refreshIntervalMillis\": 3600000, \"maxStalenessMillis\": 3600000 }",
+                EsHealthCheckConfiguration.class);
+        refresher = new EsHealthCheckRefresher(config, metrics, "es");
+    }
+
+    @After
+    public void closeRefresher() {
+        refresher.close();
+    }
+
+    @Test
+    public void cachedResultIsReturnedWithoutCallingDelegate() throws Exception {
+        HealthCheck cached = refresher.cache(new CountingHealthCheck());
+        // Wait for the initial background refresh; the next one is an hour away
+        assertTrue(backgroundRefresh.await(5, TimeUnit.SECONDS));
+        refresher.refresh();
+        int callsAfterRefresh = delegateCalls.get();
+
+        HealthCheck.Result first = cached.execute();
+        HealthCheck.Result second = cached.execute();
+
+        assertTrue(first.isHealthy());
+        assertTrue(second.isHealthy());
+        assertEquals("All good", first.getMessage());
+        assertTrue(first.getDetails().containsKey("stalenessMillis"));
+        assertEquals(callsAfterRefresh, delegateCalls.get());
+        assertTrue(metrics.timer("es.health.refresh").getCount() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotCacheAfterClose() {
+        refresher.close();
+        refresher.cache(new CountingHealthCheck());
+    }
+
+    @Test
+    public void exceptionsAreCachedAsUnhealthy() {
+        HealthCheck cached = refresher.cache(new HealthCheck() {
+            @Override
+            protected Result check() throws Exception {
+                throw new IOException("Connection refused");
+            }
+        });
+        refresher.refresh();
+
+        HealthCheck.Result result = cached.execute();
+
+        assertFalse(result.isHealthy());
+    }
+
+    private class CountingHealthCheck extends HealthCheck {
+        @Override
+        protected Result check() {
+            delegateCalls.incrementAndGet();
+            backgroundRefresh.countDown();
+            return Result.healthy("All good");
+        }
+    }
+}
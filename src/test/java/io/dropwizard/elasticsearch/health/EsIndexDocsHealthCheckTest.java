@@ -1,12 +1,23 @@
 package io.dropwizard.elasticsearch.health;
 
+import com.codahale.metrics.health.HealthCheck;
 import com.google.common.collect.ImmutableList;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
 import org.junit.Test;
 
+import javax.ws.rs.HttpMethod;
 import java.util.Collections;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for {@link EsIndexDocsHealthCheck}.
@@ -14,7 +25,7 @@ import static org.mockito.Mockito.mock;
 public class EsIndexDocsHealthCheckTest {
     @Test(expected = NullPointerException.class)
     public void initializationWithNullClientShouldFail() {
-        new EsIndexDocsHealthCheck(null, "index");
+        new EsIndexDocsHealthCheck((Client) null, "index");
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -46,4 +57,43 @@ public class EsIndexDocsHealthCheckTest {
     public void initializationWithValidParametersShouldSucceedl() {
         new EsIndexDocsHealthCheck(mock(Client.class), "index", 10L);
     }
+
+    @Test(expected = NullPointerException.class)
+    public void initializationWithNullRestClientShouldFail() {
+        new EsIndexDocsHealthCheck((RestHighLevelClient) null, "index");
+    }
+
+    @Test
+    public void restClientHealthyWhenAllIndicesHaveDocuments() throws Exception {
+        EsIndexDocsHealthCheck healthCheck = new EsIndexDocsHealthCheck(restClientReturning(
+                "{\"indices\":{\"index\":{\"primaries\":{\"docs\":{\"count\":10}}},"
+                        + "\"foobar\":{\"primaries\":{\"docs\":{\"count\":5}}}}}"),
+                ImmutableList.of("index", "foobar"), 5L);
+
+        HealthCheck.Result result = healthCheck.check();
+        assertTrue(result.isHealthy());
+        assertEquals("Last stats: [index (10!), foobar (5!)]", result.getMessage());
+    }
+
+    @Test
+    public void restClientUnhealthyWhenAnIndexHasTooFewDocuments() throws Exception {
+        EsIndexDocsHealthCheck healthCheck = new EsIndexDocsHealthCheck(restClientReturning(
+                "{\"indices\":{\"index\":{\"primaries\":{\"docs\":{\"count\":10}}},"
+                        + "\"foobar\":{\"primaries\":{\"docs\":{\"count\":0}}}}}"),
+                ImmutableList.of("index", "foobar"));
+
+        HealthCheck.Result result = healthCheck.check();
+        assertFalse(result.isHealthy());
+    }
+
+    private static RestHighLevelClient restClientReturning(String body) throws Exception {
+        RestHighLevelClient highLevelClient = mock(RestHighLevelClient.class);
+        RestClient lowLevelClient = mock(RestClient.class);
+        Response response = mock(Response.class);
+        when(highLevelClient.getLowLevelClient()).thenReturn(lowLevelClient);
+        when(response.getEntity()).thenReturn(new NStringEntity(body, ContentType.APPLICATION_JSON));
+        when(lowLevelClient.performRequest(HttpMethod.GET, "/index,foobar/_stats/docs", EsIndexDocsHealthCheck.STATS_PARAMS))
+                .thenReturn(response);
+        return highLevelClient;
+    }
 }
@@ -1,20 +1,37 @@
 package io.dropwizard.elasticsearch.health;
 
+import com.codahale.metrics.health.HealthCheck;
 import com.google.common.collect.ImmutableList;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.message.BasicStatusLine;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
 import org.junit.Test;
 
+import javax.ws.rs.HttpMethod;
 import java.util.Collections;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for {@link EsIndexExistsHealthCheck}.
  */
 public class EsIndexExistsHealthCheckTest {
+    private static final ProtocolVersion PROTOCOL_VERSION = new ProtocolVersion("HTTP", 1, 1);
+
     @Test(expected = NullPointerException.class)
     public void initializationWithNullClientShouldFail() {
-        new EsIndexExistsHealthCheck(null, "index");
+        new EsIndexExistsHealthCheck((Client) null, "index");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void initializationWithNullRestClientShouldFail() {
+        new EsIndexExistsHealthCheck((RestHighLevelClient) null, "index");
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -36,4 +53,30 @@ public class EsIndexExistsHealthCheckTest {
     public void initializationWithClientAndIndicesShouldSucceed() {
         new EsIndexExistsHealthCheck(mock(Client.class), ImmutableList.of("index", "foobar"));
     }
+
+    @Test
+    public void restClientHealthyWhenAllIndicesExist() throws Exception {
+        EsIndexExistsHealthCheck healthCheck = new EsIndexExistsHealthCheck(restClientReturning(200), ImmutableList.of("index", "foobar"));
+
+        HealthCheck.Result result = healthCheck.check();
+        assertTrue(result.isHealthy());
+    }
+
+    @Test
+    public void restClientUnhealthyWhenAnyIndexIsMissing() throws Exception {
+        EsIndexExistsHealthCheck healthCheck = new EsIndexExistsHealthCheck(restClientReturning(404), ImmutableList.of("index", "foobar"));
+
+        HealthCheck.Result result = healthCheck.check();
+        assertFalse(result.isHealthy());
+    }
+
+    private static RestHighLevelClient restClientReturning(int statusCode) throws Exception {
+        RestHighLevelClient highLevelClient = mock(RestHighLevelClient.class);
+        RestClient lowLevelClient = mock(RestClient.class);
+        Response response = mock(Response.class);
+        when(highLevelClient.getLowLevelClient()).thenReturn(lowLevelClient);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(PROTOCOL_VERSION, statusCode, ""));
+        when(lowLevelClient.performRequest(HttpMethod.HEAD, "/index,foobar")).thenReturn(response);
+        return highLevelClient;
+    }
 }
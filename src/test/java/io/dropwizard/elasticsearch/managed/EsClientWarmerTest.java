@@ -0,0 +1,119 @@
+package io.dropwizard.elasticsearch.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsWarmupConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.HostsSniffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link EsClientWarmer}.
+ */
+public class EsClientWarmerTest {
+
+    private static final List<HttpHost> HOSTS = Arrays.asList(new HttpHost("es1", 9200), new HttpHost("es2", 9200));
+
+    private final RestClient restClient = mock(RestClient.class);
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void opensConnectionsPerHostAndRecordsDuration() throws Exception {
+        completeRequests();
+        EsWarmupConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"connectionsPerHost\": 3 }", EsWarmupConfiguration.class);
+
+        new EsClientWarmer(config, restClient, null, HOSTS, metrics, "es").warmUp();
+
+        verify(restClient, times(6)).performRequestAsync(eq("HEAD"), eq("/"), any(ResponseListener.class));
+        assertEquals(1, metrics.timer("es.warmup").getCount());
+    }
+
+    @Test
+    public void sniffedHostsReplaceConfiguredHosts() throws Exception {
+        completeRequests();
+        HostsSniffer hostsSniffer = mock(HostsSniffer.class);
+        List<HttpHost> sniffed = Arrays.asList(new HttpHost("es1", 9200), new HttpHost("es2", 9200), new HttpHost("es3", 9200));
+        when(hostsSniffer.sniffHosts()).thenReturn(sniffed);
+        EsWarmupConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"connectionsPerHost\": 1 }", EsWarmupConfiguration.class);
+
+        new EsClientWarmer(config, restClient, hostsSniffer, HOSTS, metrics, "es").warmUp();
+
+        verify(restClient).setHosts(sniffed.toArray(new HttpHost[0]));
+        verify(restClient, times(3)).performRequestAsync(eq("HEAD"), eq("/"), any(ResponseListener.class));
+    }
+
+    @Test
+    public void emptySniffKeepsConfiguredHosts() throws Exception {
+        completeRequests();
+        HostsSniffer hostsSniffer = mock(HostsSniffer.class);
+        when(hostsSniffer.sniffHosts()).thenReturn(Collections.emptyList());
+        EsWarmupConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"connectionsPerHost\": 1 }", EsWarmupConfiguration.class);
+
+        new EsClientWarmer(config, restClient, hostsSniffer, HOSTS, metrics, "es").warmUp();
+
+        verify(restClient, never()).setHosts(any(HttpHost[].class));
+        verify(restClient, times(2)).performRequestAsync(eq("HEAD"), eq("/"), any(ResponseListener.class));
+    }
+
+    @Test
+    public void sendsConfiguredQueries() throws Exception {
+        completeRequests();
+        EsWarmupConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"connectionsPerHost\": 0, \"queries\": [ "
+                        + "{ \"endpoint\": \"/_cluster/health\" }, "
+                        + "{ \"method\": \"POST\", \"endpoint\": \"/idx/_search\", \"body\": \"{}\" } ] }",
+                EsWarmupConfiguration.class);
+
+        new EsClientWarmer(config, restClient, null, HOSTS, metrics, "es").warmUp();
+
+        verify(restClient).performRequestAsync(eq("GET"), eq("/_cluster/health"), anyMap(), isNull(), any(ResponseListener.class));
+        verify(restClient).performRequestAsync(eq("POST"), eq("/idx/_search"), anyMap(), any(HttpEntity.class), any(ResponseListener.class));
+    }
+
+    @Test
+    public void timesOutWithoutFailing() throws Exception {
+        // Requests never complete
+        EsWarmupConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"connectionsPerHost\": 1, \"timeoutMillis\": 50, "
+                        + "\"queries\": [ { \"endpoint\": \"/\" } ] }",
+                EsWarmupConfiguration.class);
+
+        new EsClientWarmer(config, restClient, null, HOSTS, metrics, "es").warmUp();
+
+        verify(restClient, never()).performRequestAsync(any(), any(), anyMap(), any(), any(ResponseListener.class));
+        assertEquals(1, metrics.timer("es.warmup").getCount());
+    }
+
+    private void completeRequests() {
+        doAnswer(invocation -> {
+            invocation.<ResponseListener>getArgument(2).onSuccess(null);
+            return null;
+        }).when(restClient).performRequestAsync(any(), any(), any(ResponseListener.class));
+        doAnswer(invocation -> {
+            invocation.<ResponseListener>getArgument(4).onFailure(new Exception("failed"));
+            return null;
+        }).when(restClient).performRequestAsync(any(), any(), anyMap(), any(), any(ResponseListener.class));
+    }
+}
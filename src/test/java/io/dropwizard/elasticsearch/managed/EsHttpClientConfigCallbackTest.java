@@ -0,0 +1,57 @@
+package io.dropwizard.elasticsearch.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.client.EsCompression;
+import io.dropwizard.elasticsearch.client.RequestEventDispatcher;
+import io.dropwizard.elasticsearch.config.EsCompressionConfiguration;
+import io.dropwizard.elasticsearch.config.EsHttpConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.client.config.RequestConfig;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link EsHttpClientConfigCallback}.
+ */
+public class EsHttpClientConfigCallbackTest {
+
+    private static final EsCompression COMPRESSION = new EsCompression(new EsCompressionConfiguration(), new MetricRegistry(), "es");
+
+    @Test
+    public void requestConfigUsesConfiguredTimeouts() throws IOException {
+        EsHttpConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"connectTimeoutMillis\": 250, \"socketTimeoutMillis\": 5000, \"connectionRequestTimeoutMillis\": 100 }",
+                EsHttpConfiguration.class);
+
+        RequestConfig requestConfig = new EsHttpClientConfigCallback(config, new RequestEventDispatcher(), COMPRESSION)
+                .customizeRequestConfig(RequestConfig.custom())
+                .build();
+
+        assertEquals(250, requestConfig.getConnectTimeout());
+        assertEquals(5000, requestConfig.getSocketTimeout());
+        assertEquals(100, requestConfig.getConnectionRequestTimeout());
+    }
+
+    @Test
+    public void connectionRequestTimeoutLeftUnsetByDefault() throws IOException {
+        RequestConfig requestConfig = new EsHttpClientConfigCallback(new EsHttpConfiguration(), new RequestEventDispatcher(), COMPRESSION)
+                .customizeRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(42))
+                .build();
+
+        assertEquals(42, requestConfig.getConnectionRequestTimeout());
+    }
+
+    @Test
+    public void connectionManagerUsesConfiguredLimits() throws IOException {
+        EsHttpConfiguration config = Jackson.newObjectMapper().readValue(
+                "{ \"maxConnTotal\": 100, \"maxConnPerRoute\": 50 }", EsHttpConfiguration.class);
+
+        EsHttpClientConfigCallback callback = new EsHttpClientConfigCallback(config, new RequestEventDispatcher(), COMPRESSION);
+
+        assertEquals(100, callback.getConnectionManager().getMaxTotal());
+        assertEquals(50, callback.getConnectionManager().getDefaultMaxPerRoute());
+    }
+}
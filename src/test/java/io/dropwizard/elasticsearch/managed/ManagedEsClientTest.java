@@ -1,16 +1,24 @@
 package io.dropwizard.elasticsearch.managed;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.net.HostAndPort;
 import io.dropwizard.configuration.ConfigurationException;
 import io.dropwizard.configuration.ConfigurationFactory;
 import io.dropwizard.configuration.DefaultConfigurationFactoryFactory;
+import io.dropwizard.elasticsearch.client.EsAsyncClient;
 import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
 import io.dropwizard.elasticsearch.util.TransportAddressHelper;
 import io.dropwizard.jackson.Jackson;
 import io.dropwizard.lifecycle.Managed;
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.unit.TimeValue;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -22,6 +30,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -71,6 +84,85 @@ public class ManagedEsClientTest {
         verify(client).close();
     }
 
+    @Test
+    public void bulkProcessorShouldBeCreatedWhenEnabled() throws IOException {
+        managedEsClient = new ManagedEsClient(Jackson.newObjectMapper().readValue(
+                "{ \"servers\": [ \"http://127.0.0.1:9200\" ], \"bulk\": { \"enabled\": true } }", EsConfiguration.class));
+
+        assertNotNull(managedEsClient.getBulkProcessor());
+    }
+
+    @Test
+    public void bulkProcessorShouldNotBeCreatedByDefault() throws IOException {
+        managedEsClient = new ManagedEsClient(Jackson.newObjectMapper().readValue(
+                "{ \"servers\": [ \"http://127.0.0.1:9200\" ] }", EsConfiguration.class));
+
+        assertNull(managedEsClient.getBulkProcessor());
+    }
+
+    @Test
+    public void asyncClientShouldBeCreatedOnce() throws IOException {
+        managedEsClient = new ManagedEsClient(Jackson.newObjectMapper().readValue(
+                "{ \"servers\": [ \"http://127.0.0.1:9200\" ] }", EsConfiguration.class));
+
+        final EsAsyncClient asyncClient = managedEsClient.getAsyncClient();
+        assertNotNull(asyncClient);
+        assertSame(asyncClient, managedEsClient.getAsyncClient());
+    }
+
+    @Test
+    public void clientsShouldShareAMetricRegistry() throws Exception {
+        final EsConfiguration config = Jackson.newObjectMapper().readValue("{ \"servers\": [ \"http://127.0.0.1:9200\" ], "
+                + "\"metrics\": { \"enabled\": true }, \"bulk\": { \"enabled\": true, \"adaptiveConcurrency\": true }, "
+                + "\"nodeSelection\": { \"strategy\": \"LATENCY_AWARE\" }, \"hedging\": { \"enabled\": true }, "
+                + "\"circuitBreaker\": { \"enabled\": true, \"defaults\": { \"maxConcurrentRequests\": 10 } }, "
+                + "\"queryCache\": { \"enabled\": true } }", EsConfiguration.class);
+        final MetricRegistry metrics = new MetricRegistry();
+
+        managedEsClient = new ManagedEsClient(config, metrics);
+        final ManagedEsClient other = new ManagedEsClient(config, metrics);
+        other.stop();
+
+        assertFalse(metrics.getGauges().isEmpty());
+    }
+
+    @Test
+    public void searchesWithHeadersShouldNotBeCached() throws Exception {
+        try (FakeEsServer server = new FakeEsServer()) {
+            managedEsClient = new ManagedEsClient(Jackson.newObjectMapper().readValue("{ \"servers\": [ \""
+                    + server.getAddress() + "\" ], \"queryCache\": { \"enabled\": true } }", EsConfiguration.class));
+            final Header credentials = new BasicHeader("Authorization", "Basic dXNlcjpwYXNz");
+
+            managedEsClient.search(new SearchRequest("products"), credentials);
+            managedEsClient.search(new SearchRequest("products"), credentials);
+            assertEquals(2, server.getRequestCount("_search"));
+            assertEquals(0, managedEsClient.getQueryCache().size());
+
+            managedEsClient.search(new SearchRequest("products"));
+            managedEsClient.search(new SearchRequest("products"));
+            assertEquals(3, server.getRequestCount("_search"));
+        }
+    }
+
+    @Test
+    public void concurrentScrollSearchesShouldNotBeCoalesced() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (FakeEsServer server = new FakeEsServer().withLatency(200)) {
+            managedEsClient = new ManagedEsClient(Jackson.newObjectMapper().readValue("{ \"servers\": [ \""
+                    + server.getAddress() + "\" ], \"coalescing\": { \"enabled\": true } }", EsConfiguration.class));
+            final Callable<SearchResponse> scroll = () -> managedEsClient.search(
+                    new SearchRequest("products").scroll(TimeValue.timeValueMinutes(1)));
+
+            final Future<SearchResponse> first = executor.submit(scroll);
+            final Future<SearchResponse> second = executor.submit(scroll);
+            assertNotSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+
+            assertEquals(2, server.getRequestCount("_search"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void transportClientShouldBeCreatedFromConfig() throws URISyntaxException, IOException, ConfigurationException {
         URL configFileUrl = this.getClass().getResource("/transport_client.yml");
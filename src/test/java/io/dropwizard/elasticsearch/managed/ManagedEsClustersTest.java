@@ -0,0 +1,114 @@
+package io.dropwizard.elasticsearch.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import io.dropwizard.elasticsearch.config.EsClustersConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.client.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ManagedEsClusters}, against two {@link FakeEsServer}s.
+ */
+public class ManagedEsClustersTest {
+
+    private FakeEsServer primary;
+    private FakeEsServer replica;
+    private MetricRegistry metrics;
+    private ManagedEsClusters clusters;
+
+    @Before
+    public void setup() throws IOException {
+        primary = new FakeEsServer();
+        replica = new FakeEsServer().withClusterStatus("yellow");
+        metrics = new MetricRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (clusters != null) {
+            clusters.stop();
+        }
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    public void readsAndWritesAreRoutedToTheirClusters() throws Exception {
+        clusters = newClusters("\"readCluster\": \"replica\", \"writeCluster\": \"primary\"");
+
+        assertEquals(Arrays.asList("primary", "replica"), Arrays.asList(clusters.getNames().toArray()));
+        assertSame(clusters.get("replica"), clusters.forReads());
+        assertSame(clusters.get("primary"), clusters.forWrites());
+
+        final Response response = clusters.forReads().performRequest("GET", "/_cluster/health", Collections.emptyMap(), null);
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        assertEquals(1, replica.getRequestCount("/_cluster/health"));
+        assertEquals(0, primary.getRequestCount("/_cluster/health"));
+    }
+
+    @Test
+    public void metricsArePrefixedWithTheClusterName() throws Exception {
+        clusters = newClusters("\"readCluster\": \"replica\", \"writeCluster\": \"primary\"");
+
+        final String prefix = MetricRegistry.name(ManagedEsClient.class);
+        assertTrue(metrics.getNames().stream().anyMatch(name -> name.startsWith(prefix + ".primary.")));
+        assertTrue(metrics.getNames().stream().anyMatch(name -> name.startsWith(prefix + ".replica.")));
+    }
+
+    @Test
+    public void healthChecksAreRegisteredForEachCluster() throws Exception {
+        clusters = newClusters("\"readCluster\": \"replica\", \"writeCluster\": \"primary\"");
+        final HealthCheckRegistry healthChecks = new HealthCheckRegistry();
+
+        clusters.registerHealthChecks(healthChecks, true);
+
+        // The checks are refreshed in the background, so are unhealthy until first refreshed
+        for (int i = 0; i < 500 && !healthChecks.runHealthCheck("elasticsearch.primary").isHealthy(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(healthChecks.runHealthCheck("elasticsearch.primary").isHealthy());
+        assertFalse(healthChecks.runHealthCheck("elasticsearch.replica").isHealthy());
+    }
+
+    @Test
+    public void singleClusterServesReadsAndWrites() throws Exception {
+        clusters = new ManagedEsClusters(Jackson.newObjectMapper().readValue("{ \"clusters\": { \"main\": "
+                + "{ \"servers\": [ \"" + primary.getAddress() + "\" ] } } }", EsClustersConfiguration.class), metrics);
+
+        assertSame(clusters.get("main"), clusters.forReads());
+        assertSame(clusters.get("main"), clusters.forWrites());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unroutedReadsAreRejectedWithSeveralClusters() throws Exception {
+        clusters = newClusters("\"writeCluster\": \"primary\"");
+
+        assertSame(clusters.get("primary"), clusters.forWrites());
+        clusters.forReads();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void routingMustNameConfiguredClusters() throws Exception {
+        clusters = newClusters("\"readCluster\": \"analytics\"");
+    }
+
+    private ManagedEsClusters newClusters(String routing) throws IOException {
+        return new ManagedEsClusters(Jackson.newObjectMapper().readValue("{ \"clusters\": {"
+                + " \"primary\": { \"servers\": [ \"" + primary.getAddress() + "\" ] },"
+                + " \"replica\": { \"servers\": [ \"" + replica.getAddress() + "\" ] } }, "
+                + routing + " }", EsClustersConfiguration.class), metrics);
+    }
+}
@@ -0,0 +1,98 @@
+package io.dropwizard.elasticsearch.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.reactor.IOReactor;
+import org.apache.http.nio.reactor.IOReactorStatus;
+import org.apache.http.pool.PoolStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link EsConnectionPoolMetrics}.
+ */
+public class EsConnectionPoolMetricsTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+    private final PoolingNHttpClientConnectionManager connectionManager = mock(PoolingNHttpClientConnectionManager.class);
+    private final IOReactor ioReactor = mock(IOReactor.class);
+
+    @Before
+    public void setup() {
+        when(connectionManager.getTotalStats()).thenReturn(new PoolStats(3, 1, 2, 30));
+        when(connectionManager.getStats(any(HttpRoute.class))).thenReturn(new PoolStats(2, 0, 1, 10));
+        when(ioReactor.getStatus()).thenReturn(IOReactorStatus.ACTIVE);
+    }
+
+    @Test
+    public void totalGaugesAreRegistered() {
+        new EsConnectionPoolMetrics(registry, "es", connectionManager, ioReactor);
+
+        assertEquals(3, gauge("es.pool.leased").getValue());
+        assertEquals(1, gauge("es.pool.pending").getValue());
+        assertEquals(2, gauge("es.pool.available").getValue());
+        assertEquals(30, gauge("es.pool.max").getValue());
+        assertEquals("ACTIVE", gauge("es.pool.io-reactor.status").getValue());
+    }
+
+    @Test
+    public void routeGaugesAreRegisteredForConfiguredAndNewHosts() {
+        EsConnectionPoolMetrics metrics = new EsConnectionPoolMetrics(registry, "es", connectionManager, ioReactor,
+                new HttpHost("node1", 9200));
+
+        assertEquals(2, gauge("es.pool.routes.node1:9200.leased").getValue());
+
+        metrics.onRequest(new HttpHost("node2", 9200), RequestCategory.SEARCH);
+        metrics.onRequest(new HttpHost("node2", 9200), RequestCategory.SEARCH);
+
+        assertTrue(registry.getGauges().containsKey("es.pool.routes.node2:9200.pending"));
+    }
+
+    @Test
+    public void routeGaugesUseTheSchemeDefaultPort() {
+        when(connectionManager.getStats(eq(new HttpRoute(new HttpHost("node1", 443, "https"), null, true))))
+                .thenReturn(new PoolStats(4, 0, 1, 10));
+
+        new EsConnectionPoolMetrics(registry, "es", connectionManager, ioReactor, HttpHost.create("https://node1"));
+
+        assertEquals(4, gauge("es.pool.routes.node1:443.leased").getValue());
+    }
+
+    @Test
+    public void requestsToHostsWithoutPortUseTheRegisteredRoute() {
+        EsConnectionPoolMetrics metrics = new EsConnectionPoolMetrics(registry, "es", connectionManager, ioReactor,
+                HttpHost.create("http://node1"));
+        final int gauges = registry.getGauges().size();
+
+        metrics.onRequest(HttpHost.create("http://node1"), RequestCategory.SEARCH);
+        metrics.onRequest(new HttpHost("node1", 80, "http"), RequestCategory.SEARCH);
+
+        assertEquals(gauges, registry.getGauges().size());
+        assertTrue(registry.getGauges().containsKey("es.pool.routes.node1:80.leased"));
+    }
+
+    @Test
+    public void existingGaugesAreKeptWhenRegistryIsShared() {
+        new EsConnectionPoolMetrics(registry, "es", connectionManager, ioReactor, new HttpHost("node1", 9200));
+        new EsConnectionPoolMetrics(registry, "es", mock(PoolingNHttpClientConnectionManager.class), ioReactor,
+                new HttpHost("node1", 9200));
+
+        assertEquals(3, gauge("es.pool.leased").getValue());
+        assertEquals(2, gauge("es.pool.routes.node1:9200.leased").getValue());
+    }
+
+    private Gauge gauge(String name) {
+        return registry.getGauges().get(name);
+    }
+}
@@ -0,0 +1,55 @@
+package io.dropwizard.elasticsearch.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.client.RequestCategory;
+import org.apache.http.HttpHost;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit tests for {@link EsRequestMetrics}.
+ */
+public class EsRequestMetricsTest {
+
+    private static final HttpHost HOST = new HttpHost("localhost", 9200);
+
+    private final MetricRegistry registry = new MetricRegistry();
+
+    @Test
+    public void responsesAreRecordedByCategoryStatusAndHost() {
+        EsRequestMetrics metrics = new EsRequestMetrics(registry, "es", true);
+
+        metrics.onResponse(HOST, RequestCategory.SEARCH, 200, TimeUnit.MILLISECONDS.toNanos(5), 100, 2000);
+        metrics.onResponse(HOST, RequestCategory.BULK, 429, TimeUnit.MILLISECONDS.toNanos(5), 5000, -1);
+
+        assertEquals(1, registry.timer("es.requests.search").getCount());
+        assertEquals(1, registry.timer("es.requests.bulk").getCount());
+        assertEquals(2, registry.timer("es.requests.hosts.localhost:9200").getCount());
+        assertEquals(1, registry.meter("es.requests.responses.2xx").getCount());
+        assertEquals(1, registry.meter("es.requests.responses.4xx").getCount());
+        assertEquals(2, registry.histogram("es.requests.request-size").getCount());
+        assertEquals(1, registry.histogram("es.requests.response-size").getCount());
+    }
+
+    @Test
+    public void hostTimersAreOptional() {
+        EsRequestMetrics metrics = new EsRequestMetrics(registry, "es", false);
+
+        metrics.onResponse(HOST, RequestCategory.GET, 200, 1000L, 0, 10);
+
+        assertFalse(registry.getTimers().containsKey("es.requests.hosts.localhost:9200"));
+    }
+
+    @Test
+    public void hostFailuresAreMetered() {
+        EsRequestMetrics metrics = new EsRequestMetrics(registry, "es", true);
+
+        metrics.onFailure(HOST);
+
+        assertEquals(1, registry.meter("es.requests.host-failures").getCount());
+    }
+}
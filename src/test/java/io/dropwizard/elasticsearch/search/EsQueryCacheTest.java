@@ -0,0 +1,166 @@
+package io.dropwizard.elasticsearch.search;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.client.EsCircuitBreaker;
+import io.dropwizard.elasticsearch.config.EsQueryCacheConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link EsQueryCache}.
+ */
+public class EsQueryCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger searches = new AtomicInteger();
+    private final EsCircuitBreaker.IOCallable<SearchResponse> search = () -> {
+        searches.incrementAndGet();
+        return mock(SearchResponse.class);
+    };
+
+    private MetricRegistry metrics;
+    private EsQueryCache cache;
+
+    @Before
+    public void setup() throws Exception {
+        metrics = new MetricRegistry();
+        cache = new EsQueryCache(Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"maxEntries\": 2, \"ttlMillis\": 1000, \"indexTtlMillis\": { \"news\": 100 } }",
+                EsQueryCacheConfiguration.class), metrics, "es", now::get);
+    }
+
+    @Test
+    public void identicalSearchesShareAnEntry() throws Exception {
+        final SearchResponse first = cache.search(request("products", "shoes"), search);
+        final SearchResponse second = cache.search(request("products", "shoes"), search);
+
+        assertSame(first, second);
+        assertEquals(1, searches.get());
+        assertEquals(1, metrics.meter("es.query-cache.hits").getCount());
+        assertEquals(1, metrics.meter("es.query-cache.misses").getCount());
+    }
+
+    @Test
+    public void differentSearchesDoNotShareAnEntry() throws Exception {
+        cache.search(request("products", "shoes"), search);
+        cache.search(request("products", "boots"), search);
+        cache.search(request("catalogue", "shoes"), search);
+
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void entriesExpireAfterTheirIndexTtl() throws Exception {
+        final SearchResponse products = cache.search(request("products", "shoes"), search);
+        final SearchResponse news = cache.search(request("news", "shoes"), search);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertSame(products, cache.search(request("products", "shoes"), search));
+        assertNotSame(news, cache.search(request("news", "shoes"), search));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertNotSame(products, cache.search(request("products", "shoes"), search));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        cache.search(request("products", "a"), search);
+        cache.search(request("products", "b"), search);
+        cache.search(request("products", "a"), search);
+        cache.search(request("products", "c"), search);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, metrics.meter("es.query-cache.evictions").getCount());
+        cache.search(request("products", "a"), search);
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void invalidateRemovesSearchesOfTheIndex() throws Exception {
+        cache.search(request("products", "shoes"), search);
+        cache.search(request("news", "shoes"), search);
+
+        cache.invalidate("products");
+
+        assertEquals(1, cache.size());
+        cache.search(request("products", "shoes"), search);
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void searchInFlightDuringInvalidationIsNotCached() throws Exception {
+        cache.search(request("products", "shoes"), () -> {
+            // The index is written to and invalidated while the search is in flight
+            cache.invalidate("products");
+            return search.call();
+        });
+
+        assertEquals(0, cache.size());
+        cache.search(request("products", "shoes"), search);
+        assertEquals(2, searches.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void invalidateRemovesSearchesOfAllIndicesAndPatterns() throws Exception {
+        cache = new EsQueryCache(Jackson.newObjectMapper().readValue(
+                "{ \"enabled\": true, \"maxEntries\": 10 }", EsQueryCacheConfiguration.class), metrics, "es", now::get);
+        cache.search(new SearchRequest(), search);
+        cache.search(request("_all", "shoes"), search);
+        cache.search(request("prod*", "shoes"), search);
+        cache.search(request("news", "shoes"), search);
+
+        cache.invalidate("products");
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void invalidatingAnotherIndexDoesNotStopCaching() throws Exception {
+        cache.search(request("products", "shoes"), () -> {
+            cache.invalidate("news");
+            return search.call();
+        });
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void patternSearchInFlightDuringInvalidationIsNotCached() throws Exception {
+        cache.search(request("prod*", "shoes"), () -> {
+            cache.invalidate("products");
+            return search.call();
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void scrollSearchesAreNotCached() throws Exception {
+        final SearchRequest request = request("products", "shoes").scroll(TimeValue.timeValueMinutes(1));
+        cache.search(request, search);
+        cache.search(request, search);
+
+        assertEquals(2, searches.get());
+        assertEquals(0, cache.size());
+    }
+
+    private static SearchRequest request(String index, String text) {
+        return new SearchRequest(index).source(new SearchSourceBuilder().query(QueryBuilders.matchQuery("name", text)));
+    }
+}
@@ -0,0 +1,120 @@
+package io.dropwizard.elasticsearch.search;
+
+import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.managed.ManagedEsClient;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EsSearchIterator}, against a {@link FakeEsServer}.
+ */
+public class EsSearchIteratorTest {
+
+    private FakeEsServer server;
+    private ManagedEsClient client;
+
+    @Before
+    public void setup() throws Exception {
+        server = new FakeEsServer().withSearchHits(IntStream.range(0, 25)
+                .mapToObj(i -> "{\"n\":" + i + "}")
+                .collect(Collectors.toList()));
+        client = new ManagedEsClient(Jackson.newObjectMapper().readValue(
+                "{ \"servers\": [ \"" + server.getAddress() + "\" ], \"scroll\": { \"prefetchPages\": 1 } }",
+                EsConfiguration.class));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+        server.close();
+    }
+
+    @Test
+    public void scrollReturnsEveryHitAndClearsScroll() throws Exception {
+        final List<String> ids = new ArrayList<>();
+        try (EsSearchIterator hits = client.scroll(request())) {
+            hits.forEachRemaining(hit -> ids.add(hit.getId()));
+        }
+
+        assertEquals(expectedIds(25), ids);
+        waitForScrollsCleared();
+        // One initial search, three scroll pages (the last empty) and the clear
+        assertEquals(1, server.getRequestCount("/logs/_search"));
+        assertEquals(4, server.getRequestCount("/_search/scroll"));
+    }
+
+    @Test
+    public void closingEarlyClearsScroll() throws Exception {
+        try (Stream<SearchHit> hits = client.scroll(request()).stream()) {
+            assertEquals(3, hits.limit(3).count());
+        }
+
+        waitForScrollsCleared();
+    }
+
+    @Test
+    public void searchAfterReturnsEveryHit() throws Exception {
+        final SearchRequest request = request();
+        request.source().sort("timestamp", SortOrder.ASC).sort("_id", SortOrder.ASC);
+
+        final List<String> ids;
+        try (Stream<SearchHit> hits = client.searchAfter(request).stream()) {
+            ids = hits.map(SearchHit::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(expectedIds(25), ids);
+        // Pages of 10, 10 and 5 hits; the short page ends the search
+        assertEquals(3, server.getRequestCount("/logs/_search"));
+        assertEquals(0, server.getOpenScrollCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void searchAfterRequiresSort() {
+        client.searchAfter(request());
+    }
+
+    @Test
+    public void failedPageIsThrownToCaller() throws Exception {
+        server.failNext(1, 500);
+        try (EsSearchIterator hits = client.scroll(request())) {
+            hits.hasNext();
+            fail("Expected the failed page to be thrown");
+        } catch (ElasticsearchException | UncheckedIOException e) {
+            // expected
+        }
+        assertEquals(0, server.getOpenScrollCount());
+    }
+
+    private static SearchRequest request() {
+        return new SearchRequest("logs").source(new SearchSourceBuilder().size(10));
+    }
+
+    private static List<String> expectedIds(int count) {
+        return IntStream.range(0, count).mapToObj(Integer::toString).collect(Collectors.toList());
+    }
+
+    private void waitForScrollsCleared() throws InterruptedException {
+        for (int i = 0; i < 100 && server.getOpenScrollCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getOpenScrollCount());
+    }
+}
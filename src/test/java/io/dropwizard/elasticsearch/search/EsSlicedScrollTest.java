@@ -0,0 +1,101 @@
+package io.dropwizard.elasticsearch.search;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.elasticsearch.config.EsScrollConfiguration;
+import io.dropwizard.elasticsearch.testing.FakeEsServer;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link EsSlicedScroll}, against a {@link FakeEsServer}.
+ */
+public class EsSlicedScrollTest {
+
+    private FakeEsServer server;
+    private RestHighLevelClient client;
+    private MetricRegistry metrics;
+    private EsSlicedScroll slicedScroll;
+
+    @Before
+    public void setup() throws Exception {
+        server = new FakeEsServer().withSearchHits(IntStream.range(0, 50)
+                .mapToObj(i -> "{\"n\":" + i + "}")
+                .collect(Collectors.toList()));
+        client = new RestHighLevelClient(RestClient.builder(server.getHttpHost()));
+        metrics = new MetricRegistry();
+        slicedScroll = new EsSlicedScroll(client, Jackson.newObjectMapper().readValue(
+                "{ \"slices\": 4, \"slicePageSize\": 5 }", EsScrollConfiguration.class), metrics, "es");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        slicedScroll.close();
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void exportReadsEveryHitOnceAcrossSlices() throws Exception {
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        final long count = slicedScroll.export(new SearchRequest("logs"), hit -> ids.add(hit.getId()));
+
+        assertEquals(50, count);
+        assertEquals(50, ids.size());
+        assertEquals(50, metrics.meter("es.scroll.hits").getCount());
+        for (int slice = 0; slice < 4; slice++) {
+            assertEquals(slice < 2 ? 13 : 12, metrics.meter("es.scroll.slices." + slice + ".hits").getCount());
+        }
+        waitForScrollsCleared();
+    }
+
+    @Test
+    public void consumerFailureStopsExport() throws Exception {
+        try {
+            slicedScroll.export(new SearchRequest("logs"), (SearchHit hit) -> {
+                throw new IllegalStateException("Consumer failed");
+            });
+            fail("Expected the consumer failure to be thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Consumer failed", e.getMessage());
+        }
+        waitForScrollsCleared();
+    }
+
+    @Test(expected = IOException.class)
+    public void sliceIOExceptionIsThrownUnwrapped() throws Exception {
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        try (RestHighLevelClient unreachable = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", port)));
+             EsSlicedScroll scroll = new EsSlicedScroll(unreachable, Jackson.newObjectMapper().readValue(
+                     "{ \"slices\": 2 }", EsScrollConfiguration.class), metrics, "es")) {
+            scroll.export(new SearchRequest("logs"), hit -> fail("No hits expected"));
+        }
+    }
+
+    private void waitForScrollsCleared() throws InterruptedException {
+        for (int i = 0; i < 100 && server.getOpenScrollCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getOpenScrollCount());
+    }
+}
@@ -0,0 +1,553 @@
+package io.dropwizard.elasticsearch.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An in-process stand-in for an Elasticsearch node's HTTP interface, for testing and benchmarking
+ * {@code ManagedEsClient} without a cluster or network.
+ * <p>
+ * The server listens on an ephemeral loopback port and answers:
+ * <ul>
+ * <li>{@code GET /} and {@code HEAD /} with node information;</li>
+ * <li>{@code /_cluster/health} with the configured cluster status;</li>
+ * <li>{@code /_nodes/http} with the configured sniffed hosts (by default, just this server);</li>
+ * <li>{@code /_bulk} by parsing the request and returning a result for every item, optionally
+ * rejecting a proportion of items with {@code 429};</li>
+ * <li>{@code /_search} with the configured hits, honouring {@code from}, {@code size}, {@code search_after}
+ * and {@code slice}, and opening a scroll if requested;</li>
+ * <li>{@code /_search/scroll} with the next page of an open scroll, and {@code DELETE} to clear it;</li>
+ * <li>{@code HEAD} on any other path with {@code 200}, so index existence checks pass.</li>
+ * </ul>
+ * Any other path can be given a canned response with {@link #respond(String, String)}. Latency and
+ * request failures can be injected for all requests. Gzip-encoded request bodies are decompressed, and responses
+ * are gzip-encoded for requests which accept it.
+ * <p>
+ * This class is published in the project's test jar:
+ * <pre>
+ * &lt;dependency&gt;
+ *   &lt;groupId&gt;io.dropwizard.modules&lt;/groupId&gt;
+ *   &lt;artifactId&gt;dropwizard-elasticsearch6&lt;/artifactId&gt;
+ *   &lt;type&gt;test-jar&lt;/type&gt;
+ *   &lt;scope&gt;test&lt;/scope&gt;
+ * &lt;/dependency&gt;
+ * </pre>
+ */
+public class FakeEsServer implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong bulkItems = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicInteger failNext = new AtomicInteger();
+    private final Map<String, Cursor> scrolls = new ConcurrentHashMap<>();
+
+    private volatile long latencyMillis = 0;
+    private volatile double errorRate = 0;
+    private volatile int errorStatus = 503;
+    private volatile double bulkRejectionRate = 0;
+    private volatile String clusterStatus = "green";
+    private volatile List<String> sniffedHosts = null;
+    private volatile List<String> searchHits = Collections.emptyList();
+
+    /**
+     * Create and start a server on an ephemeral loopback port.
+     *
+     * @throws IOException if the server cannot be started.
+     */
+    public FakeEsServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "fake-es-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the server address, suitable for {@code EsConfiguration#servers}.
+     */
+    public String getAddress() {
+        return "http://" + getHostAndPort();
+    }
+
+    /**
+     * @return the server address as an {@link HttpHost}.
+     */
+    public HttpHost getHttpHost() {
+        return HttpHost.create(getAddress());
+    }
+
+    private String getHostAndPort() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delay every response by the given time.
+     *
+     * @param latencyMillis the delay, in milliseconds.
+     * @return this server.
+     */
+    public FakeEsServer withLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Fail the given proportion of requests at random.
+     *
+     * @param errorRate  the proportion of requests to fail, between {@code 0} and {@code 1}.
+     * @param httpStatus the status to fail them with.
+     * @return this server.
+     */
+    public FakeEsServer withErrorRate(double errorRate, int httpStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = httpStatus;
+        return this;
+    }
+
+    /**
+     * Fail the next requests.
+     *
+     * @param requests   the number of requests to fail.
+     * @param httpStatus the status to fail them with.
+     * @return this server.
+     */
+    public FakeEsServer failNext(int requests, int httpStatus) {
+        this.errorStatus = httpStatus;
+        this.failNext.set(requests);
+        return this;
+    }
+
+    /**
+     * Reject the given proportion of bulk items at random with {@code 429 Too Many Requests}, as a node
+     * with a full write queue would.
+     *
+     * @param rejectionRate the proportion of items to reject, between {@code 0} and {@code 1}.
+     * @return this server.
+     */
+    public FakeEsServer withBulkRejectionRate(double rejectionRate) {
+        this.bulkRejectionRate = rejectionRate;
+        return this;
+    }
+
+    /**
+     * @param status the cluster status to report, such as {@code yellow}.
+     * @return this server.
+     */
+    public FakeEsServer withClusterStatus(String status) {
+        this.clusterStatus = status;
+        return this;
+    }
+
+    /**
+     * Set the hosts returned to the sniffer. By default only this server is returned.
+     *
+     * @param hostAndPorts the publish addresses, as {@code host:port}.
+     * @return this server.
+     */
+    public FakeEsServer withSniffedHosts(String... hostAndPorts) {
+        List<String> hosts = new ArrayList<>(hostAndPorts.length);
+        Collections.addAll(hosts, hostAndPorts);
+        this.sniffedHosts = hosts;
+        return this;
+    }
+
+    /**
+     * Set the hits returned from every search.
+     *
+     * @param sources the JSON source of each hit.
+     * @return this server.
+     */
+    public FakeEsServer withSearchHits(List<String> sources) {
+        this.searchHits = new ArrayList<>(sources);
+        return this;
+    }
+
+    /**
+     * Respond to requests whose path starts with the given prefix with a canned body. Canned responses
+     * take priority over the built-in endpoints.
+     *
+     * @param pathPrefix the path prefix, such as {@code /logs/_stats}.
+     * @param json       the response body.
+     * @return this server.
+     */
+    public FakeEsServer respond(String pathPrefix, String json) {
+        responses.put(pathPrefix, json);
+        return this;
+    }
+
+    /**
+     * @return the total number of requests received.
+     */
+    public long getRequestCount() {
+        return requestCounts.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    /**
+     * @param endpoint an endpoint, such as {@code _bulk}.
+     * @return the number of requests received whose path contains the endpoint.
+     */
+    public long getRequestCount(String endpoint) {
+        return requestCounts.entrySet().stream()
+                .filter(e -> e.getKey().contains(endpoint))
+                .mapToLong(e -> e.getValue().get())
+                .sum();
+    }
+
+    /**
+     * @return the total number of bulk items received, including rejected items.
+     */
+    public long getBulkItemCount() {
+        return bulkItems.get();
+    }
+
+    /**
+     * @return the number of requests received with a gzip-encoded body.
+     */
+    public long getCompressedRequestCount() {
+        return compressedRequests.get();
+    }
+
+    /**
+     * @return the number of scrolls opened and not yet cleared.
+     */
+    public int getOpenScrollCount() {
+        return scrolls.size();
+    }
+
+    /**
+     * Clear request counts and injected failures.
+     */
+    public void reset() {
+        requestCounts.clear();
+        scrolls.clear();
+        bulkItems.set(0);
+        compressedRequests.set(0);
+        failNext.set(0);
+        errorRate = 0;
+        bulkRejectionRate = 0;
+        latencyMillis = 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final String method = exchange.getRequestMethod();
+            final String path = exchange.getRequestURI().getPath();
+            final byte[] body = readBody(exchange);
+            requestCounts.computeIfAbsent(path, p -> new AtomicLong()).incrementAndGet();
+
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+
+            if (shouldFail()) {
+                send(exchange, method, errorStatus, error("fake_exception", "Injected failure", errorStatus));
+            } else {
+                final String canned = cannedResponse(path);
+                if (canned != null) {
+                    send(exchange, method, 200, canned);
+                } else if ("HEAD".equals(method)) {
+                    send(exchange, method, 200, null);
+                } else if (path.equals("/")) {
+                    send(exchange, method, 200, info());
+                } else if (path.startsWith("/_cluster/health")) {
+                    send(exchange, method, 200, "{\"cluster_name\":\"fake\",\"status\":\"" + clusterStatus + "\",\"timed_out\":false}");
+                } else if (path.startsWith("/_nodes")) {
+                    send(exchange, method, 200, nodes());
+                } else if (path.endsWith("/_bulk")) {
+                    send(exchange, method, 200, bulk(path, body));
+                } else if (path.endsWith("/_search/scroll")) {
+                    if ("DELETE".equals(method)) {
+                        send(exchange, method, 200, clearScroll(body));
+                    } else {
+                        send(exchange, method, 200, scroll(body));
+                    }
+                } else if (path.endsWith("/_search")) {
+                    send(exchange, method, 200, search(path, exchange.getRequestURI().getQuery(), body));
+                } else {
+                    send(exchange, method, 404, error("resource_not_found_exception", "No fake response for " + path, 404));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean shouldFail() {
+        if (failNext.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            return true;
+        }
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private String cannedResponse(String path) {
+        String bestPrefix = null;
+        for (String prefix : responses.keySet()) {
+            if (path.startsWith(prefix) && (bestPrefix == null || prefix.length() > bestPrefix.length())) {
+                bestPrefix = prefix;
+            }
+        }
+        return bestPrefix == null ? null : responses.get(bestPrefix);
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            final byte[] bytes = ByteStreams.toByteArray(in);
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                compressedRequests.incrementAndGet();
+                try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    return ByteStreams.toByteArray(gzip);
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private static void send(HttpExchange exchange, String method, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (json == null || "HEAD".equals(method)) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(bytes);
+                }
+                bytes = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String error(String type, String reason, int status) {
+        final ObjectNode cause = MAPPER.createObjectNode().put("type", type).put("reason", reason);
+        final ObjectNode error = cause.deepCopy();
+        error.putArray("root_cause").add(cause);
+        final ObjectNode root = MAPPER.createObjectNode();
+        root.set("error", error);
+        root.put("status", status);
+        return root.toString();
+    }
+
+    private static String info() {
+        return "{\"name\":\"fake\",\"cluster_name\":\"fake\",\"cluster_uuid\":\"fake\","
+                + "\"version\":{\"number\":\"6.2.3\",\"build_hash\":\"fake\",\"build_date\":\"2018-03-13T10:06:29.741383Z\","
+                + "\"build_snapshot\":false,\"lucene_version\":\"7.2.1\",\"minimum_wire_compatibility_version\":\"5.6.0\","
+                + "\"minimum_index_compatibility_version\":\"5.0.0\"},\"tagline\":\"You Know, for Search\"}";
+    }
+
+    private String nodes() {
+        final List<String> hosts = sniffedHosts == null ? Collections.singletonList(getHostAndPort()) : sniffedHosts;
+        final ObjectNode root = MAPPER.createObjectNode();
+        final ObjectNode nodes = root.putObject("nodes");
+        for (int i = 0; i < hosts.size(); i++) {
+            final ObjectNode node = nodes.putObject("node-" + i);
+            node.put("name", "node-" + i);
+            node.putObject("http").put("publish_address", hosts.get(i));
+        }
+        return root.toString();
+    }
+
+    private String bulk(String path, byte[] body) throws IOException {
+        final String defaultIndex = pathIndex(path);
+        final ObjectNode root = MAPPER.createObjectNode();
+        root.put("took", 1);
+        final ArrayNode items = MAPPER.createArrayNode();
+        boolean errors = false;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final JsonNode action = MAPPER.readTree(line);
+                final String opType = action.fieldNames().next();
+                final JsonNode metadata = action.get(opType);
+                if (!"delete".equals(opType)) {
+                    // Skip the document source
+                    reader.readLine();
+                }
+                bulkItems.incrementAndGet();
+
+                final ObjectNode result = MAPPER.createObjectNode();
+                result.put("_index", metadata.has("_index") ? metadata.get("_index").asText() : defaultIndex);
+                result.put("_type", metadata.has("_type") ? metadata.get("_type").asText() : "doc");
+                result.put("_id", metadata.has("_id") ? metadata.get("_id").asText() : UUID.randomUUID().toString());
+                if (bulkRejectionRate > 0 && ThreadLocalRandom.current().nextDouble() < bulkRejectionRate) {
+                    errors = true;
+                    result.put("status", 429);
+                    result.putObject("error")
+                            .put("type", "es_rejected_execution_exception")
+                            .put("reason", "rejected execution by fake server");
+                } else {
+                    result.put("_version", 1);
+                    result.put("result", "delete".equals(opType) ? "deleted" : "update".equals(opType) ? "updated" : "created");
+                    result.putObject("_shards").put("total", 1).put("successful", 1).put("failed", 0);
+                    result.put("_seq_no", 0);
+                    result.put("_primary_term", 1);
+                    result.put("status", "create".equals(opType) || "index".equals(opType) ? 201 : 200);
+                }
+                items.addObject().set(opType, result);
+            }
+        }
+
+        root.put("errors", errors);
+        root.set("items", items);
+        return root.toString();
+    }
+
+    private String search(String path, String query, byte[] body) throws IOException {
+        final JsonNode request = body.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(body);
+        final JsonNode slice = request.path("slice");
+        final Cursor page = new Cursor(pathIndex(path), searchHits,
+                request.path("size").asInt(10),
+                slice.path("id").asInt(0), slice.path("max").asInt(1));
+        page.offset = request.path("from").asInt(0);
+        if (request.has("search_after")) {
+            page.offset = request.path("search_after").path(0).asInt() + 1;
+        }
+
+        String scrollId = null;
+        if (query != null && query.matches("(^|.*&)scroll=.*")) {
+            scrollId = UUID.randomUUID().toString();
+            scrolls.put(scrollId, page);
+        }
+        return page(page, scrollId);
+    }
+
+    private String scroll(byte[] body) throws IOException {
+        final String scrollId = MAPPER.readTree(body).path("scroll_id").asText();
+        final Cursor scroll = scrolls.get(scrollId);
+        if (scroll == null) {
+            return error("search_context_missing_exception", "No search context found for id [" + scrollId + "]", 404);
+        }
+        return page(scroll, scrollId);
+    }
+
+    private String clearScroll(byte[] body) throws IOException {
+        int freed = 0;
+        for (JsonNode scrollId : MAPPER.readTree(body).path("scroll_id")) {
+            if (scrolls.remove(scrollId.asText()) != null) {
+                freed++;
+            }
+        }
+        return "{\"succeeded\":true,\"num_freed\":" + freed + "}";
+    }
+
+    private String page(Cursor scroll, String scrollId) throws IOException {
+        final ObjectNode root = MAPPER.createObjectNode();
+        if (scrollId != null) {
+            root.put("_scroll_id", scrollId);
+        }
+        root.put("took", 1);
+        root.put("timed_out", false);
+        root.putObject("_shards").put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+        final ObjectNode hits = root.putObject("hits");
+        hits.put("total", scroll.total());
+        hits.put("max_score", 1.0);
+        final ArrayNode hitArray = hits.putArray("hits");
+        synchronized (scroll) {
+            for (int i = scroll.offset, count = 0; i < scroll.sources.size() && count < scroll.size; i++) {
+                if (i % scroll.sliceMax != scroll.sliceId) {
+                    continue;
+                }
+                final ObjectNode hit = hitArray.addObject();
+                hit.put("_index", scroll.index);
+                hit.put("_type", "doc");
+                hit.put("_id", Integer.toString(i));
+                hit.put("_score", 1.0);
+                hit.set("_source", MAPPER.readTree(scroll.sources.get(i)));
+                hit.putArray("sort").add(i);
+                scroll.offset = i + 1;
+                count++;
+            }
+        }
+        return root.toString();
+    }
+
+    private static class Cursor {
+        private final String index;
+        private final List<String> sources;
+        private final int size;
+        private final int sliceId;
+        private final int sliceMax;
+        private int offset;
+
+        private Cursor(String index, List<String> sources, int size, int sliceId, int sliceMax) {
+            this.index = index;
+            this.sources = sources;
+            this.size = size;
+            this.sliceId = sliceId;
+            this.sliceMax = sliceMax;
+        }
+
+        private long total() {
+            long total = 0;
+            for (int i = 0; i < sources.size(); i++) {
+                if (i % sliceMax == sliceId) {
+                    total++;
+                }
+            }
+            return total;
+        }
+    }
+
+    private static String pathIndex(String path) {
+        final int end = path.indexOf('/', 1);
+        return end > 1 ? path.substring(1, end) : "fake";
+    }
+}
@@ -0,0 +1,135 @@
+package io.dropwizard.elasticsearch.testing;
+
+import io.dropwizard.elasticsearch.config.EsConfiguration;
+import io.dropwizard.elasticsearch.health.EsClusterHealthCheck;
+import io.dropwizard.elasticsearch.managed.ManagedEsClient;
+import io.dropwizard.jackson.Jackson;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link FakeEsServer}, using {@link ManagedEsClient} as the client.
+ */
+public class FakeEsServerTest {
+
+    private FakeEsServer server;
+    private ManagedEsClient client;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeEsServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.stop();
+        }
+        server.close();
+    }
+
+    @Test
+    public void clusterHealthReflectsConfiguredStatus() throws Exception {
+        client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ] }");
+
+        assertTrue(new EsClusterHealthCheck(client.getRestHighLevelClient(), true).execute().isHealthy());
+
+        server.withClusterStatus("yellow");
+        assertFalse(new EsClusterHealthCheck(client.getRestHighLevelClient(), true).execute().isHealthy());
+    }
+
+    @Test
+    public void bulkReturnsResultForEveryItem() throws Exception {
+        client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ] }");
+
+        BulkResponse response = client.getRestHighLevelClient().bulk(bulkRequest(10));
+
+        assertFalse(response.hasFailures());
+        assertEquals(10, response.getItems().length);
+        assertEquals(10, server.getBulkItemCount());
+        assertEquals(1, server.getRequestCount("_bulk"));
+    }
+
+    @Test
+    public void bulkItemsCanBeRejected() throws Exception {
+        client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ] }");
+        server.withBulkRejectionRate(1.0);
+
+        BulkResponse response = client.getRestHighLevelClient().bulk(bulkRequest(5));
+
+        assertTrue(response.hasFailures());
+        assertEquals(429, response.getItems()[0].getFailure().getStatus().getStatus());
+    }
+
+    @Test
+    public void searchReturnsConfiguredHits() throws Exception {
+        client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ] }");
+        server.withSearchHits(Arrays.asList("{\"message\":\"one\"}", "{\"message\":\"two\"}"));
+
+        SearchResponse response = client.getRestHighLevelClient().search(new SearchRequest("logs"));
+
+        assertEquals(2, response.getHits().getTotalHits());
+        assertEquals("two", response.getHits().getAt(1).getSourceAsMap().get("message"));
+    }
+
+    @Test
+    public void injectedFailuresAreReturned() throws Exception {
+        client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ] }");
+        server.failNext(1, 503);
+
+        try {
+            client.getRestClient().performRequest("GET", "/");
+            fail("Expected injected failure");
+        } catch (ResponseException e) {
+            assertEquals(503, e.getResponse().getStatusLine().getStatusCode());
+        }
+        assertEquals(200, client.getRestClient().performRequest("GET", "/").getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void warmupSniffMovesClientToSniffedHosts() throws Exception {
+        try (FakeEsServer sniffed = new FakeEsServer()) {
+            server.withSniffedHosts(sniffed.getAddress().substring("http://".length()));
+            client = newClient("{ \"servers\": [ \"" + server.getAddress() + "\" ], "
+                    + "\"sniffer\": { \"enabled\": true }, "
+                    + "\"warmup\": { \"enabled\": true, \"connectionsPerHost\": 2 } }");
+            client.start();
+
+            client.getRestClient().performRequest("GET", "/_cluster/health");
+
+            assertEquals(1, sniffed.getRequestCount("_cluster/health"));
+            assertEquals(0, server.getRequestCount("_cluster/health"));
+        } finally {
+            client.stop();
+            client = null;
+        }
+    }
+
+    private static ManagedEsClient newClient(String json) throws IOException {
+        return new ManagedEsClient(Jackson.newObjectMapper().readValue(json, EsConfiguration.class));
+    }
+
+    private static BulkRequest bulkRequest(int documents) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < documents; i++) {
+            request.add(new IndexRequest("logs", "doc", Integer.toString(i)).source("{\"message\":\"test\"}", XContentType.JSON));
+        }
+        return request;
+    }
+}
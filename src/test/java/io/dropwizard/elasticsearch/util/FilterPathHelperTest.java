@@ -0,0 +1,35 @@
+package io.dropwizard.elasticsearch.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link FilterPathHelper}.
+ */
+public class FilterPathHelperTest {
+
+    @Test
+    public void filterPathsAreJoined() {
+        Map<String, String> params = FilterPathHelper.filterPathParams("took", "hits.hits._id");
+
+        assertEquals(ImmutableMap.of("filter_path", "took,hits.hits._id"), params);
+    }
+
+    @Test
+    public void existingParamsAreKept() {
+        Map<String, String> params = FilterPathHelper.withFilterPath(
+                ImmutableMap.of("level", "indices", "filter_path", "old"), "indices.*.primaries");
+
+        assertEquals(ImmutableMap.of("level", "indices", "filter_path", "indices.*.primaries"), params);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atLeastOneFilterPathIsRequired() {
+        FilterPathHelper.withFilterPath(Collections.emptyMap());
+    }
+}
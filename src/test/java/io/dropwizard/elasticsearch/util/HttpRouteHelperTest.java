@@ -0,0 +1,46 @@
+package io.dropwizard.elasticsearch.util;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link HttpRouteHelper}.
+ */
+public class HttpRouteHelperTest {
+
+    @Test
+    public void routeToHostWithPortKeepsPort() {
+        HttpRoute route = HttpRouteHelper.routeTo(HttpHost.create("http://node1:9200"));
+
+        assertEquals(new HttpHost("node1", 9200, "http"), route.getTargetHost());
+        assertFalse(route.isSecure());
+    }
+
+    @Test
+    public void routeToHostWithoutPortUsesSchemeDefault() {
+        assertEquals(80, HttpRouteHelper.routeTo(HttpHost.create("http://node1")).getTargetHost().getPort());
+        assertEquals(443, HttpRouteHelper.routeTo(HttpHost.create("https://node1")).getTargetHost().getPort());
+    }
+
+    @Test
+    public void hostWithPortIsKept() {
+        HttpHost host = HttpHost.create("http://node1:9200");
+
+        assertSame(host, HttpRouteHelper.withDefaultPort(host));
+        assertEquals(new HttpHost("node1", 80, "http"), HttpRouteHelper.withDefaultPort(HttpHost.create("http://node1")));
+    }
+
+    @Test
+    public void routeToHttpsHostIsSecure() {
+        HttpRoute route = HttpRouteHelper.routeTo(HttpHost.create("https://node1:9243"));
+
+        assertEquals(new HttpRoute(new HttpHost("node1", 9243, "https"), null, true), route);
+        assertTrue(route.isSecure());
+    }
+}
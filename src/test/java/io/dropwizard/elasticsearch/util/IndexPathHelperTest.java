@@ -0,0 +1,58 @@
+package io.dropwizard.elasticsearch.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link IndexPathHelper}.
+ */
+public class IndexPathHelperTest {
+
+    @Test
+    public void indicesAreJoinedIntoOnePath() {
+        assertEquals(ImmutableList.of("/index,logs-*/_stats/docs"),
+                IndexPathHelper.indexPaths(ImmutableList.of("index", "logs-*"), "/_stats/docs"));
+    }
+
+    @Test
+    public void indexNamesAreEncoded() {
+        assertEquals(ImmutableList.of("/%3Clogs-%7Bnow%2Fd%7D%3E,my%20index"),
+                IndexPathHelper.indexPaths(ImmutableList.of("<logs-{now/d}>", "my index"), ""));
+    }
+
+    @Test
+    public void longListsAreSplitAcrossPaths() {
+        List<String> indices = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            indices.add("index-" + i);
+        }
+
+        List<String> paths = IndexPathHelper.indexPaths(indices, "/_stats/docs");
+
+        assertTrue(paths.size() > 1);
+        int count = 0;
+        for (String path : paths) {
+            assertTrue(path.length() <= IndexPathHelper.MAX_PATH_LENGTH);
+            assertTrue(path.endsWith("/_stats/docs"));
+            count += path.substring(1, path.length() - "/_stats/docs".length()).split(",").length;
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexLongerThanMaximumShouldFail() {
+        IndexPathHelper.indexPaths(ImmutableList.of("index"), "/_stats/docs", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyIndicesShouldFail() {
+        IndexPathHelper.indexPaths(Collections.emptyList(), "");
+    }
+}